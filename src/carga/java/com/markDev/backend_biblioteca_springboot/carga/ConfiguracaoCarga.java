@@ -0,0 +1,94 @@
+package com.markDev.backend_biblioteca_springboot.carga;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parâmetros de uma execução do {@link TesteCarga}, lidos de argumentos
+ * {@code chave=valor}. Os que faltarem ficam com os valores predefinidos.
+ *
+ * @param utilizadores   Utilizadores virtuais, cada um com a sua estante e uma thread.
+ * @param livrosIniciais Livros inseridos na estante de cada utilizador antes de medir.
+ * @param aquecimento    Tempo de carga antes de começar a medir (JIT, caches, pool de ligações).
+ * @param duracao        Tempo medido.
+ * @param pausa          Pausa de cada utilizador entre pedidos.
+ * @param googleLatencia Latência mínima do substituto do Google Books.
+ * @param googleErros    Fração (0 a 1) das chamadas ao Google Books que falham com 503.
+ * @param mistura        Peso de cada operação.
+ * @param limiteP99      O p99 máximo aceite em cada operação, ou {@code null}.
+ * @param limiteErros    A fração máxima de erros aceite em cada operação, ou negativa.
+ */
+public record ConfiguracaoCarga(int utilizadores, int livrosIniciais, Duration aquecimento, Duration duracao,
+		Duration pausa, Duration googleLatencia, double googleErros, Map<Operacao, Integer> mistura,
+		Duration limiteP99, double limiteErros) {
+
+	static final String AJUDA = """
+			Argumentos (chave=valor):
+			  utilizadores=20            utilizadores virtuais em simultâneo
+			  livros-iniciais=200        livros na estante de cada utilizador no início
+			  aquecimento=PT15S          carga antes de medir
+			  duracao=PT60S              tempo medido
+			  pausa=PT0S                 pausa de cada utilizador entre pedidos
+			  google.latencia=PT0.1S     latência do substituto do Google Books
+			  google.erros=0             fração das chamadas ao Google Books com 503
+			  mistura=listar-todos:25,busca-externa:15,...
+			                             pesos das operações (as omitidas mantêm o peso predefinido; 0 desliga)
+			  limite.p99=PT0.5S          falha (código 1) se o p99 de alguma operação passar disto
+			  limite.erros=0.01          falha (código 1) se a fração de erros de alguma operação passar disto
+			""";
+
+	public static ConfiguracaoCarga ler(String[] args) {
+		Map<String, String> valores = new HashMap<>();
+		for (String arg : args) {
+			int igual = arg.indexOf('=');
+			if (igual <= 0) {
+				throw new IllegalArgumentException("Argumento inválido (esperado chave=valor): " + arg);
+			}
+			valores.put(arg.substring(0, igual), arg.substring(igual + 1));
+		}
+		ConfiguracaoCarga configuracao = new ConfiguracaoCarga(
+				Integer.parseInt(valores.getOrDefault("utilizadores", "20")),
+				Integer.parseInt(valores.getOrDefault("livros-iniciais", "200")),
+				Duration.parse(valores.getOrDefault("aquecimento", "PT15S")),
+				Duration.parse(valores.getOrDefault("duracao", "PT60S")),
+				Duration.parse(valores.getOrDefault("pausa", "PT0S")),
+				Duration.parse(valores.getOrDefault("google.latencia", "PT0.1S")),
+				Double.parseDouble(valores.getOrDefault("google.erros", "0")),
+				lerMistura(valores.get("mistura")),
+				valores.containsKey("limite.p99") ? Duration.parse(valores.get("limite.p99")) : null,
+				Double.parseDouble(valores.getOrDefault("limite.erros", "-1")));
+		valores.keySet().removeAll(List.of("utilizadores", "livros-iniciais", "aquecimento", "duracao",
+				"pausa", "google.latencia", "google.erros", "mistura", "limite.p99", "limite.erros"));
+		if (!valores.isEmpty()) {
+			throw new IllegalArgumentException("Argumentos desconhecidos: " + valores.keySet());
+		}
+		if (configuracao.utilizadores() < 1 || configuracao.mistura().values().stream().allMatch(peso -> peso == 0)) {
+			throw new IllegalArgumentException("São precisos pelo menos um utilizador e uma operação com peso");
+		}
+		return configuracao;
+	}
+
+	private static Map<Operacao, Integer> lerMistura(String texto) {
+		Map<Operacao, Integer> mistura = new EnumMap<>(Operacao.class);
+		for (Operacao operacao : Operacao.values()) {
+			mistura.put(operacao, operacao.getPesoPadrao());
+		}
+		if (texto != null && !texto.isBlank()) {
+			for (String parte : texto.split(",")) {
+				String[] chaveEPeso = parte.trim().split(":");
+				if (chaveEPeso.length != 2) {
+					throw new IllegalArgumentException("Peso inválido (esperado operacao:peso): " + parte);
+				}
+				int peso = Integer.parseInt(chaveEPeso[1].trim());
+				if (peso < 0) {
+					throw new IllegalArgumentException("Peso negativo: " + parte);
+				}
+				mistura.put(Operacao.porChave(chaveEPeso[0].trim()), peso);
+			}
+		}
+		return mistura;
+	}
+}
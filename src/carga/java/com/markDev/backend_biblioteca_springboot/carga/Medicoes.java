@@ -0,0 +1,110 @@
+package com.markDev.backend_biblioteca_springboot.carga;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latências e erros por operação, registados em microssegundos num
+ * {@link Recorder} do HdrHistogram por operação (sem locks, com todos os
+ * percentis e não só médias). {@link #reiniciar()} descarta o que foi
+ * registado até então, para o aquecimento não entrar no relatório.
+ */
+public class Medicoes {
+
+	private final Map<Operacao, Recorder> latencias = new EnumMap<>(Operacao.class);
+	private final Map<Operacao, LongAdder> erros = new EnumMap<>(Operacao.class);
+	private volatile long inicioNanos = System.nanoTime();
+
+	public Medicoes() {
+		for (Operacao operacao : Operacao.values()) {
+			latencias.put(operacao, new Recorder(3));
+			erros.put(operacao, new LongAdder());
+		}
+	}
+
+	/**
+	 * Regista um pedido. A latência conta mesmo quando o pedido falha, já que o
+	 * utilizador esperou por ela.
+	 */
+	public void registar(Operacao operacao, long nanos, boolean sucesso) {
+		latencias.get(operacao).recordValue(Math.max(1, nanos / 1000));
+		if (!sucesso) {
+			erros.get(operacao).increment();
+		}
+	}
+
+	public void reiniciar() {
+		latencias.values().forEach(Recorder::reset);
+		erros.values().forEach(LongAdder::reset);
+		inicioNanos = System.nanoTime();
+	}
+
+	/** Fecha a medição e devolve o resultado de cada operação com pedidos. */
+	public List<Resultado> concluir() {
+		Duration decorrido = Duration.ofNanos(System.nanoTime() - inicioNanos);
+		List<Resultado> resultados = new ArrayList<>();
+		for (Operacao operacao : Operacao.values()) {
+			Histogram histograma = latencias.get(operacao).getIntervalHistogram();
+			if (histograma.getTotalCount() > 0) {
+				resultados.add(new Resultado(operacao, histograma, erros.get(operacao).sum(), decorrido));
+			}
+		}
+		return resultados;
+	}
+
+	/** Escreve a tabela do relatório, com uma linha por operação e o total. */
+	public static void imprimir(List<Resultado> resultados, PrintStream saida) {
+		String formato = "%-34s %9s %7s %9s %9s %9s %9s %9s%n";
+		saida.printf(Locale.ROOT, formato, "Operação", "Pedidos", "Erros", "Pedidos/s", "p50 ms", "p99 ms",
+				"p99.9 ms", "máx ms");
+		Histogram total = new Histogram(3);
+		long errosTotais = 0;
+		Duration decorrido = Duration.ZERO;
+		for (Resultado resultado : resultados) {
+			imprimirLinha(saida, formato, resultado.operacao().getEndpoint(), resultado.latencias(),
+					resultado.erros(), resultado.decorrido());
+			total.add(resultado.latencias());
+			errosTotais += resultado.erros();
+			decorrido = resultado.decorrido();
+		}
+		imprimirLinha(saida, formato, "Total", total, errosTotais, decorrido);
+	}
+
+	private static void imprimirLinha(PrintStream saida, String formato, String nome, Histogram latencias,
+			long erros, Duration decorrido) {
+		double segundos = Math.max(decorrido.toNanos(), 1) / 1e9;
+		saida.printf(Locale.ROOT, formato, nome, latencias.getTotalCount(), erros,
+				String.format(Locale.ROOT, "%.1f", latencias.getTotalCount() / segundos),
+				milissegundos(latencias.getValueAtPercentile(50)), milissegundos(latencias.getValueAtPercentile(99)),
+				milissegundos(latencias.getValueAtPercentile(99.9)), milissegundos(latencias.getMaxValue()));
+	}
+
+	private static String milissegundos(long micros) {
+		return String.format(Locale.ROOT, "%.2f", micros / 1000.0);
+	}
+
+	/**
+	 * O resultado medido de uma operação.
+	 *
+	 * @param latencias As latências, em microssegundos.
+	 */
+	public record Resultado(Operacao operacao, Histogram latencias, long erros, Duration decorrido) {
+
+		public double taxaErros() {
+			return (double) erros / latencias.getTotalCount();
+		}
+
+		public Duration p99() {
+			return Duration.ofNanos(latencias.getValueAtPercentile(99) * 1000);
+		}
+	}
+}
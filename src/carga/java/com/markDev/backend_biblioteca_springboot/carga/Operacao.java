@@ -0,0 +1,50 @@
+package com.markDev.backend_biblioteca_springboot.carga;
+
+import java.util.Locale;
+
+/**
+ * Os pedidos que os utilizadores virtuais fazem, com o peso de cada um na
+ * mistura predefinida (aproximadamente a de uma estante usada no dia a dia:
+ * sobretudo leituras, algumas escritas e buscas externas).
+ */
+public enum Operacao {
+
+	LOGIN("POST /api/auth/login", 2),
+	LISTAR_TODOS("GET /api/livros", 25),
+	BUSCAR_POR_TITULO("GET /api/livros/buscar", 20),
+	BUSCAR_POR_ID("GET /api/livros/{id}", 15),
+	INSERIR("POST /api/livros", 8),
+	ALTERAR("PUT /api/livros/{id}", 10),
+	EXCLUIR("DELETE /api/livros/{id}", 5),
+	BUSCA_EXTERNA("GET /api/livros/busca-externa", 15);
+
+	private final String endpoint;
+	private final int pesoPadrao;
+
+	Operacao(String endpoint, int pesoPadrao) {
+		this.endpoint = endpoint;
+		this.pesoPadrao = pesoPadrao;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public int getPesoPadrao() {
+		return pesoPadrao;
+	}
+
+	/** O nome usado nos argumentos e no relatório (ex.: {@code busca-externa}). */
+	public String chave() {
+		return name().toLowerCase(Locale.ROOT).replace('_', '-');
+	}
+
+	public static Operacao porChave(String chave) {
+		for (Operacao operacao : values()) {
+			if (operacao.chave().equals(chave)) {
+				return operacao;
+			}
+		}
+		throw new IllegalArgumentException("Operação desconhecida: " + chave);
+	}
+}
@@ -0,0 +1,108 @@
+package com.markDev.backend_biblioteca_springboot.carga;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Servidor HTTP local no lugar da API do Google Books. Responde a qualquer
+ * pedido em {@code /books/v1/volumes} com a resposta gravada em
+ * {@code fixtures/google-books-volumes.json} (40 volumes), depois de uma
+ * latência fixa mais uma variação aleatória de até 50%. Uma fração configurável
+ * dos pedidos recebe 503, para exercitar o circuit breaker e o fallback.
+ */
+public class SubstitutoGoogleBooks implements AutoCloseable {
+
+	static final String CAMINHO = "/books/v1/volumes";
+
+	private final HttpServer servidor;
+	private final ExecutorService executor;
+	private final byte[] resposta;
+	private final long latenciaNanos;
+	private final double taxaErros;
+	private final AtomicLong pedidos = new AtomicLong();
+	private final AtomicLong erros = new AtomicLong();
+
+	/**
+	 * @param latencia  O tempo mínimo de cada resposta.
+	 * @param taxaErros A fração dos pedidos (0 a 1) que recebe 503.
+	 */
+	public SubstitutoGoogleBooks(Duration latencia, double taxaErros) throws IOException {
+		this.resposta = ler("/fixtures/google-books-volumes.json");
+		this.latenciaNanos = latencia.toNanos();
+		this.taxaErros = taxaErros;
+		this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		// Cada pedido dorme a latência simulada na sua própria thread, sem atrasar os outros.
+		this.executor = Executors.newCachedThreadPool();
+		servidor.setExecutor(executor);
+		servidor.createContext(CAMINHO, this::responder);
+		servidor.start();
+	}
+
+	/** O URL a configurar em {@code google.books.api.url}. */
+	public String url() {
+		return "http://" + servidor.getAddress().getHostString() + ":" + servidor.getAddress().getPort() + CAMINHO;
+	}
+
+	public long pedidos() {
+		return pedidos.get();
+	}
+
+	public long erros() {
+		return erros.get();
+	}
+
+	private void responder(HttpExchange troca) throws IOException {
+		try (troca) {
+			pedidos.incrementAndGet();
+			ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+			esperar(latenciaNanos + (latenciaNanos > 0 ? aleatorio.nextLong(latenciaNanos / 2 + 1) : 0));
+			if (aleatorio.nextDouble() < taxaErros) {
+				erros.incrementAndGet();
+				troca.sendResponseHeaders(503, -1);
+				return;
+			}
+			troca.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+			troca.sendResponseHeaders(200, resposta.length);
+			try (OutputStream corpo = troca.getResponseBody()) {
+				corpo.write(resposta);
+			}
+		}
+	}
+
+	private static void esperar(long nanos) {
+		try {
+			Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static byte[] ler(String recurso) {
+		try (InputStream entrada = SubstitutoGoogleBooks.class.getResourceAsStream(recurso)) {
+			if (entrada == null) {
+				throw new IllegalStateException("Recurso não encontrado: " + recurso);
+			}
+			return entrada.readAllBytes();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		servidor.stop(0);
+		executor.shutdownNow();
+	}
+}
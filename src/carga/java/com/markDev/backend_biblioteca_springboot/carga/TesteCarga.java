@@ -0,0 +1,197 @@
+package com.markDev.backend_biblioteca_springboot.carga;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.markDev.backend_biblioteca_springboot.BackendBibliotecaSpringbootApplication;
+
+/**
+ * Teste de carga ponta a ponta que corre sem rede: arranca a aplicação com o
+ * H2 em memória (modo MySQL) e um {@link SubstitutoGoogleBooks} local, cria os
+ * utilizadores virtuais e faz pedidos com a mistura configurada durante o
+ * aquecimento e a duração pedidos. No fim imprime, por endpoint, o débito e os
+ * percentis 50, 99 e 99.9 da latência, e termina com código 1 se algum limite
+ * ({@code limite.p99}, {@code limite.erros}) for ultrapassado.
+ * <p>
+ * Corre no perfil Maven {@code carga}:
+ *
+ * <pre>
+ * mvn -Pcarga test-compile exec:exec -Dcarga.args="duracao=PT2M utilizadores=50"
+ * </pre>
+ *
+ * O cliente corre na mesma JVM que o servidor e disputa com ele o CPU; os
+ * números servem para comparar versões na mesma máquina, não para dimensionar
+ * a produção.
+ */
+public class TesteCarga {
+
+	private static final Logger LOGGER = Logger.getLogger(TesteCarga.class.getName());
+
+	public static void main(String[] args) throws Exception {
+		ConfiguracaoCarga configuracao;
+		try {
+			configuracao = ConfiguracaoCarga.ler(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.print(ConfiguracaoCarga.AJUDA);
+			System.exit(2);
+			return;
+		}
+		System.exit(executar(configuracao));
+	}
+
+	/** @return O código de saída: 0, ou 1 se algum limite foi ultrapassado. */
+	static int executar(ConfiguracaoCarga configuracao) throws Exception {
+		Path imagens = Files.createTempDirectory("carga-imagens");
+		try (SubstitutoGoogleBooks google = new SubstitutoGoogleBooks(configuracao.googleLatencia(),
+				configuracao.googleErros());
+				ConfigurableApplicationContext aplicacao = new SpringApplicationBuilder(
+						BackendBibliotecaSpringbootApplication.class)
+						.properties(Map.of("server.port", "0", "google.books.api.url", google.url(),
+								"biblioteca.imagens.diretorio", imagens.toString()))
+						.run()) {
+			int porta = ((WebServerApplicationContext) aplicacao).getWebServer().getPort();
+			List<Medicoes.Resultado> resultados = gerarCarga(configuracao, URI.create("http://localhost:" + porta));
+			Medicoes.imprimir(resultados, System.out);
+			System.out.printf("Google Books (substituto): %d pedidos, %d com erro%n", google.pedidos(),
+					google.erros());
+			return verificarLimites(configuracao, resultados) ? 0 : 1;
+		} finally {
+			apagar(imagens);
+		}
+	}
+
+	private static List<Medicoes.Resultado> gerarCarga(ConfiguracaoCarga configuracao, URI base) throws Exception {
+		HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5)).build();
+		Medicoes medicoes = new Medicoes();
+		List<JsonNode> modelos = modelos();
+		List<UtilizadorVirtual> utilizadores = new ArrayList<>();
+		for (int i = 0; i < configuracao.utilizadores(); i++) {
+			utilizadores.add(new UtilizadorVirtual(http, base, i, modelos, medicoes));
+		}
+
+		ExecutorService threads = Executors.newFixedThreadPool(configuracao.utilizadores());
+		try {
+			LOGGER.log(Level.INFO, "A preparar {0} utilizadores com {1} livros cada",
+					new Object[] { configuracao.utilizadores(), configuracao.livrosIniciais() });
+			List<Future<?>> preparacoes = new ArrayList<>();
+			for (UtilizadorVirtual utilizador : utilizadores) {
+				preparacoes.add(threads.submit(() -> {
+					utilizador.preparar(configuracao.livrosIniciais());
+					return null;
+				}));
+			}
+			for (Future<?> preparacao : preparacoes) {
+				preparacao.get();
+			}
+
+			long fim = System.nanoTime() + configuracao.aquecimento().plus(configuracao.duracao()).toNanos();
+			Operacao[] sorteio = sorteio(configuracao.mistura());
+			for (int i = 0; i < utilizadores.size(); i++) {
+				UtilizadorVirtual utilizador = utilizadores.get(i);
+				SplittableRandom aleatorio = new SplittableRandom(31L * i + 7);
+				threads.execute(() -> {
+					while (System.nanoTime() < fim && !Thread.currentThread().isInterrupted()) {
+						utilizador.executar(sorteio[aleatorio.nextInt(sorteio.length)]);
+						pausar(configuracao.pausa());
+					}
+				});
+			}
+
+			LOGGER.log(Level.INFO, "Aquecimento durante {0}", configuracao.aquecimento());
+			Thread.sleep(configuracao.aquecimento().toMillis());
+			medicoes.reiniciar();
+			LOGGER.log(Level.INFO, "A medir durante {0}", configuracao.duracao());
+			Thread.sleep(configuracao.duracao().toMillis());
+			List<Medicoes.Resultado> resultados = medicoes.concluir();
+			threads.shutdown();
+			threads.awaitTermination(1, TimeUnit.MINUTES);
+			return resultados;
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+
+	/**
+	 * Uma tabela em que cada operação aparece tantas vezes quanto o seu peso: um
+	 * índice aleatório dá a operação com a probabilidade certa.
+	 */
+	private static Operacao[] sorteio(Map<Operacao, Integer> mistura) {
+		List<Operacao> operacoes = new ArrayList<>();
+		mistura.forEach((operacao, peso) -> {
+			for (int i = 0; i < peso; i++) {
+				operacoes.add(operacao);
+			}
+		});
+		return operacoes.toArray(Operacao[]::new);
+	}
+
+	private static boolean verificarLimites(ConfiguracaoCarga configuracao, List<Medicoes.Resultado> resultados) {
+		boolean dentro = true;
+		for (Medicoes.Resultado resultado : resultados) {
+			if (configuracao.limiteP99() != null && resultado.p99().compareTo(configuracao.limiteP99()) > 0) {
+				System.out.printf("LIMITE ULTRAPASSADO: p99 de %s = %s (máximo %s)%n",
+						resultado.operacao().getEndpoint(), resultado.p99(), configuracao.limiteP99());
+				dentro = false;
+			}
+			if (configuracao.limiteErros() >= 0 && resultado.taxaErros() > configuracao.limiteErros()) {
+				System.out.printf("LIMITE ULTRAPASSADO: erros em %s = %.4f (máximo %.4f)%n",
+						resultado.operacao().getEndpoint(), resultado.taxaErros(), configuracao.limiteErros());
+				dentro = false;
+			}
+		}
+		return dentro;
+	}
+
+	/** Os livros de exemplo partilhados com os benchmarks ({@code fixtures/livros.json}). */
+	private static List<JsonNode> modelos() throws IOException {
+		try (InputStream entrada = TesteCarga.class.getResourceAsStream("/fixtures/livros.json")) {
+			List<JsonNode> modelos = new ArrayList<>();
+			new ObjectMapper().readTree(entrada).forEach(modelos::add);
+			return modelos;
+		}
+	}
+
+	private static void pausar(Duration pausa) {
+		if (pausa.isZero()) {
+			return;
+		}
+		try {
+			Thread.sleep(pausa.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void apagar(Path diretorio) throws IOException {
+		try (Stream<Path> caminhos = Files.walk(diretorio)) {
+			for (Path caminho : caminhos.sorted(Comparator.reverseOrder()).toList()) {
+				Files.deleteIfExists(caminho);
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.markDev.backend_biblioteca_springboot.carga;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Um utilizador da API com a sua própria estante, usado por uma única thread.
+ * Regista-se, faz login e enche a estante em {@link #preparar(int)}; depois
+ * cada chamada a {@link #executar(Operacao)} faz um pedido e regista a latência.
+ * <p>
+ * O modelo é fechado: cada utilizador só envia o pedido seguinte depois da
+ * resposta ao anterior (e da pausa configurada). Por isso, quando o servidor
+ * abranda, a carga oferecida também desce e os percentis altos ficam por
+ * baixo; os valores servem para comparar execuções com os mesmos parâmetros.
+ */
+public class UtilizadorVirtual {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private final HttpClient http;
+	private final URI base;
+	private final String username;
+	private final String password;
+	private final List<JsonNode> modelos;
+	private final Medicoes medicoes;
+	private final SplittableRandom aleatorio;
+	private final List<Long> ids = new ArrayList<>();
+	private String token;
+
+	/**
+	 * @param modelos Os livros de exemplo usados nas inserções e nas buscas.
+	 */
+	public UtilizadorVirtual(HttpClient http, URI base, int numero, List<JsonNode> modelos, Medicoes medicoes) {
+		this.http = http;
+		this.base = base;
+		this.username = "carga" + numero;
+		this.password = "senha-carga-" + numero;
+		this.modelos = modelos;
+		this.medicoes = medicoes;
+		this.aleatorio = new SplittableRandom(numero);
+	}
+
+	/**
+	 * Regista o utilizador, faz login e insere os livros iniciais num pedido em
+	 * lote. Nada disto é medido.
+	 */
+	public void preparar(int livrosIniciais) throws IOException, InterruptedException {
+		exigirSucesso(enviar(pedidoJson("/api/auth/register", "POST", credenciais())), "registo");
+		exigirSucesso(entrar(), "login");
+		if (livrosIniciais > 0) {
+			List<JsonNode> livros = new ArrayList<>(livrosIniciais);
+			for (int i = 0; i < livrosIniciais; i++) {
+				livros.add(livroNovo(i));
+			}
+			exigirSucesso(enviar(pedidoJson("/api/livros/lote", "POST", JSON.valueToTree(livros))), "lote");
+		}
+		HttpResponse<byte[]> estante = enviar(pedido("/api/livros").GET().build());
+		exigirSucesso(estante, "listagem");
+		for (JsonNode livro : JSON.readTree(estante.body())) {
+			ids.add(livro.get("id").asLong());
+		}
+	}
+
+	/** Faz o pedido da operação e regista a latência e o resultado. */
+	public void executar(Operacao operacao) {
+		long inicio = System.nanoTime();
+		boolean sucesso;
+		try {
+			sucesso = switch (operacao) {
+			case LOGIN -> sucesso(entrar());
+			case LISTAR_TODOS -> sucesso(enviar(pedido("/api/livros").GET().build()));
+			case BUSCAR_POR_TITULO ->
+				sucesso(enviar(pedido("/api/livros/buscar?titulo=" + termoBusca()).GET().build()));
+			case BUSCAR_POR_ID -> comLivro(id -> sucesso(enviar(pedido("/api/livros/" + id).GET().build())));
+			case INSERIR -> inserir();
+			case ALTERAR -> comLivro(id -> sucesso(
+					enviar(pedidoJson("/api/livros/" + id, "PUT", livroNovo(aleatorio.nextInt(1000))))));
+			case EXCLUIR -> excluir();
+			case BUSCA_EXTERNA ->
+				sucesso(enviar(pedido("/api/livros/busca-externa?titulo=" + termoBusca()).GET().build()));
+			};
+		} catch (IOException e) {
+			sucesso = false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		medicoes.registar(operacao, System.nanoTime() - inicio, sucesso);
+	}
+
+	private HttpResponse<byte[]> entrar() throws IOException, InterruptedException {
+		HttpResponse<byte[]> resposta = enviar(pedidoJson("/api/auth/login", "POST", credenciais()));
+		if (sucesso(resposta)) {
+			token = JSON.readTree(resposta.body()).get("accessToken").asText();
+		}
+		return resposta;
+	}
+
+	private boolean inserir() throws IOException, InterruptedException {
+		HttpResponse<byte[]> resposta = enviar(pedidoJson("/api/livros", "POST", livroNovo(ids.size())));
+		if (!sucesso(resposta)) {
+			return false;
+		}
+		ids.add(JSON.readTree(resposta.body()).get("id").asLong());
+		return true;
+	}
+
+	/** Exclui um livro; com a estante vazia, insere um em vez disso. */
+	private boolean excluir() throws IOException, InterruptedException {
+		if (ids.isEmpty()) {
+			return inserir();
+		}
+		Long id = ids.remove(aleatorio.nextInt(ids.size()));
+		return sucesso(enviar(pedido("/api/livros/" + id).DELETE().build()));
+	}
+
+	/** Faz o pedido sobre um livro da estante; com a estante vazia, insere um. */
+	private boolean comLivro(PedidoLivro pedido) throws IOException, InterruptedException {
+		if (ids.isEmpty()) {
+			return inserir();
+		}
+		return pedido.enviar(ids.get(aleatorio.nextInt(ids.size())));
+	}
+
+	/** Uma palavra do título de um livro de exemplo, como a que um utilizador escreveria. */
+	private String termoBusca() {
+		String[] palavras = modelos.get(aleatorio.nextInt(modelos.size())).get("titulo").asText().split("\\s+");
+		return URLEncoder.encode(palavras[aleatorio.nextInt(palavras.length)], StandardCharsets.UTF_8);
+	}
+
+	private JsonNode livroNovo(int numero) {
+		ObjectNode livro = modelos.get(numero % modelos.size()).deepCopy();
+		livro.remove("id");
+		livro.put("titulo", livro.get("titulo").asText() + " #" + numero);
+		livro.put("lido", aleatorio.nextBoolean());
+		return livro;
+	}
+
+	private JsonNode credenciais() {
+		return JSON.valueToTree(Map.of("username", username, "password", password));
+	}
+
+	private HttpRequest.Builder pedido(String caminho) {
+		HttpRequest.Builder pedido = HttpRequest.newBuilder(base.resolve(caminho)).timeout(Duration.ofSeconds(30));
+		if (token != null) {
+			pedido.header("Authorization", "Bearer " + token);
+		}
+		return pedido;
+	}
+
+	private HttpRequest pedidoJson(String caminho, String metodo, JsonNode corpo) throws IOException {
+		return pedido(caminho).header("Content-Type", "application/json")
+				.method(metodo, HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(corpo))).build();
+	}
+
+	private HttpResponse<byte[]> enviar(HttpRequest pedido) throws IOException, InterruptedException {
+		return http.send(pedido, HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	private static boolean sucesso(HttpResponse<?> resposta) {
+		return resposta.statusCode() / 100 == 2 || resposta.statusCode() == 304;
+	}
+
+	private void exigirSucesso(HttpResponse<byte[]> resposta, String etapa) {
+		if (!sucesso(resposta)) {
+			throw new IllegalStateException("Falha na preparação de " + username + " (" + etapa + "): HTTP "
+					+ resposta.statusCode() + " " + new String(resposta.body(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@FunctionalInterface
+	private interface PedidoLivro {
+		boolean enviar(Long id) throws IOException, InterruptedException;
+	}
+}
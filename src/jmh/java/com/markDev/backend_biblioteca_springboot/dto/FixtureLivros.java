@@ -0,0 +1,72 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mapstruct.factory.Mappers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
+import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
+import com.markDev.backend_biblioteca_springboot.mapper.LivroMapper;
+
+/**
+ * Estante de benchmark a partir dos livros gravados em
+ * {@code fixtures/livros.json}, repetidos até ao tamanho pedido com ids
+ * distintos. Com capas, cada livro tem capa e contracapa (como referências,
+ * que é o que a API devolve).
+ */
+public final class FixtureLivros {
+
+	private static final LivroMapper MAPPER = Mappers.getMapper(LivroMapper.class);
+	private static final List<LivroDTO> GRAVADOS = ler();
+
+	private FixtureLivros() {
+	}
+
+	public static LivroMapper mapper() {
+		return MAPPER;
+	}
+
+	public static List<LivroEntity> entidades(int quantidade, boolean comCapas) {
+		List<LivroEntity> livros = new ArrayList<>(quantidade);
+		for (int i = 0; i < quantidade; i++) {
+			LivroEntity livro = MAPPER.paraEntidade(GRAVADOS.get(i % GRAVADOS.size()));
+			livro.setId(i + 1L);
+			livro.setVersao(i % 7);
+			livro.setRevisao(i);
+			if (comCapas) {
+				livro.setCapa(imagem(2L * i + 1));
+				livro.setContraCapa(imagem(2L * i + 2));
+			}
+			livros.add(livro);
+		}
+		return livros;
+	}
+
+	public static List<LivroDTO> dtos(int quantidade, boolean comCapas) {
+		return entidades(quantidade, comCapas).stream().map(MAPPER::paraDTO).toList();
+	}
+
+	private static ImagemEntity imagem(long id) {
+		ImagemEntity imagem = new ImagemEntity();
+		imagem.setId(id);
+		imagem.setHash(String.format("%064x", id * 0x9E3779B97F4A7C15L));
+		imagem.setTamanho(40_000 + id % 100_000);
+		imagem.setTipoConteudo("image/jpeg");
+		return imagem;
+	}
+
+	private static List<LivroDTO> ler() {
+		try (InputStream entrada = FixtureLivros.class.getResourceAsStream("/fixtures/livros.json")) {
+			return new ObjectMapper().readValue(entrada, new TypeReference<List<LivroDTO>>() {
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serialização da resposta da listagem ({@code List<LivroDTO>}) com o
+ * ObjectMapper configurado como o do Spring, com livros sem imagens e com capa
+ * e contracapa (as duas referências com URL versionado por livro).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LivroDTOSerializacaoBenchmark {
+
+	@Param({ "50", "1000" })
+	private int livros;
+
+	private ObjectMapper objectMapper;
+	private List<LivroDTO> semCapas;
+	private List<LivroDTO> comCapas;
+
+	@Setup
+	public void preparar() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		semCapas = FixtureLivros.dtos(livros, false);
+		comCapas = FixtureLivros.dtos(livros, true);
+	}
+
+	@Benchmark
+	public byte[] semCapas() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(semCapas);
+	}
+
+	@Benchmark
+	public byte[] comCapas() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(comCapas);
+	}
+}
@@ -0,0 +1,96 @@
+package com.markDev.backend_biblioteca_springboot.security;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Custo da autenticação de um pedido, só na parte do JWT (sem banco de dados):
+ * <ul>
+ * <li>{@code gerarToken}: a emissão de um access token, como no login e na
+ * renovação;</li>
+ * <li>{@code tresParses}: o filtro antigo, com três parses e uma chave e um
+ * parser novos em cada um;</li>
+ * <li>{@code parseUnico}: um parse com a chave e o parser pré-construídos;</li>
+ * <li>{@code verificarComCache}: {@link JwtUtil#verificar(String)}, que depois
+ * do primeiro pedido só calcula o SHA-256 do token;</li>
+ * <li>{@code validarToken}: {@link JwtUtil#validateToken(String, UserDetails)},
+ * com o mesmo token.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+	private static final String SEGREDO = "segredo-de-benchmark-com-pelo-menos-256-bits-para-hs256";
+
+	private JwtUtil jwtUtil;
+	private JwtParser parser;
+	private UserDetails utilizador;
+	private String token;
+
+	@Setup
+	public void preparar() {
+		jwtUtil = new JwtUtil(SEGREDO, 10_000, new SimpleMeterRegistry());
+		parser = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SEGREDO.getBytes())).build();
+		utilizador = new User("leitor", "x", new ArrayList<>());
+		token = jwtUtil.generateToken(utilizador);
+	}
+
+	@Benchmark
+	public String gerarToken() {
+		return jwtUtil.generateToken(utilizador);
+	}
+
+	@Benchmark
+	public boolean tresParses() {
+		String username = claimsSemReutilizacao(token).getSubject();
+		boolean valido = claimsSemReutilizacao(token).getSubject().equals(utilizador.getUsername())
+				&& !claimsSemReutilizacao(token).getExpiration().before(new Date());
+		return username != null && valido;
+	}
+
+	@Benchmark
+	public Claims parseUnico() {
+		return parser.parseClaimsJws(token).getBody();
+	}
+
+	@Benchmark
+	public Claims verificarComCache() {
+		return jwtUtil.verificar(token);
+	}
+
+	@Benchmark
+	public Boolean validarToken() {
+		return jwtUtil.validateToken(token, utilizador);
+	}
+
+	private static Claims claimsSemReutilizacao(String token) {
+		Key chave = Keys.hmacShaKeyFor(SEGREDO.getBytes());
+		return Jwts.parserBuilder().setSigningKey(chave).build().parseClaimsJws(token).getBody();
+	}
+}
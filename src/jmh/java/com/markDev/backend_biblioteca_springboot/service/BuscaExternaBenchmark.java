@@ -0,0 +1,61 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.markDev.backend_biblioteca_springboot.dto.BookSearchResultDTO;
+import com.markDev.backend_biblioteca_springboot.service.googlebooks.GoogleBooksStreamingParser;
+
+/**
+ * Trabalho de CPU de uma busca externa sobre a resposta gravada do Google Books
+ * (40 volumes): a conversão para {@link BookSearchResultDTO} seguida da
+ * ordenação por relevância, e a ordenação sozinha, que também corre em cada
+ * acerto da cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuscaExternaBenchmark {
+
+	private static final String TITULO = "Dom Casmurro";
+
+	private byte[] resposta;
+	private GoogleBooksStreamingParser parser;
+	private List<BookSearchResultDTO> resultados;
+
+	@Setup
+	public void preparar() throws IOException {
+		try (InputStream entrada = getClass().getResourceAsStream("/fixtures/google-books-volumes.json")) {
+			resposta = entrada.readAllBytes();
+		}
+		parser = new GoogleBooksStreamingParser();
+		resultados = parser.ler(new ByteArrayInputStream(resposta));
+	}
+
+	@Benchmark
+	public List<BookSearchResultDTO> converterEOrdenar() throws IOException {
+		return GoogleBooksService.ordenarPorRelevancia(parser.ler(new ByteArrayInputStream(resposta)), TITULO);
+	}
+
+	@Benchmark
+	public List<BookSearchResultDTO> ordenar() {
+		return GoogleBooksService.ordenarPorRelevancia(resultados, TITULO);
+	}
+}
@@ -0,0 +1,218 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+import com.markDev.backend_biblioteca_springboot.dto.FixtureLivros;
+import com.markDev.backend_biblioteca_springboot.dto.ImagemRefDTO;
+import com.markDev.backend_biblioteca_springboot.dto.LivroDTO;
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
+import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
+import com.markDev.backend_biblioteca_springboot.mapper.LivroMapper;
+import com.markDev.backend_biblioteca_springboot.repository.projection.LivroResumo;
+
+/**
+ * Conversão de uma estante (metade dos livros com capas) entre entidade, DTO e
+ * projeção com o {@link LivroMapper} gerado pelo MapStruct, nos dois sentidos.
+ * Os métodos {@code *BeanUtils} repetem a cópia por reflexão que o mapper
+ * substituiu, como referência.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LivroMapeamentoBenchmark {
+
+	@Param({ "100", "10000" })
+	private int livros;
+
+	private LivroMapper mapper;
+	private List<LivroEntity> entidades;
+	private List<LivroResumo> resumos;
+	private List<LivroDTO> dtos;
+
+	@Setup
+	public void preparar() {
+		mapper = FixtureLivros.mapper();
+		entidades = new ArrayList<>(FixtureLivros.entidades(livros / 2, false));
+		entidades.addAll(FixtureLivros.entidades(livros - livros / 2, true));
+		resumos = entidades.stream().map(LivroMapeamentoBenchmark::resumo).toList();
+		dtos = entidades.stream().map(mapper::paraDTO).toList();
+	}
+
+	@Benchmark
+	public List<LivroDTO> resumoParaDTO() {
+		List<LivroDTO> resultado = new ArrayList<>(resumos.size());
+		for (LivroResumo resumo : resumos) {
+			resultado.add(mapper.paraDTO(resumo));
+		}
+		return resultado;
+	}
+
+	@Benchmark
+	public List<LivroDTO> entidadeParaDTO() {
+		List<LivroDTO> resultado = new ArrayList<>(entidades.size());
+		for (LivroEntity entidade : entidades) {
+			resultado.add(mapper.paraDTO(entidade));
+		}
+		return resultado;
+	}
+
+	@Benchmark
+	public List<LivroDTO> entidadeParaDTOBeanUtils() {
+		List<LivroDTO> resultado = new ArrayList<>(entidades.size());
+		for (LivroEntity entidade : entidades) {
+			LivroDTO dto = new LivroDTO();
+			BeanUtils.copyProperties(entidade, dto, "capa", "contraCapa");
+			dto.setCapaRef(referencia(entidade.getId(), "capa", entidade.getCapa()));
+			dto.setContraCapaRef(referencia(entidade.getId(), "contracapa", entidade.getContraCapa()));
+			resultado.add(dto);
+		}
+		return resultado;
+	}
+
+	@Benchmark
+	public List<LivroEntity> dtoParaEntidade() {
+		List<LivroEntity> resultado = new ArrayList<>(dtos.size());
+		for (LivroDTO dto : dtos) {
+			resultado.add(mapper.paraEntidade(dto));
+		}
+		return resultado;
+	}
+
+	@Benchmark
+	public List<LivroEntity> dtoParaEntidadeBeanUtils() {
+		List<LivroEntity> resultado = new ArrayList<>(dtos.size());
+		for (LivroDTO dto : dtos) {
+			LivroEntity entidade = new LivroEntity();
+			BeanUtils.copyProperties(dto, entidade, "id", "versao", "capa", "contraCapa");
+			resultado.add(entidade);
+		}
+		return resultado;
+	}
+
+	private static ImagemRefDTO referencia(Long livroId, String recurso, ImagemEntity imagem) {
+		return imagem == null ? null
+				: ImagemRefDTO.de(livroId, recurso, imagem.getId(), imagem.getTamanho(), imagem.getHash());
+	}
+
+	private static LivroResumo resumo(LivroEntity livro) {
+		ImagemEntity capa = livro.getCapa();
+		ImagemEntity contraCapa = livro.getContraCapa();
+		return new Resumo(livro.getId(), livro.getVersao(), livro.getRevisao(), livro.getTitulo(), livro.getAutor(),
+				livro.getAno(), livro.getSinopse(), livro.getNumeroPaginas(), livro.isLido(), livro.isEmprestado(),
+				livro.getEmprestadoPara(), capa != null ? capa.getId() : null,
+				capa != null ? capa.getTamanho() : null, capa != null ? capa.getHash() : null,
+				contraCapa != null ? contraCapa.getId() : null,
+				contraCapa != null ? contraCapa.getTamanho() : null,
+				contraCapa != null ? contraCapa.getHash() : null);
+	}
+
+	/** O equivalente à projeção que o Spring Data devolve, sem o proxy. */
+	private record Resumo(Long id, long versao, long revisao, String titulo, String autor, Integer ano,
+			String sinopse, Integer numeroPaginas, boolean lido, boolean emprestado, String emprestadoPara,
+			Long capaId, Long capaTamanho, String capaHash, Long contraCapaId, Long contraCapaTamanho,
+			String contraCapaHash) implements LivroResumo {
+
+		@Override
+		public Long getId() {
+			return id;
+		}
+
+		@Override
+		public long getVersao() {
+			return versao;
+		}
+
+		@Override
+		public long getRevisao() {
+			return revisao;
+		}
+
+		@Override
+		public String getTitulo() {
+			return titulo;
+		}
+
+		@Override
+		public String getAutor() {
+			return autor;
+		}
+
+		@Override
+		public Integer getAno() {
+			return ano;
+		}
+
+		@Override
+		public String getSinopse() {
+			return sinopse;
+		}
+
+		@Override
+		public Integer getNumeroPaginas() {
+			return numeroPaginas;
+		}
+
+		@Override
+		public boolean isLido() {
+			return lido;
+		}
+
+		@Override
+		public boolean isEmprestado() {
+			return emprestado;
+		}
+
+		@Override
+		public String getEmprestadoPara() {
+			return emprestadoPara;
+		}
+
+		@Override
+		public Long getCapaId() {
+			return capaId;
+		}
+
+		@Override
+		public Long getCapaTamanho() {
+			return capaTamanho;
+		}
+
+		@Override
+		public String getCapaHash() {
+			return capaHash;
+		}
+
+		@Override
+		public Long getContraCapaId() {
+			return contraCapaId;
+		}
+
+		@Override
+		public Long getContraCapaTamanho() {
+			return contraCapaTamanho;
+		}
+
+		@Override
+		public String getContraCapaHash() {
+			return contraCapaHash;
+		}
+	}
+}
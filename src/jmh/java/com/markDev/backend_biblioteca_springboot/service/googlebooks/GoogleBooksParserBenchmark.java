@@ -0,0 +1,91 @@
+package com.markDev.backend_biblioteca_springboot.service.googlebooks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.markDev.backend_biblioteca_springboot.dto.BookSearchResultDTO;
+import com.markDev.backend_biblioteca_springboot.service.googlebooks.model.GoogleBooksResponse;
+import com.markDev.backend_biblioteca_springboot.service.googlebooks.model.VolumeItem;
+
+/**
+ * Compara a conversão de uma página de resultados do Google Books (40 itens com
+ * sinopses longas) pelo caminho antigo, String + árvore completa do modelo +
+ * conversão, com o parser de streaming. Correr com {@code -prof gc} para ver a
+ * alocação por operação.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoogleBooksParserBenchmark {
+
+	private byte[] resposta;
+	private ObjectMapper objectMapper;
+	private GoogleBooksStreamingParser parser;
+
+	@Setup
+	public void preparar() throws IOException {
+		try (InputStream entrada = getClass().getResourceAsStream("/fixtures/google-books-volumes.json")) {
+			resposta = entrada.readAllBytes();
+		}
+		objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		parser = new GoogleBooksStreamingParser();
+	}
+
+	@Benchmark
+	public List<BookSearchResultDTO> arvoreCompleta() throws IOException {
+		String respostaJson = new String(resposta, StandardCharsets.UTF_8);
+		GoogleBooksResponse response = objectMapper.readValue(respostaJson, GoogleBooksResponse.class);
+		return response.getItems().stream().filter(item -> item != null && item.getVolumeInfo() != null)
+				.map(GoogleBooksParserBenchmark::convertToStandardDTO).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<BookSearchResultDTO> streaming() throws IOException {
+		return parser.ler(new ByteArrayInputStream(resposta));
+	}
+
+	/** Cópia da conversão que o GoogleBooksService fazia antes do parser de streaming. */
+	private static BookSearchResultDTO convertToStandardDTO(VolumeItem item) {
+		var volumeInfo = item.getVolumeInfo();
+		BookSearchResultDTO dto = new BookSearchResultDTO();
+
+		dto.setTitulo(volumeInfo.getTitle() != null ? volumeInfo.getTitle() : "Sem título");
+		dto.setAutor(volumeInfo.getAuthors() != null && !volumeInfo.getAuthors().isEmpty()
+				? String.join(", ", volumeInfo.getAuthors())
+				: "Autor desconhecido");
+		dto.setSinopse(volumeInfo.getDescription());
+		dto.setNumeroPaginas(volumeInfo.getPageCount());
+		dto.setIdioma(volumeInfo.getLanguage());
+
+		if (volumeInfo.getPublishedDate() != null && volumeInfo.getPublishedDate().matches("\\d{4}.*")) {
+			dto.setAno(Integer.parseInt(volumeInfo.getPublishedDate().substring(0, 4)));
+		}
+
+		if (volumeInfo.getImageLinks() != null && volumeInfo.getImageLinks().getThumbnail() != null) {
+			dto.setCapaUrl(volumeInfo.getImageLinks().getThumbnail().replace("&zoom=1", "&zoom=0")
+					.replace("&edge=curl", ""));
+		}
+		return dto;
+	}
+}
@@ -3,8 +3,10 @@ package com.markDev.backend_biblioteca_springboot;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 @PropertySource("classpath:application.properties")
 public class BackendBibliotecaSpringbootApplication {
 
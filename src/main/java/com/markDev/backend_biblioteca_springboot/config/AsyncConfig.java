@@ -0,0 +1,38 @@
+package com.markDev.backend_biblioteca_springboot.config;
+
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executores para o trabalho feito fora da thread do pedido. Todos são
+ * limitados em threads e em fila: quando a fila enche, a tarefa é descartada
+ * (e registada) em vez de bloquear ou de crescer a memória sem limite.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+	private static final Logger LOGGER = Logger.getLogger(AsyncConfig.class.getName());
+
+	/**
+	 * Executor da geração de miniaturas. Descodificar uma capa grande usa bastante
+	 * CPU e memória, por isso o número de threads é pequeno.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor imagemExecutor(@Value("${biblioteca.imagens.miniaturas.threads:2}") int threads,
+			@Value("${biblioteca.imagens.miniaturas.fila:200}") int fila) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setThreadNamePrefix("miniaturas-");
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(fila);
+		executor.setRejectedExecutionHandler((tarefa, pool) -> LOGGER
+				.warning("Fila de miniaturas cheia; a variante será gerada quando for pedida."));
+		return executor;
+	}
+}
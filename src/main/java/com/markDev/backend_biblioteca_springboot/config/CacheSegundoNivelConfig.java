@@ -0,0 +1,93 @@
+package com.markDev.backend_biblioteca_springboot.config;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache de segundo nível do Hibernate, em memória (JCache sobre Caffeine), para
+ * os utilizadores, os livros e as consultas por utilizador marcadas com
+ * {@code org.hibernate.cacheable} nos repositórios.
+ * <p>
+ * Todas as regiões são criadas aqui, com tamanho máximo e validade; uma região
+ * que não exista faz o arranque falhar em vez de ser criada sem limite. As
+ * entidades usam READ_WRITE: cada escrita atualiza só a entrada da entidade no
+ * commit. As consultas em cache são invalidadas pelo Hibernate sempre que uma
+ * das suas tabelas é escrita, por isso as instruções SQL nativas declaram as
+ * tabelas em que escrevem ({@code HINT_NATIVE_SPACES}); sem isso, cada uma
+ * esvaziaria a cache toda.
+ * <p>
+ * Os acertos, falhas e remoções de cada região são publicados como métricas
+ * (cache.gets, cache.evictions...) com a etiqueta {@code cache=hibernate.<região>}.
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+	public static final String REGIAO_USUARIOS = "usuarios";
+	public static final String REGIAO_LIVROS = "livros";
+	public static final String REGIAO_CONSULTAS_USUARIOS = "consultas-usuarios";
+	public static final String REGIAO_CONSULTAS_LIVROS = "consultas-livros";
+
+	@Bean(destroyMethod = "close")
+	public CacheManager hibernateCacheManager(MeterRegistry meterRegistry,
+			@Value("${biblioteca.cache.usuarios.tamanho-maximo:10000}") long usuarios,
+			@Value("${biblioteca.cache.livros.tamanho-maximo:100000}") long livros,
+			@Value("${biblioteca.cache.consultas.tamanho-maximo:20000}") long consultas,
+			@Value("${biblioteca.cache.entidades.validade:PT1H}") Duration validadeEntidades,
+			@Value("${biblioteca.cache.consultas.validade:PT10M}") Duration validadeConsultas) {
+		CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+				.getCacheManager();
+		criarRegiao(cacheManager, meterRegistry, REGIAO_USUARIOS, usuarios, validadeEntidades);
+		criarRegiao(cacheManager, meterRegistry, REGIAO_LIVROS, livros, validadeEntidades);
+		criarRegiao(cacheManager, meterRegistry, REGIAO_CONSULTAS_USUARIOS, consultas, validadeConsultas);
+		criarRegiao(cacheManager, meterRegistry, REGIAO_CONSULTAS_LIVROS, consultas, validadeConsultas);
+		criarRegiao(cacheManager, meterRegistry, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+				consultas, validadeConsultas);
+		// Uma entrada por tabela: não pode expirar antes das consultas que dependem dela.
+		criarRegiao(cacheManager, meterRegistry, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+				1000, null);
+		return cacheManager;
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer cacheSegundoNivel(CacheManager hibernateCacheManager) {
+		return propriedades -> {
+			propriedades.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+			propriedades.put(AvailableSettings.USE_QUERY_CACHE, true);
+			propriedades.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+			propriedades.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+			propriedades.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void criarRegiao(CacheManager cacheManager, MeterRegistry meterRegistry, String nome,
+			long tamanhoMaximo, Duration validade) {
+		CaffeineConfiguration<Object, Object> configuracao = new CaffeineConfiguration<>();
+		configuracao.setMaximumSize(OptionalLong.of(tamanhoMaximo));
+		if (validade != null) {
+			configuracao.setExpireAfterWrite(OptionalLong.of(validade.toNanos()));
+		}
+		configuracao.setNativeStatisticsEnabled(true);
+		Cache<Object, Object> regiao = cacheManager.createCache(nome, configuracao);
+		CaffeineCacheMetrics.monitor(meterRegistry, regiao.unwrap(com.github.benmanes.caffeine.cache.Cache.class),
+				"hibernate." + nome);
+	}
+}
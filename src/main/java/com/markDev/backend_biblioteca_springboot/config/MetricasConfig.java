@@ -0,0 +1,96 @@
+package com.markDev.backend_biblioteca_springboot.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+/**
+ * Métricas da aplicação, exportadas em {@code /actuator/prometheus}.
+ * <ul>
+ * <li>Pedidos HTTP: {@code http.server.requests} (do Spring Boot), por
+ * endpoint, método e estado.</li>
+ * <li>Métodos do {@code LivroService}: {@code livros.servico}, via
+ * {@code @Timed}.</li>
+ * <li>Chamadas ao Google Books: {@code google.books.chamadas} e o número de
+ * resultados por resposta em {@code google.books.resultados}.</li>
+ * <li>Verificação dos JWT ({@code jwt.verificacao}) e BCrypt
+ * ({@code senha.bcrypt}).</li>
+ * <li>Pool de ligações ({@code hikaricp.*}, do Spring Boot) e estatísticas do
+ * Hibernate ({@code hibernate.*}).</li>
+ * </ul>
+ * Os tempos são publicados como histogramas com buckets fixos, a partir dos
+ * quais o Prometheus calcula os percentis ({@code histogram_quantile}) e os
+ * agrega entre instâncias. Registar um tempo custa uma soma num contador por
+ * bucket, sem percentis calculados na aplicação.
+ */
+@Configuration
+public class MetricasConfig {
+
+	private static final Faixa PEDIDOS = new Faixa(Duration.ofMillis(1), Duration.ofSeconds(30));
+
+	/** Os timers publicados como histograma, com a faixa de valores de cada um. */
+	private static final Map<String, Faixa> HISTOGRAMAS = Map.of(
+			"http.server.requests", PEDIDOS,
+			"livros.servico", PEDIDOS,
+			"google.books.chamadas", PEDIDOS,
+			"senha.bcrypt", PEDIDOS,
+			// Um token em cache custa microssegundos; a verificação da assinatura, dezenas.
+			"jwt.verificacao", new Faixa(Duration.ofNanos(500), Duration.ofMillis(100)),
+			"hikaricp.connections.acquire", new Faixa(Duration.ofNanos(1000), Duration.ofSeconds(30)),
+			"hikaricp.connections.usage", PEDIDOS);
+
+	/** Ativa o {@code @Timed} nos beans (ex.: {@code LivroService}). */
+	@Bean
+	public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+		return new TimedAspect(meterRegistry);
+	}
+
+	/**
+	 * Histogramas para os timers em {@link #HISTOGRAMAS}, só com os buckets da
+	 * faixa de cada um: fora dela não distinguem nada que interesse e só
+	 * multiplicariam as séries no Prometheus.
+	 */
+	@Bean
+	public MeterFilter histogramasLatencia() {
+		return new MeterFilter() {
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+				Faixa faixa = HISTOGRAMAS.get(id.getName());
+				if (faixa == null) {
+					return config;
+				}
+				return DistributionStatisticConfig.builder().percentilesHistogram(true)
+						.minimumExpectedValue((double) faixa.minimo().toNanos())
+						.maximumExpectedValue((double) faixa.maximo().toNanos()).build().merge(config);
+			}
+		};
+	}
+
+	/**
+	 * Liga as estatísticas do Hibernate, que o Spring Boot publica como métricas.
+	 * O registo das métricas de cada sessão no log, que o Hibernate também liga
+	 * com as estatísticas, fica desligado.
+	 */
+	@Bean
+	public HibernatePropertiesCustomizer estatisticasHibernate(
+			@Value("${biblioteca.metricas.hibernate:true}") boolean ativas) {
+		return propriedades -> {
+			propriedades.put(AvailableSettings.GENERATE_STATISTICS, ativas);
+			propriedades.put(AvailableSettings.LOG_SESSION_METRICS, false);
+		};
+	}
+
+	private record Faixa(Duration minimo, Duration maximo) {
+	}
+}
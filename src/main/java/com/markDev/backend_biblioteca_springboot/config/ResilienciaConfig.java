@@ -0,0 +1,77 @@
+package com.markDev.backend_biblioteca_springboot.config;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.markDev.backend_biblioteca_springboot.service.googlebooks.GoogleBooksException;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Proteções das integrações externas. O circuit breaker deixa de chamar a API
+ * quando muitas chamadas recentes falharam ou foram lentas, e volta a testá-la
+ * com algumas chamadas depois de um intervalo (estado meio-aberto). O bulkhead
+ * limita as chamadas simultâneas, para que uma API lenta não acumule pedidos
+ * pendentes sem limite. O estado de ambos é publicado como métricas
+ * (resilience4j.circuitbreaker.*, resilience4j.bulkhead.*).
+ */
+@Configuration
+public class ResilienciaConfig {
+
+	@Bean
+	public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+		CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+		TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+		return registry;
+	}
+
+	@Bean
+	public BulkheadRegistry bulkheadRegistry(MeterRegistry meterRegistry) {
+		BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+		TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+		return registry;
+	}
+
+	@Bean
+	public CircuitBreaker googleBooksCircuitBreaker(CircuitBreakerRegistry registry,
+			@Value("${google.books.circuito.janela:20}") int janela,
+			@Value("${google.books.circuito.minimo-chamadas:10}") int minimoChamadas,
+			@Value("${google.books.circuito.taxa-falhas:50}") float taxaFalhas,
+			@Value("${google.books.circuito.taxa-lentas:80}") float taxaLentas,
+			@Value("${google.books.circuito.limite-lenta:PT3S}") Duration limiteLenta,
+			@Value("${google.books.circuito.espera-aberto:PT30S}") Duration esperaAberto,
+			@Value("${google.books.circuito.chamadas-meio-aberto:3}") int chamadasMeioAberto) {
+		CircuitBreakerConfig config = CircuitBreakerConfig.custom().slidingWindowSize(janela)
+				.minimumNumberOfCalls(minimoChamadas).failureRateThreshold(taxaFalhas)
+				.slowCallRateThreshold(taxaLentas).slowCallDurationThreshold(limiteLenta)
+				.waitDurationInOpenState(esperaAberto).permittedNumberOfCallsInHalfOpenState(chamadasMeioAberto)
+				.automaticTransitionFromOpenToHalfOpenEnabled(true)
+				// Um pedido inválido, recusado pelo bulkhead ou cancelado por quem esperava não diz nada sobre a saúde da API.
+				.ignoreException(e -> e instanceof GoogleBooksException erro && erro.isErroDoPedido()
+						|| e instanceof BulkheadFullException || e instanceof CancellationException)
+				.build();
+		return registry.circuitBreaker("googleBooks", config);
+	}
+
+	@Bean
+	public Bulkhead googleBooksBulkhead(BulkheadRegistry registry,
+			@Value("${google.books.bulkhead.max-concorrentes:20}") int maxConcorrentes) {
+		// Sem espera: a chamada é assíncrona e não deve bloquear quem a pede.
+		BulkheadConfig config = BulkheadConfig.custom().maxConcurrentCalls(maxConcorrentes).maxWaitDuration(Duration.ZERO)
+				.build();
+		return registry.bulkhead("googleBooks", config);
+	}
+}
@@ -5,6 +5,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -14,8 +15,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.markDev.backend_biblioteca_springboot.dto.AuthRequest;
 import com.markDev.backend_biblioteca_springboot.dto.AuthResponse;
 import com.markDev.backend_biblioteca_springboot.dto.RefreshRequest; // Import para o novo DTO
-import com.markDev.backend_biblioteca_springboot.security.JwtUtil;
-import com.markDev.backend_biblioteca_springboot.security.UserDetailsServiceImpl;
+import com.markDev.backend_biblioteca_springboot.service.RefreshTokenService;
 import com.markDev.backend_biblioteca_springboot.service.UserService;
 
 import jakarta.validation.Valid;
@@ -27,14 +27,11 @@ public class AuthController {
 	@Autowired
 	private AuthenticationManager authenticationManager;
 
-	@Autowired
-	private UserDetailsServiceImpl userDetailsService;
-
 	@Autowired
 	private UserService userService;
 
 	@Autowired
-	private JwtUtil jwtUtil;
+	private RefreshTokenService refreshTokenService;
 
 	@PostMapping("/register")
 	public ResponseEntity<?> registerUser(@Valid @RequestBody AuthRequest registerRequest) {
@@ -52,45 +49,38 @@ public class AuthController {
 	 */
 	@PostMapping("/login")
 	public ResponseEntity<?> createAuthenticationToken(@RequestBody AuthRequest authRequest) throws Exception {
+		final Authentication authentication;
 		try {
-			authenticationManager.authenticate(
+			authentication = authenticationManager.authenticate(
 					new UsernamePasswordAuthenticationToken(authRequest.getUsername(), authRequest.getPassword()));
 		} catch (BadCredentialsException e) {
 			throw new Exception("Nome de utilizador ou senha incorretos", e);
 		}
 
-		final UserDetails userDetails = userDetailsService.loadUserByUsername(authRequest.getUsername());
+		// O utilizador já foi carregado na autenticação; não é preciso ir outra vez ao banco.
+		final UserDetails userDetails = (UserDetails) authentication.getPrincipal();
 
-		// Gera os dois tokens
-		final String accessToken = jwtUtil.generateToken(userDetails);
-		final String refreshToken = jwtUtil.generateRefreshToken(userDetails);
-
-		// Retorna ambos na resposta
-		return ResponseEntity.ok(new AuthResponse(accessToken, refreshToken));
+		// Abre uma sessão nova e retorna os dois tokens
+		return ResponseEntity.ok(refreshTokenService.iniciarSessao(userDetails));
 	}
 
 	/**
-	 * <<< NOVO MÉTODO DE REFRESH >>> Recebe um Refresh Token válido e retorna um
-	 * novo Access Token. É a mágica por trás do login automático.
+	 * Recebe um Refresh Token válido e retorna um novo Access Token e um novo
+	 * Refresh Token; o token recebido deixa de valer. Reutilizar um Refresh Token
+	 * já trocado termina a sessão inteira.
 	 */
 	@PostMapping("/refresh")
-	public ResponseEntity<?> refreshToken(@RequestBody RefreshRequest refreshRequest) {
-		String refreshToken = refreshRequest.getRefreshToken();
-		try {
-			String username = jwtUtil.extractUsername(refreshToken);
-			UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+	public ResponseEntity<AuthResponse> refreshToken(@RequestBody RefreshRequest refreshRequest) {
+		return ResponseEntity.ok(refreshTokenService.renovar(refreshRequest.getRefreshToken()));
+	}
 
-			// Valida o Refresh Token
-			if (jwtUtil.validateToken(refreshToken, userDetails)) {
-				// Se for válido, gera um novo Access Token
-				String newAccessToken = jwtUtil.generateToken(userDetails);
-				// Retorna o novo Access Token e o mesmo Refresh Token
-				return ResponseEntity.ok(new AuthResponse(newAccessToken, refreshToken));
-			} else {
-				return ResponseEntity.badRequest().body("Refresh Token inválido ou expirado.");
-			}
-		} catch (Exception e) {
-			return ResponseEntity.badRequest().body("Refresh Token inválido ou expirado.");
-		}
+	/**
+	 * Termina a sessão do Refresh Token. Os tokens da sessão, incluindo os Access
+	 * Tokens, deixam de ser aceites.
+	 */
+	@PostMapping("/logout")
+	public ResponseEntity<Void> logout(@RequestBody RefreshRequest refreshRequest) {
+		refreshTokenService.encerrarSessao(refreshRequest.getRefreshToken());
+		return ResponseEntity.noContent().build();
 	}
 }
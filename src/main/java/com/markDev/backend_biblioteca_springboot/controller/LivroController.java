@@ -1,27 +1,62 @@
 package com.markDev.backend_biblioteca_springboot.controller;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.markDev.backend_biblioteca_springboot.dto.AtualizacaoLoteDTO;
 import com.markDev.backend_biblioteca_springboot.dto.BookSearchResultDTO; // <<< NOVO IMPORT
+import com.markDev.backend_biblioteca_springboot.dto.ContagemDTO;
+import com.markDev.backend_biblioteca_springboot.dto.EstatisticasDTO;
+import com.markDev.backend_biblioteca_springboot.dto.ExclusaoLoteDTO;
 import com.markDev.backend_biblioteca_springboot.dto.LivroDTO;
+import com.markDev.backend_biblioteca_springboot.dto.MudancasDTO;
+import com.markDev.backend_biblioteca_springboot.dto.PaginaDTO;
+import com.markDev.backend_biblioteca_springboot.dto.ResultadoLoteDTO;
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
 import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
+import com.markDev.backend_biblioteca_springboot.exception.PreCondicaoFalhouException;
+import com.markDev.backend_biblioteca_springboot.exception.RecursoNaoEncontradoException;
+import com.markDev.backend_biblioteca_springboot.exception.RequisicaoInvalidaException;
+import com.markDev.backend_biblioteca_springboot.mapper.LivroMapper;
+import com.markDev.backend_biblioteca_springboot.service.ArmazenamentoImagemService;
+import com.markDev.backend_biblioteca_springboot.service.ArmazenamentoImagemService.ArquivoImagem;
 import com.markDev.backend_biblioteca_springboot.service.GoogleBooksService;
 import com.markDev.backend_biblioteca_springboot.service.LivroService;
+import com.markDev.backend_biblioteca_springboot.service.MiniaturaService;
+import com.markDev.backend_biblioteca_springboot.service.VarianteImagem;
 
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 @RestController
@@ -31,33 +66,155 @@ public class LivroController {
 
 	private final LivroService livroService;
 	private final GoogleBooksService googleBooksService;
+	private final ArmazenamentoImagemService armazenamentoImagemService;
+	private final MiniaturaService miniaturaService;
+	private final LivroMapper livroMapper;
+	// As respostas com ETag podem ficar na cache do cliente, mas têm sempre de ser revalidadas.
+	private static final CacheControl SEM_CACHE = CacheControl.noCache().cachePrivate();
 
-	public LivroController(LivroService livroService, GoogleBooksService googleBooksService) {
+	private final ObjectReader leitorLote;
+
+	public LivroController(LivroService livroService, GoogleBooksService googleBooksService,
+			ArmazenamentoImagemService armazenamentoImagemService, MiniaturaService miniaturaService,
+			ObjectMapper objectMapper, LivroMapper livroMapper) {
 		this.livroService = livroService;
 		this.googleBooksService = googleBooksService;
+		this.armazenamentoImagemService = armazenamentoImagemService;
+		this.miniaturaService = miniaturaService;
+		this.livroMapper = livroMapper;
+		this.leitorLote = objectMapper.readerFor(LivroDTO.class);
 	}
 
+	/**
+	 * Lista a estante com um ETag forte da versão da estante. Um cliente que envie
+	 * esse ETag em {@code If-None-Match} recebe 304 sem que nenhum livro seja lido.
+	 */
 	@Operation(summary = "Lista todos os livros da estante")
 	@GetMapping
-	public ResponseEntity<List<LivroDTO>> listarTodos() {
+	public ResponseEntity<List<LivroDTO>> listarTodos(WebRequest request) {
+		String etag = "\"" + livroService.etagBiblioteca() + "\"";
+		if (request.checkNotModified(etag)) {
+			return null;
+		}
 		List<LivroDTO> livros = livroService.listarTodos();
-		return ResponseEntity.ok(livros);
+		return ResponseEntity.ok().eTag(etag).cacheControl(SEM_CACHE).body(livros);
+	}
+
+	/**
+	 * Sincronização incremental: devolve só o que mudou desde o cursor da
+	 * sincronização anterior. Sem alterações, a resposta é vazia e custa uma leitura.
+	 */
+	@Operation(summary = "Lista os livros criados, alterados ou excluídos desde um cursor de sincronização")
+	@GetMapping("/mudancas")
+	public ResponseEntity<MudancasDTO> listarMudancas(@RequestParam(name = "desde", required = false) String desde,
+			@RequestParam(name = "tamanho", required = false) Integer tamanho) {
+		return ResponseEntity.ok(livroService.listarMudancas(desde, tamanho));
+	}
+
+	/**
+	 * Estatísticas da estante para o painel, lidas do resumo mantido a cada escrita:
+	 * o custo não depende do número de livros.
+	 */
+	@Operation(summary = "Obtém as estatísticas da estante (totais, lidos, emprestados, páginas e décadas)")
+	@GetMapping("/estatisticas")
+	public ResponseEntity<EstatisticasDTO> estatisticas() {
+		return ResponseEntity.ok().cacheControl(SEM_CACHE).body(livroService.estatisticas());
+	}
+
+	@Operation(summary = "Recalcula as estatísticas da estante a partir dos livros")
+	@PostMapping("/estatisticas/recalcular")
+	public ResponseEntity<EstatisticasDTO> recalcularEstatisticas() {
+		return ResponseEntity.ok(livroService.recalcularEstatisticas());
+	}
+
+	/**
+	 * Obtém um livro, com a sua versão como ETag. Com {@code If-None-Match}, só a
+	 * versão é lida enquanto o livro não mudar.
+	 */
+	@Operation(summary = "Obtém um livro da estante")
+	@GetMapping("/{id}")
+	public ResponseEntity<LivroDTO> buscarPorId(@PathVariable Long id, WebRequest request) {
+		if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+				&& request.checkNotModified(etag(livroService.versaoLivro(id)))) {
+			return null;
+		}
+		LivroDTO livro = livroService.buscarPorId(id);
+		return ResponseEntity.ok().eTag(etag(livro.getVersao())).cacheControl(SEM_CACHE).body(livro);
+	}
+
+	@Operation(summary = "Lista os livros da estante por páginas, a partir de um cursor")
+	@GetMapping("/pagina")
+	public ResponseEntity<PaginaDTO<LivroDTO>> listarPagina(
+			@RequestParam(name = "ordenarPor", defaultValue = "titulo") String ordenarPor,
+			@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "tamanho", required = false) Integer tamanho) {
+		PaginaDTO<LivroDTO> pagina = livroService.listarPagina(ordenarPor, cursor, tamanho);
+		return ResponseEntity.ok(pagina);
 	}
 
 	@Operation(summary = "Insere um novo livro na estante")
 	@PostMapping
 	public ResponseEntity<LivroDTO> inserir(@Valid @RequestBody LivroDTO livroDTO) {
 		LivroEntity livroSalvo = livroService.inserir(livroDTO);
-		LivroDTO dtoDeRetorno = new LivroDTO(livroSalvo);
-		return ResponseEntity.status(HttpStatus.CREATED).body(dtoDeRetorno);
+		LivroDTO dtoDeRetorno = livroMapper.paraDTO(livroSalvo);
+		return ResponseEntity.status(HttpStatus.CREATED).eTag(etag(livroSalvo.getVersao())).body(dtoDeRetorno);
+	}
+
+	/**
+	 * Insere vários livros de uma vez. O corpo pode ser uma lista JSON ou NDJSON (um
+	 * livro por linha); em ambos os casos é lido em streaming, um livro de cada vez,
+	 * sem carregar o pedido inteiro em memória. Responde com o resultado de cada item.
+	 */
+	@Operation(summary = "Insere vários livros na estante (lista JSON ou NDJSON)")
+	@PostMapping(value = "/lote", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+	public ResponseEntity<ResultadoLoteDTO> inserirLote(HttpServletRequest request) throws IOException {
+		MappingIterator<LivroDTO> itens;
+		try {
+			itens = leitorLote.readValues(request.getInputStream());
+		} catch (JsonProcessingException e) {
+			throw new RequisicaoInvalidaException("O corpo do lote não é JSON válido: " + e.getOriginalMessage());
+		}
+		try (itens) {
+			return ResponseEntity.ok(livroService.inserirLote(itens));
+		}
+	}
+
+	@Operation(summary = "Altera o estado de leitura e/ou de empréstimo de vários livros (por ids e/ou filtro)")
+	@PostMapping("/lote/atualizar")
+	public ResponseEntity<ContagemDTO> atualizarLote(@Valid @RequestBody AtualizacaoLoteDTO atualizacao) {
+		return ResponseEntity.ok(new ContagemDTO(livroService.atualizarEmLote(atualizacao)));
 	}
 
+	@Operation(summary = "Exclui vários livros da estante (por ids e/ou filtro)")
+	@PostMapping("/lote/excluir")
+	public ResponseEntity<ContagemDTO> excluirLote(@RequestBody ExclusaoLoteDTO exclusao) {
+		return ResponseEntity.ok(new ContagemDTO(livroService.excluirEmLote(exclusao)));
+	}
+
+	/**
+	 * Altera um livro. Com {@code If-Match}, a alteração só é feita se o livro
+	 * ainda estiver nessa versão; senão responde 412.
+	 */
 	@Operation(summary = "Altera um livro existente")
 	@PutMapping("/{id}")
-	public ResponseEntity<LivroDTO> alterar(@PathVariable Long id, @Valid @RequestBody LivroDTO livroDTO) {
-		LivroEntity livroAtualizado = livroService.alterar(id, livroDTO);
-		LivroDTO dtoDeRetorno = new LivroDTO(livroAtualizado);
-		return ResponseEntity.ok(dtoDeRetorno);
+	public ResponseEntity<LivroDTO> alterar(@PathVariable Long id, @Valid @RequestBody LivroDTO livroDTO,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		LivroEntity livroAtualizado = livroService.alterar(id, livroDTO, versaoEsperada(ifMatch));
+		LivroDTO dtoDeRetorno = livroMapper.paraDTO(livroAtualizado);
+		return ResponseEntity.ok().eTag(etag(livroAtualizado.getVersao())).body(dtoDeRetorno);
+	}
+
+	/**
+	 * Altera só os campos enviados (JSON Merge Patch). Ao contrário do PUT, um campo
+	 * omitido mantém o valor atual, e só as colunas alteradas são escritas. Aceita
+	 * {@code If-Match} como o PUT.
+	 */
+	@Operation(summary = "Altera parcialmente um livro (JSON Merge Patch)")
+	@PatchMapping(value = "/{id}", consumes = { "application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE })
+	public ResponseEntity<LivroDTO> alterarParcial(@PathVariable Long id, @RequestBody JsonNode patch,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		LivroEntity livroAtualizado = livroService.alterarParcial(id, patch, versaoEsperada(ifMatch));
+		return ResponseEntity.ok().eTag(etag(livroAtualizado.getVersao())).body(livroMapper.paraDTO(livroAtualizado));
 	}
 
 	@Operation(summary = "Exclui um livro da estante")
@@ -67,24 +224,144 @@ public class LivroController {
 		return ResponseEntity.noContent().build();
 	}
 
-	@Operation(summary = "Busca livros por título (na base de dados local)")
+	@Operation(summary = "Obtém a capa de um livro (tamanho: miniatura, media, detalhe ou original)")
+	@GetMapping("/{id}/capa")
+	public void capa(@PathVariable("id") Long id, @RequestParam(name = "v", required = false) String versao,
+			@RequestParam(name = "tamanho", required = false) String tamanho, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		enviarImagem(livroService.buscarCapa(id), VarianteImagem.porNome(tamanho), versao, request, response);
+	}
+
+	@Operation(summary = "Obtém a contracapa de um livro (tamanho: miniatura, media, detalhe ou original)")
+	@GetMapping("/{id}/contracapa")
+	public void contraCapa(@PathVariable("id") Long id, @RequestParam(name = "v", required = false) String versao,
+			@RequestParam(name = "tamanho", required = false) String tamanho, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		enviarImagem(livroService.buscarContraCapa(id), VarianteImagem.porNome(tamanho), versao, request, response);
+	}
+
+	@Operation(summary = "Busca livros por título, autor ou sinopse (na estante local), ignorando acentos")
 	@GetMapping("/buscar")
 	public ResponseEntity<List<LivroDTO>> buscarPorTitulo(@RequestParam String titulo) {
-		List<LivroDTO> livros = livroService.buscarPorTitulo(titulo);
+		List<LivroDTO> livros = livroService.buscar(titulo);
 		return ResponseEntity.ok(livros);
 	}
 
 	/**
 	 * <<< MÉTODO ALTERADO >>> O tipo de retorno agora é uma lista de DTOs de busca,
 	 * e não mais uma String. O Spring irá automaticamente converter esta lista para
-	 * um JSON.
+	 * um JSON. A resposta é assíncrona: a thread do pedido é libertada enquanto se
+	 * espera pela API externa. Se o pedido terminar antes (timeout ou ligação
+	 * fechada pelo cliente), a busca é cancelada.
 	 */
 	@Operation(summary = "Busca livros em uma API externa de forma segura")
 	@GetMapping("/busca-externa")
-	public ResponseEntity<List<BookSearchResultDTO>> buscarExterno(@RequestParam(required = false) String titulo,
-			@RequestParam(required = false) String autor) {
+	public DeferredResult<ResponseEntity<List<BookSearchResultDTO>>> buscarExterno(
+			@RequestParam(required = false) String titulo, @RequestParam(required = false) String autor) {
+
+		CompletableFuture<List<BookSearchResultDTO>> busca = googleBooksService.buscarLivrosExterno(titulo, autor);
+		DeferredResult<ResponseEntity<List<BookSearchResultDTO>>> resposta = new DeferredResult<>();
+		// Depois de a resposta sair não faz nada; antes disso, é quem esperava que desistiu.
+		resposta.onCompletion(() -> busca.cancel(true));
+		busca.whenComplete((resultados, erro) -> {
+			if (erro != null) {
+				resposta.setErrorResult(erro instanceof CompletionException && erro.getCause() != null
+						? erro.getCause() : erro);
+			} else {
+				resposta.setResult(ResponseEntity.ok(resultados));
+			}
+		});
+		return resposta;
+	}
+
+	private static String etag(long versao) {
+		return "\"" + versao + "\"";
+	}
+
+	/**
+	 * A versão pedida em {@code If-Match} (ex.: {@code "3"}), ou {@code null} se o
+	 * cabeçalho faltar ou for {@code *}. Um ETag fraco ou que não seja de um livro
+	 * nunca corresponde.
+	 */
+	private static Long versaoEsperada(String ifMatch) {
+		if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		String etag = ifMatch.trim();
+		if (etag.length() > 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+			try {
+				return Long.valueOf(etag.substring(1, etag.length() - 1));
+			} catch (NumberFormatException e) {
+				// Tratado abaixo como um ETag que não corresponde.
+			}
+		}
+		throw new PreCondicaoFalhouException("O ETag em If-Match não corresponde a nenhuma versão do livro: " + ifMatch);
+	}
+
+	/**
+	 * Envia uma imagem do armazenamento de ficheiros diretamente para a resposta.
+	 * O ETag forte é o hash do conteúdo; quando o pedido traz esse hash em
+	 * {@code ?v=}, o URL identifica um conteúdo que nunca muda e pode ficar em
+	 * cache como imutável. Suporta pedidos condicionais e um único intervalo em
+	 * {@code Range}. Se a variante pedida ainda não existir, envia o original sem
+	 * cache imutável e pede a sua geração em segundo plano, a não ser que esta já
+	 * tenha falhado para a mesma imagem.
+	 */
+	private void enviarImagem(ImagemEntity imagem, VarianteImagem variante, String versao,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (!armazenamentoImagemService.existe(imagem.getHash())) {
+			throw new RecursoNaoEncontradoException("Ficheiro da imagem " + imagem.getId() + " não encontrado.");
+		}
+		ArquivoImagem arquivo = armazenamentoImagemService.localizar(imagem, variante);
+		if (!arquivo.variantePronta() && !miniaturaService.falhou(imagem.getHash())) {
+			miniaturaService.agendar(imagem.getHash());
+		}
+		String etag = "\"" + arquivo.etag() + "\"";
+		long total = arquivo.tamanho();
+		boolean imutavel = arquivo.variantePronta() && imagem.getHash().equals(versao);
+
+		response.setHeader(HttpHeaders.ETAG, etag);
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		response.setHeader(HttpHeaders.CACHE_CONTROL,
+				imutavel ? "private, max-age=31536000, immutable" : "private, no-cache");
+
+		String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+		if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(etag))) {
+			response.setStatus(HttpStatus.NOT_MODIFIED.value());
+			return;
+		}
+
+		long inicio = 0;
+		long comprimento = total;
+		String range = request.getHeader(HttpHeaders.RANGE);
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (range != null && (ifRange == null || ifRange.equals(etag))) {
+			List<HttpRange> intervalos;
+			try {
+				intervalos = HttpRange.parseRanges(range);
+			} catch (IllegalArgumentException e) {
+				intervalos = List.of();
+			}
+			// Vários intervalos (multipart/byteranges) não são suportados: responde com a imagem inteira.
+			if (intervalos.size() == 1) {
+				inicio = intervalos.get(0).getRangeStart(total);
+				comprimento = intervalos.get(0).getRangeEnd(total) - inicio + 1;
+				if (inicio >= total || comprimento <= 0) {
+					response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + total);
+					response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+					return;
+				}
+				response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE,
+						"bytes " + inicio + "-" + (inicio + comprimento - 1) + "/" + total);
+			}
+		}
 
-		List<BookSearchResultDTO> resultados = googleBooksService.buscarLivrosExterno(titulo, autor);
-		return ResponseEntity.ok(resultados);
+		response.setContentType(arquivo.tipoConteudo());
+		response.setContentLengthLong(comprimento);
+		if (!"HEAD".equals(request.getMethod())) {
+			armazenamentoImagemService.transferir(arquivo.caminho(), inicio, comprimento,
+					Channels.newChannel(response.getOutputStream()));
+		}
 	}
 }
@@ -0,0 +1,37 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Altera o estado de leitura e/ou de empréstimo de vários livros de uma vez. Os
+ * livros são escolhidos pelos ids, pelo filtro ou por ambos; os campos a
+ * alterar que ficarem nulos não são mexidos.
+ */
+@Schema(description = "Alteração em lote do estado de leitura e de empréstimo")
+@Getter
+@Setter
+@NoArgsConstructor
+public class AtualizacaoLoteDTO {
+
+	@Schema(description = "IDs dos livros a alterar")
+	private List<Long> ids;
+
+	@Schema(description = "Filtro dos livros a alterar")
+	private FiltroLivrosDTO filtro;
+
+	@Schema(description = "Novo estado de leitura")
+	private Boolean lido;
+
+	@Schema(description = "Novo estado de empréstimo; false limpa também o emprestadoPara")
+	private Boolean emprestado;
+
+	@Schema(description = "A quem os livros foram emprestados; só com emprestado=true", example = "Maria")
+	@Size(max = 255, message = "O emprestadoPara não pode exceder 255 caracteres.")
+	private String emprestadoPara;
+}
@@ -0,0 +1,19 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+/**
+ * O número de livros afetados por uma operação em lote.
+ */
+@Schema(description = "Número de livros afetados por uma operação em lote")
+@Getter
+public class ContagemDTO {
+
+	@Schema(description = "Livros afetados", example = "12")
+	private final long afetados;
+
+	public ContagemDTO(long afetados) {
+		this.afetados = afetados;
+	}
+}
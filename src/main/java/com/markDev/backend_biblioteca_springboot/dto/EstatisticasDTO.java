@@ -0,0 +1,51 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+/**
+ * Estatísticas da estante do utilizador, para o painel.
+ */
+@Schema(description = "Estatísticas da estante do utilizador")
+@Getter
+public class EstatisticasDTO {
+
+	@Schema(description = "Número total de livros")
+	private final long total;
+
+	@Schema(description = "Livros lidos")
+	private final long lidos;
+
+	@Schema(description = "Livros por ler")
+	private final long porLer;
+
+	@Schema(description = "Livros emprestados")
+	private final long emprestados;
+
+	@Schema(description = "Soma do número de páginas dos livros lidos")
+	private final long paginasLidas;
+
+	@Schema(description = "Livros sem ano de publicação (fora de porDecada)")
+	private final long semAno;
+
+	@Schema(description = "Livros por década de publicação, da mais antiga para a mais recente")
+	private final List<Decada> porDecada;
+
+	public EstatisticasDTO(long total, long lidos, long emprestados, long paginasLidas, long semAno,
+			List<Decada> porDecada) {
+		this.total = total;
+		this.lidos = lidos;
+		this.porLer = total - lidos;
+		this.emprestados = emprestados;
+		this.paginasLidas = paginasLidas;
+		this.semAno = semAno;
+		this.porDecada = porDecada;
+	}
+
+	@Schema(description = "Número de livros de uma década")
+	public record Decada(@Schema(description = "Primeiro ano da década", example = "1990") int decada,
+			@Schema(description = "Número de livros") long total) {
+	}
+}
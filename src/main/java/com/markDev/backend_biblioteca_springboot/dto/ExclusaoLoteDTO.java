@@ -0,0 +1,25 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Exclui vários livros de uma vez, escolhidos pelos ids, pelo filtro ou por
+ * ambos.
+ */
+@Schema(description = "Exclusão em lote de livros")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ExclusaoLoteDTO {
+
+	@Schema(description = "IDs dos livros a excluir")
+	private List<Long> ids;
+
+	@Schema(description = "Filtro dos livros a excluir")
+	private FiltroLivrosDTO filtro;
+}
@@ -0,0 +1,33 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Filtro das operações em lote. Só os campos preenchidos entram no filtro, e
+ * todos têm de corresponder.
+ */
+@Schema(description = "Filtro de livros para as operações em lote")
+@Getter
+@Setter
+@NoArgsConstructor
+public class FiltroLivrosDTO {
+
+	@Schema(description = "Apenas livros lidos (true) ou por ler (false)")
+	private Boolean lido;
+
+	@Schema(description = "Apenas livros emprestados (true) ou não emprestados (false)")
+	private Boolean emprestado;
+
+	@Schema(description = "Apenas livros deste autor (sem diferenciar maiúsculas)", example = "J.R.R. Tolkien")
+	private String autor;
+
+	@Schema(description = "Apenas livros deste ano", example = "2017")
+	private Integer ano;
+
+	public boolean isVazio() {
+		return lido == null && emprestado == null && autor == null && ano == null;
+	}
+}
@@ -0,0 +1,46 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+/**
+ * Referência leve a uma imagem de um livro. As listagens devolvem apenas este
+ * envelope; o conteúdo é obtido à parte pelo URL indicado.
+ */
+@Schema(description = "Referência a uma imagem do livro, sem o seu conteúdo")
+@Getter
+public class ImagemRefDTO {
+
+	@Schema(description = "Identificador da imagem", example = "10")
+	private final Long id;
+
+	@Schema(description = "Endereço de onde a imagem pode ser descarregada; muda sempre que o conteúdo muda. Acrescente &tamanho=miniatura, media ou detalhe para obter uma versão reduzida", example = "/api/livros/1/capa?v=9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+	private final String url;
+
+	@Schema(description = "Tamanho da imagem em bytes", example = "84213")
+	private final long tamanho;
+
+	public ImagemRefDTO(Long id, String url, long tamanho) {
+		this.id = id;
+		this.url = url;
+		this.tamanho = tamanho;
+	}
+
+	/**
+	 * Cria a referência para a imagem de um livro, ou devolve {@code null} se o
+	 * livro não tiver essa imagem.
+	 *
+	 * @param livroId  O ID do livro.
+	 * @param recurso  O nome do recurso no URL ("capa" ou "contracapa").
+	 * @param imagemId O ID da imagem, ou {@code null}.
+	 * @param tamanho  O tamanho da imagem em bytes.
+	 * @param hash     O hash do conteúdo, que versiona o URL para permitir cache imutável.
+	 */
+	public static ImagemRefDTO de(Long livroId, String recurso, Long imagemId, Long tamanho, String hash) {
+		if (imagemId == null) {
+			return null;
+		}
+		return new ImagemRefDTO(imagemId, "/api/livros/" + livroId + "/" + recurso + "?v=" + hash,
+				tamanho != null ? tamanho : 0L);
+	}
+}
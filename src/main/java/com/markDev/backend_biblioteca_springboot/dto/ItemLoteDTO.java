@@ -0,0 +1,53 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+/**
+ * O resultado de um item de uma inserção em lote, na posição em que foi
+ * enviado.
+ */
+@Schema(description = "Resultado de um item da inserção em lote")
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItemLoteDTO {
+
+	public enum Estado {
+		CRIADO, INVALIDO, ERRO
+	}
+
+	@Schema(description = "Posição do item no pedido, a começar em 0", example = "0")
+	private final int indice;
+
+	@Schema(description = "Resultado do item")
+	private final Estado estado;
+
+	@Schema(description = "ID do livro criado", example = "1")
+	private final Long id;
+
+	@Schema(description = "Motivos da recusa do item")
+	private final List<String> erros;
+
+	private ItemLoteDTO(int indice, Estado estado, Long id, List<String> erros) {
+		this.indice = indice;
+		this.estado = estado;
+		this.id = id;
+		this.erros = erros;
+	}
+
+	public static ItemLoteDTO criado(int indice, Long id) {
+		return new ItemLoteDTO(indice, Estado.CRIADO, id, null);
+	}
+
+	public static ItemLoteDTO invalido(int indice, List<String> erros) {
+		return new ItemLoteDTO(indice, Estado.INVALIDO, null, erros);
+	}
+
+	public static ItemLoteDTO erro(int indice, String erro) {
+		return new ItemLoteDTO(indice, Estado.ERRO, null, List.of(erro));
+	}
+}
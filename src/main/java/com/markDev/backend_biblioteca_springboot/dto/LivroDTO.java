@@ -1,7 +1,6 @@
 package com.markDev.backend_biblioteca_springboot.dto;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -9,7 +8,6 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.beans.BeanUtils;
 
 @Schema(description = "Representa os dados de um livro para transferência entre o cliente e a API")
 @Getter
@@ -20,6 +18,10 @@ public class LivroDTO {
 	@Schema(description = "Identificador único do livro", example = "1")
 	private Long id;
 
+	@Schema(description = "Versão do livro; é o ETag usado em If-Match", example = "3", accessMode = Schema.AccessMode.READ_ONLY)
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private Long versao;
+
 	@Schema(description = "Título do livro", example = "O Senhor dos Anéis: Volume único")
 	@NotBlank(message = "O título não pode ser vazio ou nulo.")
 	@Size(max = 255, message = "O título não pode exceder 255 caracteres.")
@@ -48,20 +50,20 @@ public class LivroDTO {
 
 	private String emprestadoPara;
 
+	// As imagens só são aceites na entrada; nas respostas seguem apenas as referências abaixo.
+	@Schema(description = "Conteúdo da capa (apenas na criação/alteração)", accessMode = Schema.AccessMode.WRITE_ONLY)
+	@JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
 	private byte[] capa;
 
-	@JsonIgnore
+	@Schema(description = "Conteúdo da contracapa (apenas na criação/alteração)", accessMode = Schema.AccessMode.WRITE_ONLY)
+	@JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
 	private byte[] contraCapa;
 
-	/**
-	 * Construtor para converter facilmente uma Entidade em um DTO. É chamado no
-	 * Controller para preparar a resposta para o frontend.
-	 *
-	 * @param entidade O objeto LivroEntity vindo do banco de dados.
-	 */
-	public LivroDTO(LivroEntity entidade) {
-		// Copia todas as propriedades com nomes correspondentes da entidade para este
-		// DTO.
-		BeanUtils.copyProperties(entidade, this);
-	}
+	@Schema(description = "Referência à capa do livro", accessMode = Schema.AccessMode.READ_ONLY)
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private ImagemRefDTO capaRef;
+
+	@Schema(description = "Referência à contracapa do livro", accessMode = Schema.AccessMode.READ_ONLY)
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private ImagemRefDTO contraCapaRef;
 }
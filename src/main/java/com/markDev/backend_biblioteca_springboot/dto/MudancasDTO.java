@@ -0,0 +1,41 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+/**
+ * As alterações da estante desde um cursor. O cliente aplica os livros
+ * alterados e remove os excluídos, e guarda o {@code cursor} para a próxima
+ * sincronização; enquanto {@code temMais} for verdadeiro, pede logo a página
+ * seguinte com esse cursor.
+ */
+@Schema(description = "Alterações da estante desde um cursor de sincronização")
+@Getter
+public class MudancasDTO {
+
+	@Schema(description = "Livros criados ou alterados desde o cursor")
+	private final List<LivroDTO> alterados;
+
+	@Schema(description = "IDs dos livros excluídos desde o cursor")
+	private final List<Long> excluidos;
+
+	@Schema(description = "Cursor a enviar em ?desde= na próxima sincronização")
+	private final String cursor;
+
+	@Schema(description = "Há mais alterações: pedir de novo já com o cursor devolvido")
+	private final boolean temMais;
+
+	@Schema(description = "O cursor é anterior às exclusões já apagadas: o cliente tem de recomeçar sem ?desde=")
+	private final boolean recomecar;
+
+	public MudancasDTO(List<LivroDTO> alterados, List<Long> excluidos, String cursor, boolean temMais,
+			boolean recomecar) {
+		this.alterados = alterados;
+		this.excluidos = excluidos;
+		this.cursor = cursor;
+		this.temMais = temMais;
+		this.recomecar = recomecar;
+	}
+}
@@ -0,0 +1,26 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+/**
+ * Uma página de resultados obtida por cursor. Para ler a página seguinte o
+ * cliente reenvia o {@code proximoCursor}; quando este é nulo não há mais dados.
+ */
+@Schema(description = "Página de resultados com cursor para a página seguinte")
+@Getter
+public class PaginaDTO<T> {
+
+	@Schema(description = "Itens desta página")
+	private final List<T> itens;
+
+	@Schema(description = "Cursor opaco para pedir a página seguinte, ou nulo na última página")
+	private final String proximoCursor;
+
+	public PaginaDTO(List<T> itens, String proximoCursor) {
+		this.itens = itens;
+		this.proximoCursor = proximoCursor;
+	}
+}
@@ -0,0 +1,30 @@
+package com.markDev.backend_biblioteca_springboot.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+
+/**
+ * O resultado de uma inserção em lote: os totais e o resultado de cada item,
+ * pela ordem do pedido.
+ */
+@Schema(description = "Resultado da inserção em lote")
+@Getter
+public class ResultadoLoteDTO {
+
+	@Schema(description = "Número de livros criados")
+	private final int criados;
+
+	@Schema(description = "Número de itens recusados (inválidos ou com erro)")
+	private final int recusados;
+
+	@Schema(description = "Resultado de cada item")
+	private final List<ItemLoteDTO> itens;
+
+	public ResultadoLoteDTO(List<ItemLoteDTO> itens) {
+		this.itens = itens;
+		this.criados = (int) itens.stream().filter(item -> item.getEstado() == ItemLoteDTO.Estado.CRIADO).count();
+		this.recusados = itens.size() - criados;
+	}
+}
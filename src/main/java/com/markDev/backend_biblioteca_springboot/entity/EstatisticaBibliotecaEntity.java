@@ -0,0 +1,47 @@
+package com.markDev.backend_biblioteca_springboot.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Resumo da estante de um utilizador, mantido a cada escrita na mesma transação,
+ * para que as estatísticas se leiam numa só linha qualquer que seja o tamanho da
+ * estante. A distribuição por década fica em {@link EstatisticaDecadaEntity}.
+ * Um utilizador sem linha ainda não tem o resumo calculado: é calculado a partir
+ * de agregados SQL na primeira leitura.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "MK_ESTATISTICA_BIBLIOTECA")
+public class EstatisticaBibliotecaEntity {
+
+	@Id
+	private Long userId;
+
+	@Column(nullable = false)
+	private long total;
+
+	@Column(nullable = false)
+	private long lidos;
+
+	@Column(nullable = false)
+	private long emprestados;
+
+	// Soma do número de páginas dos livros lidos.
+	@Column(nullable = false)
+	private long paginasLidas;
+
+	@Column(nullable = false)
+	private long semAno;
+
+	public EstatisticaBibliotecaEntity(Long userId) {
+		this.userId = userId;
+	}
+}
@@ -0,0 +1,47 @@
+package com.markDev.backend_biblioteca_springboot.entity;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Número de livros de um utilizador publicados numa década (ex.: 1990 para os
+ * anos 1990 a 1999). Mantido junto com {@link EstatisticaBibliotecaEntity}.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(EstatisticaDecadaEntity.Chave.class)
+@Table(name = "MK_ESTATISTICA_DECADA")
+public class EstatisticaDecadaEntity {
+
+	@Id
+	private Long userId;
+
+	@Id
+	private int decada;
+
+	@Column(nullable = false)
+	private long total;
+
+	@Getter
+	@Setter
+	@NoArgsConstructor
+	@AllArgsConstructor
+	@EqualsAndHashCode
+	public static class Chave implements Serializable {
+		private Long userId;
+		private int decada;
+	}
+}
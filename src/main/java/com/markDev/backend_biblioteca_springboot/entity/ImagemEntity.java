@@ -0,0 +1,50 @@
+package com.markDev.backend_biblioteca_springboot.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Imagem (capa ou contracapa) de um livro. A tabela guarda apenas os metadados:
+ * os bytes ficam no armazenamento de ficheiros endereçado pelo SHA-256 do
+ * conteúdo, partilhado entre todos os utilizadores. O livro aponta para esta
+ * entidade por uma associação LAZY.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "MK_LIVRO_IMAGEM", indexes = @Index(name = "idx_livro_imagem_hash", columnList = "hash"))
+public class ImagemEntity {
+
+	// Sequência com blocos, como em LivroEntity, para que os INSERTs das capas também vão em lotes.
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "livro_imagem_seq")
+	@SequenceGenerator(name = "livro_imagem_seq", sequenceName = "MK_LIVRO_IMAGEM_SEQ",
+			allocationSize = LivroEntity.BLOCO_IDS)
+	private Long id;
+
+	// SHA-256 do conteúdo em hexadecimal: é a chave do ficheiro e o ETag da imagem.
+	@Column(length = 64, nullable = false)
+	private String hash;
+
+	@Column(nullable = false)
+	private long tamanho;
+
+	@Column(nullable = false)
+	private String tipoConteudo;
+
+	public ImagemEntity(String hash, long tamanho, String tipoConteudo) {
+		this.hash = hash;
+		this.tamanho = tamanho;
+		this.tipoConteudo = tipoConteudo;
+	}
+}
@@ -1,17 +1,26 @@
 package com.markDev.backend_biblioteca_springboot.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.markDev.backend_biblioteca_springboot.config.CacheSegundoNivelConfig;
 
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -20,18 +29,43 @@ import lombok.Setter;
 @Getter
 @Setter
 @NoArgsConstructor // O construtor sem argumentos do Lombok é suficiente
-@Table(name = "MK_LIVRO")
+// O UPDATE leva só as colunas alteradas, e não a linha inteira (ex.: marcar como lido muda uma coluna).
+@DynamicUpdate
+// Na cache de segundo nível: a linha não tem colunas grandes (as imagens estão em MK_LIVRO_IMAGEM e em disco).
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheSegundoNivelConfig.REGIAO_LIVROS)
+// Índices usados pela paginação por cursor: (utilizador, coluna de ordenação, id).
+// A ordenação por id usa o índice da chave estrangeira user_id, que no InnoDB já inclui o id.
+@Table(name = "MK_LIVRO", indexes = {
+		@Index(name = "idx_livro_user_titulo", columnList = "user_id, titulo, id"),
+		@Index(name = "idx_livro_user_autor", columnList = "user_id, autor, id"),
+		@Index(name = "idx_livro_user_ano", columnList = "user_id, ano, id"),
+		// Sincronização incremental: as alterações de um utilizador depois de uma revisão.
+		@Index(name = "idx_livro_user_revisao", columnList = "user_id, revisao, id") })
 public class LivroEntity {
 
+	public static final int BLOCO_IDS = 50;
+
 	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "user_id", nullable = false)
 	@JsonIgnore
 	private UserEntity user;
 
+	// Sequência com blocos de 50 ids (emulada numa tabela no MySQL): ao contrário de IDENTITY,
+	// o Hibernate conhece o id antes do INSERT e pode agrupar os INSERTs em lotes JDBC.
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "livro_seq")
+	@SequenceGenerator(name = "livro_seq", sequenceName = "MK_LIVRO_SEQ", allocationSize = LivroEntity.BLOCO_IDS)
 	private Long id;
 
+	// Controlo de concorrência otimista; é também o ETag do livro.
+	@Version
+	@Column(nullable = false)
+	private long versao;
+
+	// Versão da estante na última alteração do livro (ver VersaoBibliotecaEntity).
+	@Column(nullable = false)
+	private long revisao;
+
 	@Column(nullable = false)
 	private String titulo;
 
@@ -56,12 +90,13 @@ public class LivroEntity {
 	@Column(nullable = true)
 	private Integer numeroPaginas;
 
-	@Lob
-	@Column(columnDefinition = "LONGBLOB") // Boa prática para blobs
-	private byte[] capa;
+	// As imagens ficam em MK_LIVRO_IMAGEM; aqui só existe a chave estrangeira.
+	@OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+	@JoinColumn(name = "capa_id")
+	private ImagemEntity capa;
 
-	@Lob
-	@Column(columnDefinition = "LONGBLOB") // Boa prática para blobs
-	private byte[] contraCapa;
+	@OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+	@JoinColumn(name = "contra_capa_id")
+	private ImagemEntity contraCapa;
 
 }
\ No newline at end of file
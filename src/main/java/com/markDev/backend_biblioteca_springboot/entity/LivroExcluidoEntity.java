@@ -0,0 +1,41 @@
+package com.markDev.backend_biblioteca_springboot.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Registo ("tombstone") de um livro excluído, para que a sincronização
+ * incremental possa avisar os clientes. Guarda a revisão da estante em que a
+ * exclusão aconteceu. Os registos antigos são apagados periodicamente; um
+ * cliente com um cursor anterior a essa limpeza tem de recomeçar a
+ * sincronização.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "MK_LIVRO_EXCLUIDO", indexes = {
+		@Index(name = "idx_livro_excluido_user_revisao", columnList = "userId, revisao, livroId"),
+		@Index(name = "idx_livro_excluido_em", columnList = "excluidoEm") })
+public class LivroExcluidoEntity {
+
+	@Id
+	private Long livroId;
+
+	@Column(nullable = false)
+	private Long userId;
+
+	@Column(nullable = false)
+	private long revisao;
+
+	@Column(nullable = false)
+	private Instant excluidoEm;
+}
@@ -0,0 +1,57 @@
+package com.markDev.backend_biblioteca_springboot.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Refresh token emitido. Só o identificador (jti) é guardado, nunca o token.
+ * Os tokens de uma mesma sessão formam uma família: cada renovação revoga o
+ * token usado e emite outro da mesma família. Se um token já revogado voltar a
+ * ser apresentado, alguém ficou com uma cópia, e a família inteira é revogada.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "MK_REFRESH_TOKEN", indexes = {
+		@Index(name = "idx_refresh_token_jti", columnList = "jti", unique = true),
+		@Index(name = "idx_refresh_token_familia", columnList = "familia"),
+		@Index(name = "idx_refresh_token_expira_em", columnList = "expiraEm") })
+public class RefreshTokenEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(length = 36, nullable = false)
+	private String jti;
+
+	@Column(length = 36, nullable = false)
+	private String familia;
+
+	@Column(nullable = false)
+	private Long userId;
+
+	@Column(nullable = false)
+	private Instant expiraEm;
+
+	@Column(nullable = false)
+	private boolean revogado;
+
+	public RefreshTokenEntity(String jti, String familia, Long userId, Instant expiraEm) {
+		this.jti = jti;
+		this.familia = familia;
+		this.userId = userId;
+		this.expiraEm = expiraEm;
+	}
+}
@@ -3,6 +3,11 @@ package com.markDev.backend_biblioteca_springboot.entity;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.markDev.backend_biblioteca_springboot.config.CacheSegundoNivelConfig;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -16,6 +21,7 @@ import lombok.Setter;
 
 @Entity
 @Table(name = "usuarios")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheSegundoNivelConfig.REGIAO_USUARIOS)
 @Getter
 @Setter
 public class UserEntity {
@@ -0,0 +1,34 @@
+package com.markDev.backend_biblioteca_springboot.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Versão da estante de um utilizador, incrementada em cada inserção, alteração
+ * ou exclusão de livros. É o ETag da listagem: um cliente com a versão atual
+ * recebe 304 sem que nenhum livro seja lido. É também a revisão gravada em cada
+ * livro alterado e em cada exclusão, que ordena a sincronização incremental.
+ * Um utilizador sem linha ainda não alterou a estante e está na versão 0.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "MK_VERSAO_BIBLIOTECA")
+public class VersaoBibliotecaEntity {
+
+	@Id
+	private Long userId;
+
+	@Column(nullable = false)
+	private long versao;
+
+	// Maior revisão das exclusões já apagadas: um cursor anterior pode ter perdido exclusões.
+	@Column(nullable = false)
+	private long horizonte;
+}
@@ -0,0 +1,10 @@
+package com.markDev.backend_biblioteca_springboot.event;
+
+/**
+ * Publicado quando uma nova imagem é associada a um livro. Os ouvintes só o
+ * recebem depois do commit, quando o ficheiro e a linha já são definitivos.
+ *
+ * @param hash O SHA-256 do conteúdo guardado.
+ */
+public record ImagemGuardadaEvent(String hash) {
+}
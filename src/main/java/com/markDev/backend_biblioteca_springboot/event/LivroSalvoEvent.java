@@ -0,0 +1,14 @@
+package com.markDev.backend_biblioteca_springboot.event;
+
+/**
+ * Publicado quando um livro é inserido ou alterado, com os campos de texto
+ * usados pela busca local. Os ouvintes tratam-no depois do commit.
+ *
+ * @param userId  O ID do dono do livro.
+ * @param livroId O ID do livro.
+ * @param titulo  O título do livro.
+ * @param autor   O autor do livro.
+ * @param sinopse A sinopse do livro (pode ser nula).
+ */
+public record LivroSalvoEvent(Long userId, Long livroId, String titulo, String autor, String sinopse) {
+}
@@ -0,0 +1,13 @@
+package com.markDev.backend_biblioteca_springboot.event;
+
+import java.util.Collection;
+
+/**
+ * Publicado quando um ou mais livros de um utilizador são excluídos. Os
+ * ouvintes tratam-no depois do commit.
+ *
+ * @param userId   O ID do dono dos livros.
+ * @param livroIds Os IDs dos livros excluídos.
+ */
+public record LivrosExcluidosEvent(Long userId, Collection<Long> livroIds) {
+}
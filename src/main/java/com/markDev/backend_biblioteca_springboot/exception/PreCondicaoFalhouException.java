@@ -0,0 +1,12 @@
+package com.markDev.backend_biblioteca_springboot.exception;
+
+/**
+ * O recurso mudou desde a versão indicada pelo cliente em {@code If-Match}.
+ */
+public class PreCondicaoFalhouException extends RuntimeException {
+
+	public PreCondicaoFalhouException(String mensagem) {
+		super(mensagem);
+	}
+
+}
@@ -0,0 +1,9 @@
+package com.markDev.backend_biblioteca_springboot.exception;
+
+public class RequisicaoInvalidaException extends RuntimeException {
+
+	public RequisicaoInvalidaException(String mensagem) {
+		super(mensagem);
+	}
+
+}
@@ -0,0 +1,13 @@
+package com.markDev.backend_biblioteca_springboot.exception;
+
+/**
+ * Refresh token inválido, expirado, revogado ou reutilizado. Responde com 400,
+ * como as outras requisições inválidas.
+ */
+public class TokenInvalidoException extends RequisicaoInvalidaException {
+
+	public TokenInvalidoException(String mensagem) {
+		super(mensagem);
+	}
+
+}
@@ -1,11 +1,14 @@
 package com.markDev.backend_biblioteca_springboot.handler;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import com.markDev.backend_biblioteca_springboot.exception.PreCondicaoFalhouException;
 import com.markDev.backend_biblioteca_springboot.exception.RecursoNaoEncontradoException;
+import com.markDev.backend_biblioteca_springboot.exception.RequisicaoInvalidaException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -15,6 +18,22 @@ public class GlobalExceptionHandler {
 	        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
 	    }
 
+	    @ExceptionHandler(RequisicaoInvalidaException.class)
+	    public ResponseEntity<String> handleBadRequest(RequisicaoInvalidaException ex) {
+	        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+	    }
+
+	    @ExceptionHandler(PreCondicaoFalhouException.class)
+	    public ResponseEntity<String> handlePreconditionFailed(PreCondicaoFalhouException ex) {
+	        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+	    }
+
+	    // Outro pedido alterou o mesmo livro entre a leitura e a escrita (@Version).
+	    @ExceptionHandler(OptimisticLockingFailureException.class)
+	    public ResponseEntity<String> handleConflict(OptimisticLockingFailureException ex) {
+	        return ResponseEntity.status(HttpStatus.CONFLICT).body("O livro foi alterado por outro pedido. Leia-o de novo e repita a alteração.");
+	    }
+
 	    @ExceptionHandler(Exception.class)
 	    public ResponseEntity<String> handleGeneric(Exception ex) {
 	        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erro interno: " + ex.getMessage());
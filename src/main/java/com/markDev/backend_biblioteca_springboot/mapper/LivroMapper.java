@@ -0,0 +1,82 @@
+package com.markDev.backend_biblioteca_springboot.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+
+import com.markDev.backend_biblioteca_springboot.dto.ImagemRefDTO;
+import com.markDev.backend_biblioteca_springboot.dto.LivroDTO;
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
+import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
+import com.markDev.backend_biblioteca_springboot.repository.projection.LivroResumo;
+
+/**
+ * Conversões entre {@link LivroEntity}, {@link LivroDTO} e a projeção
+ * {@link LivroResumo}, geradas pelo MapStruct na compilação como chamadas
+ * diretas aos getters e setters, sem reflexão.
+ * <p>
+ * Cada campo de destino tem de ser mapeado ou ignorado explicitamente: um campo
+ * novo num dos lados faz a compilação falhar até se decidir se é copiado. As
+ * imagens nunca são copiadas; nas respostas seguem só as referências
+ * ({@link ImagemRefDTO}), e na escrita são tratadas pelo serviço.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR,
+		imports = ImagemRefDTO.class)
+public interface LivroMapper {
+
+	/** O livro para as respostas, com as imagens só como referência. */
+	@Mapping(target = "capa", ignore = true)
+	@Mapping(target = "contraCapa", ignore = true)
+	@Mapping(target = "capaRef", expression = "java(referencia(entidade.getId(), \"capa\", entidade.getCapa()))")
+	@Mapping(target = "contraCapaRef", expression = "java(referencia(entidade.getId(), \"contracapa\", entidade.getContraCapa()))")
+	LivroDTO paraDTO(LivroEntity entidade);
+
+	/** O livro de uma listagem, a partir só das colunas lidas na projeção. */
+	@Mapping(target = "capa", ignore = true)
+	@Mapping(target = "contraCapa", ignore = true)
+	@Mapping(target = "capaRef", expression = "java(ImagemRefDTO.de(resumo.getId(), \"capa\", resumo.getCapaId(), resumo.getCapaTamanho(), resumo.getCapaHash()))")
+	@Mapping(target = "contraCapaRef", expression = "java(ImagemRefDTO.de(resumo.getId(), \"contracapa\", resumo.getContraCapaId(), resumo.getContraCapaTamanho(), resumo.getContraCapaHash()))")
+	LivroDTO paraDTO(LivroResumo resumo);
+
+	/**
+	 * Um livro novo com os campos editáveis do DTO. O id, a versão, a revisão, o
+	 * dono e as imagens ficam a cargo do serviço.
+	 */
+	@Mapping(target = "id", ignore = true)
+	@Mapping(target = "versao", ignore = true)
+	@Mapping(target = "revisao", ignore = true)
+	@Mapping(target = "user", ignore = true)
+	@Mapping(target = "capa", ignore = true)
+	@Mapping(target = "contraCapa", ignore = true)
+	LivroEntity paraEntidade(LivroDTO dto);
+
+	/**
+	 * Substitui os campos editáveis do livro pelos do DTO, incluindo os nulos
+	 * (semântica de PUT).
+	 */
+	@Mapping(target = "id", ignore = true)
+	@Mapping(target = "versao", ignore = true)
+	@Mapping(target = "revisao", ignore = true)
+	@Mapping(target = "user", ignore = true)
+	@Mapping(target = "capa", ignore = true)
+	@Mapping(target = "contraCapa", ignore = true)
+	void atualizar(LivroDTO dto, @MappingTarget LivroEntity entidade);
+
+	/**
+	 * Copia o estado atual do livro para um DTO sobre o qual se aplica um PATCH.
+	 * As imagens não são lidas (nem as referências, que carregariam as imagens).
+	 */
+	@Mapping(target = "id", ignore = true)
+	@Mapping(target = "capa", ignore = true)
+	@Mapping(target = "contraCapa", ignore = true)
+	@Mapping(target = "capaRef", ignore = true)
+	@Mapping(target = "contraCapaRef", ignore = true)
+	void atualizar(LivroEntity entidade, @MappingTarget LivroDTO dto);
+
+	default ImagemRefDTO referencia(Long livroId, String recurso, ImagemEntity imagem) {
+		return imagem == null ? null
+				: ImagemRefDTO.de(livroId, recurso, imagem.getId(), imagem.getTamanho(), imagem.getHash());
+	}
+}
@@ -0,0 +1,61 @@
+package com.markDev.backend_biblioteca_springboot.migracao;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Acerta as sequências de ids de MK_LIVRO e MK_LIVRO_IMAGEM, que antes usavam
+ * AUTO_INCREMENT. No MySQL cada sequência é uma tabela de uma linha
+ * ({@code next_val}) criada pelo ddl-auto, que começa em 1; sem este acerto os
+ * primeiros ids gerados colidiriam com os já existentes. O valor só é
+ * aumentado, nunca reduzido, por isso pode correr em todos os arranques. Corre
+ * antes da migração das capas antigas ({@link MigracaoCapasLegadas}), que
+ * grava as imagens com ids desta sequência.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class InicializacaoSequencias {
+
+	private static final Logger LOGGER = Logger.getLogger(InicializacaoSequencias.class.getName());
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+
+	public InicializacaoSequencias(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	@PostConstruct
+	public void inicializar() {
+		acertar("mk_livro_seq", "mk_livro");
+		acertar("mk_livro_imagem_seq", "mk_livro_imagem");
+	}
+
+	private void acertar(String sequencia, String tabela) {
+		transactionTemplate.executeWithoutResult(status -> {
+			Long maiorId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + tabela, Long.class);
+			// Com o otimizador pooled o valor lido é o fim do bloco; um bloco de folga cobre os dois casos.
+			long minimo = (maiorId == null ? 0 : maiorId) + 1 + LivroEntity.BLOCO_IDS;
+			Long atual = jdbcTemplate.query("SELECT next_val FROM " + sequencia + " FOR UPDATE",
+					rs -> rs.next() ? rs.getLong(1) : null);
+			if (atual == null) {
+				jdbcTemplate.update("INSERT INTO " + sequencia + " (next_val) VALUES (?)", minimo);
+			} else if (atual < minimo) {
+				jdbcTemplate.update("UPDATE " + sequencia + " SET next_val = ?", minimo);
+			} else {
+				return;
+			}
+			LOGGER.log(Level.INFO, "Sequência {0} acertada para {1}", new Object[] { sequencia, minimo });
+		});
+	}
+}
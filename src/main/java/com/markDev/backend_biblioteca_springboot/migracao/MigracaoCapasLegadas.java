@@ -0,0 +1,148 @@
+package com.markDev.backend_biblioteca_springboot.migracao;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
+import com.markDev.backend_biblioteca_springboot.service.ArmazenamentoImagemService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Migração única das imagens antigas para o armazenamento de ficheiros.
+ * <ul>
+ * <li>Na primeira versão as imagens eram colunas LONGBLOB de MK_LIVRO ("capa" e
+ * "contra_capa").</li>
+ * <li>Depois passaram para a coluna "conteudo" de MK_LIVRO_IMAGEM.</li>
+ * </ul>
+ * Como o ddl-auto=update não remove colunas, esta classe copia para disco os
+ * bytes que ainda estiverem nessas colunas e limpa-as, uma imagem por transação
+ * para não carregar a biblioteca inteira em memória. Corre antes de a aplicação
+ * aceitar pedidos, já que a coluna "conteudo" antiga era NOT NULL.
+ * <p>
+ * As imagens novas são gravadas pelo JPA, com o id da sequência de
+ * {@link ImagemEntity}: num banco vindo da primeira versão, a tabela
+ * MK_LIVRO_IMAGEM é criada pelo ddl-auto sem AUTO_INCREMENT. Por isso a
+ * migração corre depois do acerto das sequências ({@link InicializacaoSequencias}).
+ */
+@Component
+@DependsOn("inicializacaoSequencias")
+public class MigracaoCapasLegadas {
+
+	private static final Logger LOGGER = Logger.getLogger(MigracaoCapasLegadas.class.getName());
+	private static final int LOTE = 100;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final ArmazenamentoImagemService armazenamentoImagemService;
+	private final EntityManager entityManager;
+
+	public MigracaoCapasLegadas(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+			ArmazenamentoImagemService armazenamentoImagemService, EntityManager entityManager) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.armazenamentoImagemService = armazenamentoImagemService;
+		this.entityManager = entityManager;
+	}
+
+	@PostConstruct
+	public void migrar() {
+		migrarTabelaImagens();
+		migrarColunaLivro("capa", "capa_id");
+		migrarColunaLivro("contra_capa", "contra_capa_id");
+	}
+
+	private void migrarTabelaImagens() {
+		if (!colunaExiste("mk_livro_imagem", "conteudo")) {
+			return;
+		}
+		jdbcTemplate.execute("ALTER TABLE mk_livro_imagem MODIFY conteudo LONGBLOB NULL");
+		int migrados = 0;
+		List<Long> ids;
+		do {
+			ids = jdbcTemplate.queryForList(
+					"SELECT id FROM mk_livro_imagem WHERE conteudo IS NOT NULL LIMIT " + LOTE, Long.class);
+			for (Long id : ids) {
+				transactionTemplate.executeWithoutResult(status -> {
+					byte[] conteudo = jdbcTemplate.queryForObject("SELECT conteudo FROM mk_livro_imagem WHERE id = ?",
+							byte[].class, id);
+					String hash = armazenamentoImagemService.guardar(conteudo);
+					jdbcTemplate.update(
+							"UPDATE mk_livro_imagem SET hash = ?, tamanho = ?, tipo_conteudo = ?, conteudo = NULL WHERE id = ?",
+							hash, conteudo.length, ArmazenamentoImagemService.detectarTipo(conteudo), id);
+				});
+			}
+			migrados += ids.size();
+		} while (ids.size() == LOTE);
+
+		registar(migrados, "mk_livro_imagem.conteudo");
+	}
+
+	private void migrarColunaLivro(String colunaLegada, String colunaReferencia) {
+		if (!colunaExiste("mk_livro", colunaLegada)) {
+			return;
+		}
+		int migrados = 0;
+		List<Long> ids;
+		do {
+			ids = jdbcTemplate.queryForList("SELECT id FROM mk_livro WHERE " + colunaLegada + " IS NOT NULL AND "
+					+ colunaReferencia + " IS NULL LIMIT " + LOTE, Long.class);
+			for (Long id : ids) {
+				transactionTemplate.executeWithoutResult(status -> migrarLivro(id, colunaLegada, colunaReferencia));
+			}
+			migrados += ids.size();
+		} while (ids.size() == LOTE);
+
+		registar(migrados, "mk_livro." + colunaLegada);
+	}
+
+	private void migrarLivro(Long id, String colunaLegada, String colunaReferencia) {
+		byte[] conteudo = jdbcTemplate.queryForObject("SELECT " + colunaLegada + " FROM mk_livro WHERE id = ?",
+				byte[].class, id);
+		if (conteudo == null) {
+			return;
+		}
+		String hash = armazenamentoImagemService.guardar(conteudo);
+		ImagemEntity imagem = new ImagemEntity(hash, conteudo.length, ArmazenamentoImagemService.detectarTipo(conteudo));
+		entityManager.persist(imagem);
+		// A linha da imagem tem de existir antes de o livro apontar para ela (chave estrangeira).
+		entityManager.flush();
+		entityManager.detach(imagem);
+		jdbcTemplate.update("UPDATE mk_livro SET " + colunaReferencia + " = ?, " + colunaLegada + " = NULL WHERE id = ?",
+				imagem.getId(), id);
+	}
+
+	private void registar(int migrados, String origem) {
+		if (migrados > 0) {
+			LOGGER.log(Level.INFO, "Migradas {0} imagens de {1} para o armazenamento de ficheiros",
+					new Object[] { migrados, origem });
+		}
+	}
+
+	private boolean colunaExiste(String tabela, String coluna) {
+		return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+			DatabaseMetaData metaData = con.getMetaData();
+			// O nome pode estar guardado em minúsculas (MySQL) ou maiúsculas (outros bancos).
+			for (String nomeTabela : new String[] { tabela, tabela.toUpperCase() }) {
+				for (String nomeColuna : new String[] { coluna, coluna.toUpperCase() }) {
+					try (ResultSet rs = metaData.getColumns(con.getCatalog(), null, nomeTabela, nomeColuna)) {
+						if (rs.next()) {
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}));
+	}
+}
@@ -0,0 +1,42 @@
+package com.markDev.backend_biblioteca_springboot.repository;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import com.markDev.backend_biblioteca_springboot.entity.EstatisticaBibliotecaEntity;
+
+import jakarta.persistence.QueryHint;
+
+public interface EstatisticaBibliotecaRepository extends JpaRepository<EstatisticaBibliotecaEntity, Long> {
+
+	/**
+	 * Soma uma variação ao resumo do utilizador numa só instrução.
+	 *
+	 * @return 1, ou 0 se o resumo ainda não foi calculado (e será na primeira leitura).
+	 */
+	@Modifying
+	@Query("update EstatisticaBibliotecaEntity e set e.total = e.total + :total, e.lidos = e.lidos + :lidos, "
+			+ "e.emprestados = e.emprestados + :emprestados, e.paginasLidas = e.paginasLidas + :paginasLidas, "
+			+ "e.semAno = e.semAno + :semAno where e.userId = :userId")
+	int somar(@Param("userId") Long userId, @Param("total") long total, @Param("lidos") long lidos,
+			@Param("emprestados") long emprestados, @Param("paginasLidas") long paginasLidas,
+			@Param("semAno") long semAno);
+
+	/**
+	 * Grava o resumo calculado do utilizador, criando a linha se faltar. Uma instrução
+	 * só, para que dois recálculos seguidos não tentem os dois inserir a linha.
+	 */
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "mk_estatistica_biblioteca"))
+	@Query(value = "insert into mk_estatistica_biblioteca (user_id, total, lidos, emprestados, paginas_lidas, sem_ano) "
+			+ "values (:userId, :total, :lidos, :emprestados, :paginasLidas, :semAno) "
+			+ "on duplicate key update total = :total, lidos = :lidos, emprestados = :emprestados, "
+			+ "paginas_lidas = :paginasLidas, sem_ano = :semAno", nativeQuery = true)
+	int gravar(@Param("userId") Long userId, @Param("total") long total, @Param("lidos") long lidos,
+			@Param("emprestados") long emprestados, @Param("paginasLidas") long paginasLidas,
+			@Param("semAno") long semAno);
+}
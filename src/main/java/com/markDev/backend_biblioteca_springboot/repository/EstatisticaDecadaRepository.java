@@ -0,0 +1,32 @@
+package com.markDev.backend_biblioteca_springboot.repository;
+
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import com.markDev.backend_biblioteca_springboot.entity.EstatisticaDecadaEntity;
+
+import jakarta.persistence.QueryHint;
+
+public interface EstatisticaDecadaRepository
+		extends JpaRepository<EstatisticaDecadaEntity, EstatisticaDecadaEntity.Chave> {
+
+	@Query("select d from EstatisticaDecadaEntity d where d.userId = :userId and d.total > 0 order by d.decada")
+	List<EstatisticaDecadaEntity> findDecadas(@Param("userId") Long userId);
+
+	/** Soma uma variação ao total de uma década, criando a linha se faltar. */
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "mk_estatistica_decada"))
+	@Query(value = "insert into mk_estatistica_decada (user_id, decada, total) values (:userId, :decada, :total) "
+			+ "on duplicate key update total = total + :total", nativeQuery = true)
+	int somar(@Param("userId") Long userId, @Param("decada") int decada, @Param("total") long total);
+
+	@Modifying
+	@Query("delete from EstatisticaDecadaEntity d where d.userId = :userId")
+	int deleteByUserId(@Param("userId") Long userId);
+}
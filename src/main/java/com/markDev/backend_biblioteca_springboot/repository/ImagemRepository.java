@@ -0,0 +1,29 @@
+package com.markDev.backend_biblioteca_springboot.repository;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
+
+public interface ImagemRepository extends JpaRepository<ImagemEntity, Long> {
+
+	/**
+	 * Devolve, de entre os hashes indicados, aqueles que ainda são usados por
+	 * alguma imagem. Usado pela limpeza do armazenamento de ficheiros.
+	 */
+	@Query("select distinct i.hash from ImagemEntity i where i.hash in :hashes")
+	Set<String> findHashesReferenciados(@Param("hashes") Collection<String> hashes);
+
+	/**
+	 * Exclui numa só instrução as imagens indicadas. Os ficheiros ficam para a
+	 * limpeza periódica do armazenamento.
+	 */
+	@Modifying
+	@Query("delete from ImagemEntity i where i.id in :ids")
+	int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,40 @@
+package com.markDev.backend_biblioteca_springboot.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.markDev.backend_biblioteca_springboot.entity.LivroExcluidoEntity;
+import com.markDev.backend_biblioteca_springboot.entity.UserEntity;
+
+public interface LivroExcluidoRepository extends JpaRepository<LivroExcluidoEntity, Long> {
+
+	/**
+	 * Regista numa só instrução a exclusão dos livros indicados que pertençam ao
+	 * utilizador. Tem de correr antes do DELETE dos livros.
+	 */
+	@Modifying
+	@Query("insert into LivroExcluidoEntity (livroId, userId, revisao, excluidoEm) "
+			+ "select l.id, l.user.id, :revisao, :agora from LivroEntity l where l.user = :user and l.id in :ids")
+	int registarExclusoes(@Param("user") UserEntity user, @Param("ids") Collection<Long> ids,
+			@Param("revisao") long revisao, @Param("agora") Instant agora);
+
+	/**
+	 * As exclusões depois da posição (revisão, id) e até à revisão indicada, pela
+	 * mesma ordem da sincronização.
+	 */
+	@Query("select e from LivroExcluidoEntity e where e.userId = :userId and e.revisao <= :ate "
+			+ "and (e.revisao > :revisao or (e.revisao = :revisao and e.livroId > :id)) order by e.revisao, e.livroId")
+	List<LivroExcluidoEntity> findMudancasApos(@Param("userId") Long userId, @Param("revisao") long revisao,
+			@Param("id") Long id, @Param("ate") long ate, Pageable limite);
+
+	@Modifying
+	@Query("delete from LivroExcluidoEntity e where e.excluidoEm < :limite")
+	int deleteAnteriores(@Param("limite") Instant limite);
+}
@@ -1,36 +1,181 @@
 package com.markDev.backend_biblioteca_springboot.repository;
 
+import com.markDev.backend_biblioteca_springboot.config.CacheSegundoNivelConfig;
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
 import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
 import com.markDev.backend_biblioteca_springboot.entity.UserEntity;
+import com.markDev.backend_biblioteca_springboot.repository.projection.AgregadoDecada;
+import com.markDev.backend_biblioteca_springboot.repository.projection.LivroIndexavel;
+import com.markDev.backend_biblioteca_springboot.repository.projection.LivroResumo;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface LivroRepository extends JpaRepository<LivroEntity, Long> {
 
-    /**
-     * Encontra todos os livros associados a um utilizador específico.
-     * Usado para listar a biblioteca do utilizador logado.
-     */
-    List<LivroEntity> findByUser(UserEntity user);
+    // As consultas por utilizador marcadas com HINT_CACHEABLE ficam na cache de consultas do
+    // Hibernate (ver CacheSegundoNivelConfig) até à próxima escrita em MK_LIVRO ou MK_LIVRO_IMAGEM.
 
     /**
      * Encontra um livro pelo seu ID, mas apenas se ele pertencer ao utilizador especificado.
      * Crucial para garantir que um utilizador não possa editar ou ver um livro de outro.
      */
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_LIVROS) })
     Optional<LivroEntity> findByIdAndUser(Long id, UserEntity user);
 
     /**
-     * Verifica de forma eficiente se um livro com um certo ID pertence a um utilizador.
-     * Usado na lógica de exclusão.
+     * Lista os livros de um utilizador apenas com as colunas da listagem.
+     * As imagens vêm só como id e tamanho, sem que os seus bytes sejam lidos.
+     */
+    @Query(RESUMO_SELECT + "where l.user = :user")
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_LIVROS) })
+    List<LivroResumo> findResumosByUser(@Param("user") UserEntity user);
+
+    //<editor-fold desc="Paginação por cursor (keyset)">
+    // Cada consulta continua a partir do último livro da página anterior usando o índice
+    // (user_id, coluna, id), sem OFFSET: o custo de uma página não depende da sua posição.
+    // O Pageable serve apenas para limitar o número de linhas (deve ser sempre a página 0).
+
+    @Query(RESUMO_SELECT + "where l.user = :user and l.id > :id order by l.id")
+    List<LivroResumo> findPaginaPorId(@Param("user") UserEntity user, @Param("id") Long id, Pageable limite);
+
+    @Query(RESUMO_SELECT + "where l.user = :user and (l.titulo > :titulo or (l.titulo = :titulo and l.id > :id)) "
+            + "order by l.titulo, l.id")
+    List<LivroResumo> findPaginaPorTitulo(@Param("user") UserEntity user, @Param("titulo") String titulo,
+            @Param("id") Long id, Pageable limite);
+
+    @Query(RESUMO_SELECT + "where l.user = :user and (l.autor > :autor or (l.autor = :autor and l.id > :id)) "
+            + "order by l.autor, l.id")
+    List<LivroResumo> findPaginaPorAutor(@Param("user") UserEntity user, @Param("autor") String autor,
+            @Param("id") Long id, Pageable limite);
+
+    /**
+     * Página ordenada por ano a partir de um livro com ano. Os livros sem ano vêm
+     * primeiro na ordenação do MySQL, por isso já foram todos lidos.
+     */
+    @Query(RESUMO_SELECT + "where l.user = :user and (l.ano > :ano or (l.ano = :ano and l.id > :id)) "
+            + "order by l.ano, l.id")
+    List<LivroResumo> findPaginaPorAno(@Param("user") UserEntity user, @Param("ano") Integer ano,
+            @Param("id") Long id, Pageable limite);
+
+    /**
+     * Página ordenada por ano a partir de um livro sem ano (ou do início):
+     * os restantes livros sem ano e depois todos os que têm ano.
      */
-    boolean existsByIdAndUser(Long id, UserEntity user);
+    @Query(RESUMO_SELECT + "where l.user = :user and ((l.ano is null and l.id > :id) or l.ano is not null) "
+            + "order by l.ano, l.id")
+    List<LivroResumo> findPaginaPorAnoAposSemAno(@Param("user") UserEntity user, @Param("id") Long id,
+            Pageable limite);
+    //</editor-fold>
+
+    /**
+     * Carrega os resumos dos livros indicados, desde que pertençam ao utilizador.
+     * Usado para montar os resultados da busca local a partir dos IDs do índice.
+     */
+    @Query(RESUMO_SELECT + "where l.user = :user and l.id in :ids")
+    List<LivroResumo> findResumosByIdInAndUser(@Param("ids") Collection<Long> ids, @Param("user") UserEntity user);
+
+    /**
+     * Lê os campos de texto de todos os livros, por ordem de id, para reconstruir o índice de busca.
+     */
+    @Query("select l.id as id, l.user.id as userId, l.titulo as titulo, l.autor as autor, l.sinopse as sinopse "
+            + "from LivroEntity l where l.id > :id order by l.id")
+    List<LivroIndexavel> findIndexaveisApos(@Param("id") Long id, Pageable limite);
 
     /**
      * Busca livros por título, mas apenas dentro da coleção do utilizador especificado.
+     * Usada só enquanto o índice de busca em memória ainda não está pronto.
+     */
+    @Query(RESUMO_SELECT + "where l.user = :user and lower(l.titulo) like lower(concat('%', :titulo, '%'))")
+    List<LivroResumo> findResumosByTituloAndUser(@Param("titulo") String titulo, @Param("user") UserEntity user);
+
+    /**
+     * Carrega os metadados da capa de um livro do utilizador; os bytes estão no armazenamento de ficheiros.
+     */
+    @Query("select l.capa from LivroEntity l where l.id = :id and l.user = :user")
+    Optional<ImagemEntity> findCapaByIdAndUser(@Param("id") Long id, @Param("user") UserEntity user);
+
+    /**
+     * Carrega os metadados da contracapa de um livro do utilizador.
+     */
+    @Query("select l.contraCapa from LivroEntity l where l.id = :id and l.user = :user")
+    Optional<ImagemEntity> findContraCapaByIdAndUser(@Param("id") Long id, @Param("user") UserEntity user);
+
+    /**
+     * Exclui numa só instrução os livros indicados que pertençam ao utilizador.
+     * As imagens não são removidas em cascata: quem chama exclui-as depois pelo id.
+     */
+    @Modifying
+    @Query("delete from LivroEntity l where l.user = :user and l.id in :ids")
+    int deleteByUserAndIdIn(@Param("user") UserEntity user, @Param("ids") Collection<Long> ids);
+
+    /**
+     * Resumo de um livro do utilizador, para a leitura de um só livro.
+     */
+    @Query(RESUMO_SELECT + "where l.id = :id and l.user = :user")
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_LIVROS) })
+    Optional<LivroResumo> findResumoByIdAndUser(@Param("id") Long id, @Param("user") UserEntity user);
+
+    /**
+     * Só a versão de um livro do utilizador: chega para responder a um GET condicional.
      */
-    List<LivroEntity> findByTituloContainingIgnoreCaseAndUser(String titulo, UserEntity user);
+    @Query("select l.versao from LivroEntity l where l.id = :id and l.user = :user")
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_LIVROS) })
+    Optional<Long> findVersaoByIdAndUser(@Param("id") Long id, @Param("user") UserEntity user);
+
+    /**
+     * Os livros alterados depois da posição (revisão, id) e até à revisão indicada, pela ordem
+     * da sincronização incremental. Usa o índice (user_id, revisao, id).
+     */
+    @Query(RESUMO_SELECT + "where l.user = :user and l.revisao <= :ate "
+            + "and (l.revisao > :revisao or (l.revisao = :revisao and l.id > :id)) order by l.revisao, l.id")
+    List<LivroResumo> findMudancasApos(@Param("user") UserEntity user, @Param("revisao") long revisao,
+            @Param("id") Long id, @Param("ate") long ate, Pageable limite);
+
+    //<editor-fold desc="Agregados das estatísticas">
+    // Agrupam por década (null para os livros sem ano). Só são usados para (re)calcular as
+    // estatísticas mantidas em MK_ESTATISTICA_*, nunca na leitura do painel.
+
+    /**
+     * As contagens de todos os livros do utilizador, por década.
+     */
+    @Query(AGREGADO_SELECT + "where l.user = :user " + AGREGADO_GROUP_BY)
+    List<AgregadoDecada> agregarPorDecada(@Param("user") UserEntity user);
+
+    /**
+     * As contagens dos livros indicados do utilizador, por década, lidas antes de os excluir.
+     */
+    @Query(AGREGADO_SELECT + "where l.user = :user and l.id in :ids " + AGREGADO_GROUP_BY)
+    List<AgregadoDecada> agregarPorDecada(@Param("user") UserEntity user, @Param("ids") Collection<Long> ids);
+
+    String AGREGADO_SELECT = "select floor(l.ano / 10) * 10 as decada, count(l) as total, "
+            + "sum(case when l.lido = true then 1 else 0 end) as lidos, "
+            + "sum(case when l.emprestado = true then 1 else 0 end) as emprestados, "
+            + "sum(case when l.lido = true then coalesce(l.numeroPaginas, 0) else 0 end) as paginasLidas "
+            + "from LivroEntity l ";
+
+    String AGREGADO_GROUP_BY = "group by floor(l.ano / 10) * 10";
+    //</editor-fold>
+
+    String RESUMO_SELECT = "select l.id as id, l.versao as versao, l.revisao as revisao, l.titulo as titulo, l.autor as autor, l.ano as ano, "
+            + "l.sinopse as sinopse, l.numeroPaginas as numeroPaginas, l.lido as lido, "
+            + "l.emprestado as emprestado, l.emprestadoPara as emprestadoPara, "
+            + "c.id as capaId, c.tamanho as capaTamanho, c.hash as capaHash, "
+            + "cc.id as contraCapaId, cc.tamanho as contraCapaTamanho, cc.hash as contraCapaHash "
+            + "from LivroEntity l left join l.capa c left join l.contraCapa cc ";
 }
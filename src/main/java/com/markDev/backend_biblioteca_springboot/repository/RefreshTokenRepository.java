@@ -0,0 +1,48 @@
+package com.markDev.backend_biblioteca_springboot.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.markDev.backend_biblioteca_springboot.entity.RefreshTokenEntity;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshTokenEntity, Long> {
+
+	Optional<RefreshTokenEntity> findByJti(String jti);
+
+	/**
+	 * Revoga o token só se ainda estiver ativo. Com dois pedidos a renovar o
+	 * mesmo token ao mesmo tempo, apenas um recebe 1; o outro é tratado como
+	 * reutilização.
+	 */
+	@Modifying
+	@Query("update RefreshTokenEntity t set t.revogado = true where t.jti = :jti and t.revogado = false "
+			+ "and t.expiraEm > :agora")
+	int revogarSeAtivo(@Param("jti") String jti, @Param("agora") Instant agora);
+
+	@Modifying
+	@Query("update RefreshTokenEntity t set t.revogado = true where t.familia = :familia and t.revogado = false")
+	int revogarFamilia(@Param("familia") String familia);
+
+	/** Indica se a família ainda tem um token válido, ou seja, se a sessão continua aberta. */
+	boolean existsByFamiliaAndRevogadoFalseAndExpiraEmAfter(String familia, Instant agora);
+
+	/** Os jti revogados que ainda não expiraram, para reconstruir o filtro em memória. */
+	@Query("select t.jti from RefreshTokenEntity t where t.revogado = true and t.expiraEm > :agora")
+	List<String> findJtisRevogados(@Param("agora") Instant agora);
+
+	/** As famílias sem nenhum token ativo (sessões terminadas) com tokens ainda por expirar. */
+	@Query("select distinct t.familia from RefreshTokenEntity t where t.expiraEm > :agora and not exists ("
+			+ "select 1 from RefreshTokenEntity a where a.familia = t.familia and a.revogado = false "
+			+ "and a.expiraEm > :agora)")
+	List<String> findFamiliasRevogadas(@Param("agora") Instant agora);
+
+	@Modifying
+	@Query("delete from RefreshTokenEntity t where t.expiraEm <= :agora")
+	int deleteExpirados(@Param("agora") Instant agora);
+}
@@ -2,10 +2,17 @@ package com.markDev.backend_biblioteca_springboot.repository;
 
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import com.markDev.backend_biblioteca_springboot.config.CacheSegundoNivelConfig;
 import com.markDev.backend_biblioteca_springboot.entity.UserEntity;
 
+import jakarta.persistence.QueryHint;
+
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_USUARIOS) })
 	Optional<UserEntity> findByUsername(String username);
 }
@@ -0,0 +1,54 @@
+package com.markDev.backend_biblioteca_springboot.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.repository.query.Param;
+
+import com.markDev.backend_biblioteca_springboot.entity.VersaoBibliotecaEntity;
+
+import jakarta.persistence.QueryHint;
+
+public interface VersaoBibliotecaRepository extends JpaRepository<VersaoBibliotecaEntity, Long> {
+
+	@Query("select v.versao from VersaoBibliotecaEntity v where v.userId = :userId")
+	Optional<Long> findVersao(@Param("userId") Long userId);
+
+	/**
+	 * Guarda, para cada utilizador com exclusões anteriores ao limite, a maior
+	 * revisão entre elas. Corre antes de essas exclusões serem apagadas.
+	 */
+	@Modifying
+	@Query("update VersaoBibliotecaEntity v set v.horizonte = (select max(e.revisao) from LivroExcluidoEntity e "
+			+ "where e.userId = v.userId and e.excluidoEm < :limite) where exists (select 1 from LivroExcluidoEntity e "
+			+ "where e.userId = v.userId and e.excluidoEm < :limite)")
+	int atualizarHorizontes(@Param("limite") Instant limite);
+
+	/**
+	 * Incrementa a versão da estante numa só instrução, criando a linha na
+	 * primeira alteração. Deve correr na transação da alteração, para que a
+	 * versão nova só seja visível depois do commit. A tabela escrita é declarada
+	 * para que a instrução nativa só invalide as consultas em cache sobre ela.
+	 */
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "mk_versao_biblioteca"))
+	@Query(value = "insert into mk_versao_biblioteca (user_id, versao, horizonte) values (:userId, 1, 0) "
+			+ "on duplicate key update versao = versao + 1", nativeQuery = true)
+	int incrementar(@Param("userId") Long userId);
+
+	/**
+	 * Bloqueia a linha da versão até ao fim da transação, sem a alterar (e cria-a
+	 * na versão 0 se faltar). Serializa uma operação com as escritas da estante,
+	 * que bloqueiam a mesma linha em {@link #incrementar(Long)}.
+	 */
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "mk_versao_biblioteca"))
+	@Query(value = "insert into mk_versao_biblioteca (user_id, versao, horizonte) values (:userId, 0, 0) "
+			+ "on duplicate key update versao = versao", nativeQuery = true)
+	int bloquear(@Param("userId") Long userId);
+}
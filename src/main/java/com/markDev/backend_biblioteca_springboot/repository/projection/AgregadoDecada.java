@@ -0,0 +1,18 @@
+package com.markDev.backend_biblioteca_springboot.repository.projection;
+
+/**
+ * Contagens dos livros de um utilizador numa década (ou sem ano, com a década
+ * {@code null}), calculadas com agregados SQL.
+ */
+public interface AgregadoDecada {
+
+	Number getDecada();
+
+	Number getTotal();
+
+	Number getLidos();
+
+	Number getEmprestados();
+
+	Number getPaginasLidas();
+}
@@ -0,0 +1,17 @@
+package com.markDev.backend_biblioteca_springboot.repository.projection;
+
+/**
+ * Projeção com os campos de texto indexados pela busca local.
+ */
+public interface LivroIndexavel {
+
+	Long getId();
+
+	Long getUserId();
+
+	String getTitulo();
+
+	String getAutor();
+
+	String getSinopse();
+}
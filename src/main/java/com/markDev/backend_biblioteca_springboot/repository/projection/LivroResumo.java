@@ -0,0 +1,42 @@
+package com.markDev.backend_biblioteca_springboot.repository.projection;
+
+/**
+ * Projeção com apenas as colunas usadas nas listagens de livros. As imagens
+ * aparecem só como id e tamanho, nunca com o seu conteúdo.
+ */
+public interface LivroResumo {
+
+	Long getId();
+
+	long getVersao();
+
+	long getRevisao();
+
+	String getTitulo();
+
+	String getAutor();
+
+	Integer getAno();
+
+	String getSinopse();
+
+	Integer getNumeroPaginas();
+
+	boolean isLido();
+
+	boolean isEmprestado();
+
+	String getEmprestadoPara();
+
+	Long getCapaId();
+
+	Long getCapaTamanho();
+
+	String getCapaHash();
+
+	Long getContraCapaId();
+
+	Long getContraCapaTamanho();
+
+	String getContraCapaHash();
+}
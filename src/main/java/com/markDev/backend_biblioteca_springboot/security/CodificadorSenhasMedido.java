@@ -0,0 +1,45 @@
+package com.markDev.backend_biblioteca_springboot.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Envolve o {@link PasswordEncoder} e mede cada operação em
+ * {@code senha.bcrypt}: {@code codificar} no registo e {@code comparar} no
+ * login. O BCrypt é a parte mais cara de um login, e o seu custo depende da
+ * força configurada e do CPU disponível.
+ */
+public class CodificadorSenhasMedido implements PasswordEncoder {
+
+	private final PasswordEncoder codificador;
+	private final Timer codificacoes;
+	private final Timer comparacoes;
+
+	public CodificadorSenhasMedido(PasswordEncoder codificador, MeterRegistry meterRegistry) {
+		this.codificador = codificador;
+		this.codificacoes = timer(meterRegistry, "codificar");
+		this.comparacoes = timer(meterRegistry, "comparar");
+	}
+
+	private static Timer timer(MeterRegistry meterRegistry, String operacao) {
+		return Timer.builder("senha.bcrypt").description("Tempo do BCrypt por operação").tag("operacao", operacao)
+				.register(meterRegistry);
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return codificacoes.record(() -> codificador.encode(rawPassword));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return comparacoes.record(() -> codificador.matches(rawPassword, encodedPassword));
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return codificador.upgradeEncoding(encodedPassword);
+	}
+}
@@ -0,0 +1,79 @@
+package com.markDev.backend_biblioteca_springboot.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom para strings, seguro para uso concorrente sem locks: os bits
+ * vivem num {@link AtomicLongArray} e cada inserção só liga bits com CAS.
+ * <p>
+ * {@link #podeConter(String)} nunca dá falsos negativos: se devolver
+ * {@code false}, o valor nunca foi adicionado. Pode dar falsos positivos, com a
+ * probabilidade pedida enquanto o número de valores não passar do esperado; a
+ * partir daí a taxa sobe, mas o resultado continua correto para quem confirma
+ * os positivos noutro lado.
+ */
+public class FiltroBloom {
+
+	private final AtomicLongArray bits;
+	private final long numeroBits;
+	private final int numeroHashes;
+
+	/**
+	 * @param valoresEsperados          O número de valores para o qual o filtro é dimensionado.
+	 * @param probabilidadeFalsoPositivo A taxa de falsos positivos pretendida (ex.: 0.01).
+	 */
+	public FiltroBloom(long valoresEsperados, double probabilidadeFalsoPositivo) {
+		long n = Math.max(1, valoresEsperados);
+		long m = (long) Math.ceil(-n * Math.log(probabilidadeFalsoPositivo) / (Math.log(2) * Math.log(2)));
+		int palavras = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+		this.bits = new AtomicLongArray(palavras);
+		this.numeroBits = palavras * 64L;
+		this.numeroHashes = Math.max(1, (int) Math.round((double) numeroBits / n * Math.log(2)));
+	}
+
+	public void adicionar(String valor) {
+		long h1 = hash(valor);
+		long h2 = misturar(h1 + 0x9E3779B97F4A7C15L) | 1;
+		for (int i = 0; i < numeroHashes; i++) {
+			long bit = Math.floorMod(h1 + i * h2, numeroBits);
+			int palavra = (int) (bit >>> 6);
+			long mascara = 1L << bit;
+			long atual = bits.get(palavra);
+			while ((atual & mascara) == 0 && !bits.weakCompareAndSetVolatile(palavra, atual, atual | mascara)) {
+				atual = bits.get(palavra);
+			}
+		}
+	}
+
+	public boolean podeConter(String valor) {
+		long h1 = hash(valor);
+		long h2 = misturar(h1 + 0x9E3779B97F4A7C15L) | 1;
+		for (int i = 0; i < numeroHashes; i++) {
+			long bit = Math.floorMod(h1 + i * h2, numeroBits);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** FNV-1a de 64 bits sobre os caracteres, seguido de uma mistura final. */
+	private static long hash(String valor) {
+		long h = 0xCBF29CE484222325L;
+		for (int i = 0; i < valor.length(); i++) {
+			h ^= valor.charAt(i);
+			h *= 0x100000001B3L;
+		}
+		return misturar(h);
+	}
+
+	/** Finalizador do MurmurHash3: espalha bem os bits de um valor de 64 bits. */
+	private static long misturar(long h) {
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
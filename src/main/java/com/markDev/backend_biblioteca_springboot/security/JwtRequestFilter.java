@@ -1,6 +1,7 @@
 package com.markDev.backend_biblioteca_springboot.security;
 
-import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,34 +14,49 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.markDev.backend_biblioteca_springboot.service.RefreshTokenService;
+
 import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
+	private static final Logger LOGGER = Logger.getLogger(JwtRequestFilter.class.getName());
+
 	@Autowired
 	private UserDetailsServiceImpl userDetailsService;
 	@Autowired
 	private JwtUtil jwtUtil;
+	@Autowired
+	private RefreshTokenService refreshTokenService;
 
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
 			throws ServletException, IOException {
 		final String authorizationHeader = request.getHeader("Authorization");
-		String username = null;
-		String jwt = null;
+		Claims claims = null;
 
 		if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-			jwt = authorizationHeader.substring(7);
+			// Uma única verificação (assinatura e expiração), com cache dos tokens já verificados.
 			try {
-				username = jwtUtil.extractUsername(jwt);
-			} catch (IllegalArgumentException | ExpiredJwtException e) {
-				System.out.println("Token JWT inválido ou expirado.");
+				claims = jwtUtil.verificar(authorizationHeader.substring(7));
+			} catch (IllegalArgumentException | JwtException e) {
+				LOGGER.log(Level.FINE, "Token JWT inválido ou expirado: {0}", e.getMessage());
+			}
+			// Refresh tokens não servem como access token, e a sessão do token pode ter sido terminada.
+			if (claims != null && (jwtUtil.isRefreshToken(claims) || sessaoTerminada(claims))) {
+				claims = null;
 			}
 		}
 
-		if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-			UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-			if (jwtUtil.validateToken(jwt, userDetails)) {
+		if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+			// O ID e as permissões vêm do próprio token; só tokens antigos, sem o ID, obrigam a ir ao banco.
+			UserDetails userDetails = jwtUtil.principalDe(claims);
+			if (userDetails == null) {
+				userDetails = this.userDetailsService.loadUserByUsername(claims.getSubject());
+			}
+			if (claims.getSubject().equals(userDetails.getUsername())) {
 				UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(userDetails, null,
 						userDetails.getAuthorities());
 				token.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -49,4 +65,9 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 		}
 		chain.doFilter(request, response);
 	}
+
+	private boolean sessaoTerminada(Claims claims) {
+		String familia = claims.get(JwtUtil.CLAIM_FAMILIA, String.class);
+		return familia != null && refreshTokenService.familiaRevogada(familia);
+	}
 }
\ No newline at end of file
@@ -1,31 +1,120 @@
 package com.markDev.backend_biblioteca_springboot.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * Criação e verificação dos JWT. A chave e o parser são construídos uma única
+ * vez; cada token é verificado (assinatura HMAC e expiração) uma vez só, e as
+ * claims ficam numa cache limitada, indexada pelo SHA-256 do token, até o token
+ * expirar. Os pedidos seguintes com o mesmo token pagam apenas o hash.
+ * <p>
+ * Os tokens levam o ID do utilizador ({@value #CLAIM_ID}) e as suas permissões
+ * ({@value #CLAIM_PERMISSOES}), para que o pedido seja autenticado só com as
+ * claims, sem consultar o banco de dados. Os tokens de uma sessão levam também
+ * a família ({@value #CLAIM_FAMILIA}) dos refresh tokens que a renovam, o que
+ * permite invalidar os access tokens quando a sessão é terminada. Os refresh
+ * tokens são marcados com {@value #CLAIM_TIPO}={@value #TIPO_REFRESH} e têm um
+ * jti, e não servem como access token.
+ * <p>
+ * O tempo de cada verificação é medido em {@code jwt.verificacao}, separado
+ * pelo resultado: {@code cache} (só o hash), {@code verificado} (assinatura
+ * verificada) ou {@code invalido}.
+ */
 @Component
 public class JwtUtil {
 
-	@Value("${jwt.secret}")
-	private String secret;
+	public static final String CLAIM_ID = "uid";
+	public static final String CLAIM_PERMISSOES = "roles";
+	public static final String CLAIM_FAMILIA = "fam";
+	public static final String CLAIM_TIPO = "tipo";
+	public static final String TIPO_REFRESH = "refresh";
+
+	private final Key signingKey;
+	private final JwtParser parser;
+	private final Cache<String, Claims> tokensVerificados;
+	private final Timer verificacoesEmCache;
+	private final Timer verificacoesCompletas;
+	private final Timer verificacoesInvalidas;
 
 	// <<< ALTERAÇÃO 1: Definindo os dois tempos de expiração >>>
 	private final long accessTokenExpiration = 1 * 60 * 60 * 1000; // 1 hora
 	private final long refreshTokenExpiration = 30L * 24 * 60 * 60 * 1000; // 30 dias
 
-	private Key getSigningKey() {
-		return Keys.hmacShaKeyFor(secret.getBytes());
+	public JwtUtil(@Value("${jwt.secret}") String secret,
+			@Value("${jwt.cache.tamanho-maximo:10000}") long tamanhoCache, MeterRegistry meterRegistry) {
+		this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+		this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+		this.tokensVerificados = Caffeine.newBuilder().maximumSize(tamanhoCache).expireAfter(new ExpiraComToken())
+				.build();
+		this.verificacoesEmCache = timerVerificacao(meterRegistry, "cache");
+		this.verificacoesCompletas = timerVerificacao(meterRegistry, "verificado");
+		this.verificacoesInvalidas = timerVerificacao(meterRegistry, "invalido");
+	}
+
+	private static Timer timerVerificacao(MeterRegistry meterRegistry, String resultado) {
+		return Timer.builder("jwt.verificacao").description("Tempo de verificação dos JWT")
+				.tag("resultado", resultado).register(meterRegistry);
+	}
+
+	/**
+	 * Verifica a assinatura e a expiração do token e devolve as suas claims.
+	 *
+	 * @param token O JWT compacto.
+	 * @return As claims do token. Não devem ser alteradas, já que são partilhadas
+	 *         pela cache.
+	 * @throws io.jsonwebtoken.JwtException Se o token for inválido ou tiver expirado.
+	 * @throws IllegalArgumentException     Se o token estiver vazio.
+	 */
+	public Claims verificar(String token) {
+		if (token == null || token.isBlank()) {
+			throw new IllegalArgumentException("O token JWT está vazio");
+		}
+		long inicio = System.nanoTime();
+		String digest = digest(token);
+		Claims claims = tokensVerificados.getIfPresent(digest);
+		if (claims != null && claims.getExpiration().after(new Date())) {
+			verificacoesEmCache.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			return claims;
+		}
+		try {
+			claims = parser.parseClaimsJws(token).getBody();
+		} catch (RuntimeException e) {
+			verificacoesInvalidas.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			throw e;
+		}
+		// Sem expiração não há quando retirar o token da cache.
+		if (claims.getExpiration() != null) {
+			tokensVerificados.put(digest, claims);
+		}
+		verificacoesCompletas.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+		return claims;
 	}
 
 	public String extractUsername(String token) {
@@ -42,29 +131,49 @@ public class JwtUtil {
 	}
 
 	private Claims extractAllClaims(String token) {
-		return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();
-	}
-
-	private Boolean isTokenExpired(String token) {
-		return extractExpiration(token).before(new Date());
+		return verificar(token);
 	}
 
 	/**
 	 * Gera o Access Token de curta duração.
 	 */
 	public String generateToken(UserDetails userDetails) {
-		Map<String, Object> claims = new HashMap<>();
+		return generateToken(userDetails, null);
+	}
+
+	/**
+	 * Gera o Access Token de curta duração de uma sessão.
+	 *
+	 * @param familia A família dos refresh tokens da sessão, ou {@code null}.
+	 */
+	public String generateToken(UserDetails userDetails, String familia) {
+		Map<String, Object> claims = claimsDeIdentidade(userDetails);
+		if (familia != null) {
+			claims.put(CLAIM_FAMILIA, familia);
+		}
 		return createToken(claims, userDetails.getUsername(), accessTokenExpiration);
 	}
 
 	/**
-	 * <<< NOVO MÉTODO >>> Gera o Refresh Token de longa duração.
+	 * Gera o Refresh Token de longa duração. O jti e a família têm de estar
+	 * registados, para que o token possa ser rodado e revogado.
 	 */
-	public String generateRefreshToken(UserDetails userDetails) {
-		Map<String, Object> claims = new HashMap<>();
+	public String generateRefreshToken(UserDetails userDetails, String jti, String familia) {
+		Map<String, Object> claims = claimsDeIdentidade(userDetails);
+		claims.put(Claims.ID, jti);
+		claims.put(CLAIM_FAMILIA, familia);
+		claims.put(CLAIM_TIPO, TIPO_REFRESH);
 		return createToken(claims, userDetails.getUsername(), refreshTokenExpiration);
 	}
 
+	public Duration getRefreshTokenExpiration() {
+		return Duration.ofMillis(refreshTokenExpiration);
+	}
+
+	public boolean isRefreshToken(Claims claims) {
+		return TIPO_REFRESH.equals(claims.get(CLAIM_TIPO));
+	}
+
 	/**
 	 * <<< MÉTODO ALTERADO >>> Método central de criação de token, agora aceita um
 	 * tempo de expiração.
@@ -72,11 +181,68 @@ public class JwtUtil {
 	private String createToken(Map<String, Object> claims, String subject, long expirationTime) {
 		return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
 				.setExpiration(new Date(System.currentTimeMillis() + expirationTime))
-				.signWith(getSigningKey(), SignatureAlgorithm.HS256).compact();
+				.signWith(signingKey, SignatureAlgorithm.HS256).compact();
 	}
 
 	public Boolean validateToken(String token, UserDetails userDetails) {
-		final String username = extractUsername(token);
-		return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+		final Claims claims = verificar(token);
+		return (claims.getSubject().equals(userDetails.getUsername()) && claims.getExpiration().after(new Date()));
+	}
+
+	/**
+	 * Reconstrói o utilizador autenticado a partir das claims de um token já
+	 * verificado.
+	 *
+	 * @return O utilizador, ou {@code null} se o token não tiver o ID (tokens
+	 *         emitidos antes de o ID passar a fazer parte das claims).
+	 */
+	public UsuarioAutenticado principalDe(Claims claims) {
+		Long id = claims.get(CLAIM_ID, Long.class);
+		if (id == null) {
+			return null;
+		}
+		List<?> permissoes = claims.get(CLAIM_PERMISSOES, List.class);
+		List<GrantedAuthority> authorities = permissoes == null ? List.of()
+				: permissoes.stream().map(p -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(p))).toList();
+		return new UsuarioAutenticado(id, claims.getSubject(), null, authorities);
+	}
+
+	private static Map<String, Object> claimsDeIdentidade(UserDetails userDetails) {
+		Map<String, Object> claims = new HashMap<>();
+		if (userDetails instanceof UsuarioAutenticado usuario) {
+			claims.put(CLAIM_ID, usuario.getId());
+		}
+		claims.put(CLAIM_PERMISSOES,
+				userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+		return claims;
+	}
+
+	private static String digest(String token) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder().encodeToString(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 não está disponível nesta JVM", e);
+		}
+	}
+
+	/** Cada entrada da cache expira no mesmo instante que o token correspondente. */
+	private static final class ExpiraComToken implements Expiry<String, Claims> {
+
+		@Override
+		public long expireAfterCreate(String digest, Claims claims, long currentTime) {
+			return TimeUnit.MILLISECONDS
+					.toNanos(Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()));
+		}
+
+		@Override
+		public long expireAfterUpdate(String digest, Claims claims, long currentTime, long currentDuration) {
+			return expireAfterCreate(digest, claims, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String digest, Claims claims, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
 	}
 }
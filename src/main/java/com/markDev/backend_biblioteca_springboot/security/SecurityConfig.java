@@ -1,5 +1,9 @@
 package com.markDev.backend_biblioteca_springboot.security;
 
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,19 +15,44 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import com.markDev.backend_biblioteca_springboot.security.limites.LimiteRequisicoesFilter;
+import com.markDev.backend_biblioteca_springboot.security.limites.LimitesProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(LimitesProperties.class)
 public class SecurityConfig {
 	private final JwtRequestFilter jwtRequestFilter;
+	private final LimiteRequisicoesFilter limiteRequisicoesFilter;
+	private final int portaGestao;
 
-	public SecurityConfig(JwtRequestFilter jwtRequestFilter) {
+	public SecurityConfig(JwtRequestFilter jwtRequestFilter, LimiteRequisicoesFilter limiteRequisicoesFilter,
+			@Value("${management.server.port:-1}") int portaGestao) {
 		this.jwtRequestFilter = jwtRequestFilter;
+		this.limiteRequisicoesFilter = limiteRequisicoesFilter;
+		this.portaGestao = portaGestao;
 	}
 
+	/**
+	 * O limite de pedidos só corre dentro da cadeia do Spring Security, depois do
+	 * JWT; o registo automático como filtro do servlet é desligado.
+	 */
 	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	public FilterRegistrationBean<LimiteRequisicoesFilter> limiteRequisicoesFilterRegistration() {
+		FilterRegistrationBean<LimiteRequisicoesFilter> registo = new FilterRegistrationBean<>(limiteRequisicoesFilter);
+		registo.setEnabled(false);
+		return registo;
+	}
+
+	@Bean
+	public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+		return new CodificadorSenhasMedido(new BCryptPasswordEncoder(), meterRegistry);
 	}
 
 	@Bean
@@ -35,10 +64,27 @@ public class SecurityConfig {
 	public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
 		http.csrf(csrf -> csrf.disable())
 				.authorizeHttpRequests(
-						auth -> auth.requestMatchers("/api/auth/**").permitAll().anyRequest().authenticated())
+						// O despacho assíncrono devolve o resultado de um pedido que já foi autorizado.
+						auth -> auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+								.requestMatchers("/api/auth/**").permitAll()
+								// Sondas de saúde; os outros endpoints de gestão pedem login.
+								.requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+								.requestMatchers(recolhaPrometheus()).permitAll().anyRequest().authenticated())
 				.sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
 
 		http.addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
+		http.addFilterAfter(limiteRequisicoesFilter, JwtRequestFilter.class);
 		return http.build();
 	}
+
+	/**
+	 * A recolha do Prometheus só dispensa o login na porta de gestão própria
+	 * ({@code management.server.port}), que deve estar ligada a uma interface
+	 * interna ({@code management.server.address}). Sem ela, os endpoints de
+	 * gestão partilham a porta pública e a recolha pede login como os outros.
+	 */
+	private RequestMatcher recolhaPrometheus() {
+		return new AndRequestMatcher(new AntPathRequestMatcher("/actuator/prometheus"),
+				pedido -> portaGestao > 0 && pedido.getLocalPort() == portaGestao);
+	}
 }
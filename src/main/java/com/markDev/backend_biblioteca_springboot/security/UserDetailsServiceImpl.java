@@ -3,7 +3,6 @@ package com.markDev.backend_biblioteca_springboot.security;
 import com.markDev.backend_biblioteca_springboot.entity.UserEntity;
 import com.markDev.backend_biblioteca_springboot.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -20,6 +19,6 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 		UserEntity user = userRepository.findByUsername(username)
 				.orElseThrow(() -> new UsernameNotFoundException("Utilizador não encontrado com o nome: " + username));
-		return new User(user.getUsername(), user.getPassword(), new ArrayList<>());
+		return new UsuarioAutenticado(user.getId(), user.getUsername(), user.getPassword(), new ArrayList<>());
 	}
 }
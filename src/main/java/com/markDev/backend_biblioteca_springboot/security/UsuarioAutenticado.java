@@ -0,0 +1,79 @@
+package com.markDev.backend_biblioteca_springboot.security;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Utilizador autenticado, com o seu ID. Nos pedidos com JWT é construído só a
+ * partir das claims do token, sem consultar o banco de dados; no login vem do
+ * {@link UserDetailsServiceImpl} e traz a senha, que o Spring Security apaga
+ * depois da autenticação.
+ */
+public class UsuarioAutenticado implements UserDetails, CredentialsContainer {
+
+	private final Long id;
+	private final String username;
+	private String password;
+	private final List<GrantedAuthority> authorities;
+
+	public UsuarioAutenticado(Long id, String username, String password,
+			Collection<? extends GrantedAuthority> authorities) {
+		this.id = id;
+		this.username = username;
+		this.password = password;
+		this.authorities = List.copyOf(authorities);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	@Override
+	public String getUsername() {
+		return username;
+	}
+
+	@Override
+	public String getPassword() {
+		return password;
+	}
+
+	@Override
+	public Collection<? extends GrantedAuthority> getAuthorities() {
+		return authorities;
+	}
+
+	@Override
+	public boolean isAccountNonExpired() {
+		return true;
+	}
+
+	@Override
+	public boolean isAccountNonLocked() {
+		return true;
+	}
+
+	@Override
+	public boolean isCredentialsNonExpired() {
+		return true;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public void eraseCredentials() {
+		password = null;
+	}
+
+	@Override
+	public String toString() {
+		return "UsuarioAutenticado[id=" + id + ", username=" + username + "]";
+	}
+}
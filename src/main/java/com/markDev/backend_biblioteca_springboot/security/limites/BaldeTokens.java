@@ -0,0 +1,53 @@
+package com.markDev.backend_biblioteca_springboot.security.limites;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balde de tokens sem locks. Em vez de guardar os tokens e a data da última
+ * reposição, guarda só o instante teórico em que o balde volta a estar cheio
+ * (algoritmo GCRA, equivalente a um balde de tokens): consumir um token avança
+ * esse instante de um intervalo, e o pedido é recusado se isso o levar para
+ * além da capacidade. O estado cabe num único {@link AtomicLong}, atualizado
+ * com CAS.
+ */
+final class BaldeTokens {
+
+	private final long intervalo;
+	private final long tolerancia;
+	private final AtomicLong cheioEm;
+
+	/**
+	 * @param limite O limite do balde.
+	 * @param agora  O instante atual ({@link System#nanoTime()}); o balde começa cheio.
+	 */
+	BaldeTokens(LimitesProperties.Limite limite, long agora) {
+		long capacidade = Math.max(1, limite.capacidade());
+		this.intervalo = Math.max(1, limite.periodo().toNanos() / capacidade);
+		this.tolerancia = intervalo * capacidade;
+		this.cheioEm = new AtomicLong(agora);
+	}
+
+	/**
+	 * Tenta consumir um token.
+	 *
+	 * @return 0 se o token foi consumido; senão, os nanossegundos até haver um.
+	 */
+	long consumir(long agora) {
+		while (true) {
+			long atual = cheioEm.get();
+			long novo = (atual - agora > 0 ? atual : agora) + intervalo;
+			long espera = novo - tolerancia - agora;
+			if (espera > 0) {
+				return espera;
+			}
+			if (cheioEm.compareAndSet(atual, novo)) {
+				return 0;
+			}
+		}
+	}
+
+	/** Indica se o balde está cheio, ou seja, se é igual a um balde novo. */
+	boolean cheio(long agora) {
+		return cheioEm.get() - agora <= 0;
+	}
+}
@@ -0,0 +1,215 @@
+package com.markDev.backend_biblioteca_springboot.security.limites;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Limita o número de pedidos por endpoint com baldes de tokens
+ * ({@link BaldeTokens}), segundo as políticas de {@link LimitesProperties}. Cada
+ * pedido usa a primeira política cujo método e caminho correspondam, e tem de
+ * obter um token em cada nível configurado: por utilizador, por IP e global.
+ * Um pedido recusado responde 429 com {@code Retry-After}.
+ * <p>
+ * Corre depois do {@code JwtRequestFilter}, para saber quem é o utilizador. Os
+ * baldes ficam em {@link ConcurrentHashMap}s e cada um é atualizado com CAS, sem
+ * nenhum lock global. Um balde cheio é igual a um balde novo, por isso os baldes
+ * parados são removidos periodicamente sem mudar o resultado.
+ */
+@Component
+public class LimiteRequisicoesFilter extends OncePerRequestFilter {
+
+	private static final Logger LOGGER = Logger.getLogger(LimiteRequisicoesFilter.class.getName());
+	private static final String CHAVE_GLOBAL = "";
+
+	private final boolean ativo;
+	private final boolean confiarXForwardedFor;
+	private final List<PoliticaAtiva> politicas;
+	private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+	public LimiteRequisicoesFilter(LimitesProperties propriedades, MeterRegistry meterRegistry) {
+		this.ativo = propriedades.ativo();
+		this.confiarXForwardedFor = propriedades.confiarXForwardedFor();
+		this.politicas = propriedades.politicas().entrySet().stream()
+				.map(politica -> new PoliticaAtiva(politica.getKey(), politica.getValue(), meterRegistry)).toList();
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !ativo;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String caminho = request.getRequestURI().substring(request.getContextPath().length());
+		for (PoliticaAtiva politica : politicas) {
+			if (politica.aplicaSe(request.getMethod(), caminho)) {
+				long espera = politica.consumir(utilizador(), ipDoCliente(request), System.nanoTime());
+				if (espera > 0) {
+					recusar(response, espera);
+					return;
+				}
+				break;
+			}
+		}
+		chain.doFilter(request, response);
+	}
+
+	/** Remove os baldes que voltaram a encher, ou seja, de clientes parados. */
+	@Scheduled(fixedDelayString = "${biblioteca.limites.inatividade-limpeza:PT1M}")
+	public void removerBaldesParados() {
+		long agora = System.nanoTime();
+		int removidos = 0;
+		for (PoliticaAtiva politica : politicas) {
+			removidos += politica.removerCheios(agora);
+		}
+		if (removidos > 0) {
+			LOGGER.log(Level.FINE, "Removidos {0} baldes de limite de pedidos parados", removidos);
+		}
+	}
+
+	private static void recusar(HttpServletResponse response, long esperaNanos) throws IOException {
+		long segundos = segundosRetryAfter(esperaNanos);
+		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		response.setHeader("Retry-After", Long.toString(segundos));
+		response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.getWriter().write("Demasiados pedidos; tente novamente dentro de " + segundos + " s.");
+	}
+
+	/** A espera em segundos inteiros do {@code Retry-After}, arredondada para cima e de pelo menos 1. */
+	static long segundosRetryAfter(long esperaNanos) {
+		return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+	}
+
+	private static String utilizador() {
+		Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+		if (autenticacao == null || !autenticacao.isAuthenticated()
+				|| autenticacao instanceof AnonymousAuthenticationToken) {
+			return null;
+		}
+		return autenticacao.getName();
+	}
+
+	private String ipDoCliente(HttpServletRequest request) {
+		if (confiarXForwardedFor) {
+			String encaminhado = request.getHeader("X-Forwarded-For");
+			if (encaminhado != null && !encaminhado.isBlank()) {
+				int virgula = encaminhado.indexOf(',');
+				return (virgula < 0 ? encaminhado : encaminhado.substring(0, virgula)).trim();
+			}
+		}
+		return request.getRemoteAddr();
+	}
+
+	private final class PoliticaAtiva {
+
+		private final String metodo;
+		private final String caminho;
+		private final Nivel porUtilizador;
+		private final Nivel porIp;
+		private final Nivel global;
+
+		PoliticaAtiva(String nome, LimitesProperties.Politica politica, MeterRegistry meterRegistry) {
+			this.metodo = politica.metodo();
+			this.caminho = politica.caminho();
+			this.porUtilizador = Nivel.de(nome, "utilizador", politica.porUtilizador(), meterRegistry);
+			this.porIp = Nivel.de(nome, "ip", politica.porIp(), meterRegistry);
+			this.global = Nivel.de(nome, "global", politica.global(), meterRegistry);
+		}
+
+		boolean aplicaSe(String metodoPedido, String caminhoPedido) {
+			return (metodo == null || metodo.equalsIgnoreCase(metodoPedido))
+					&& pathMatcher.match(caminho, caminhoPedido);
+		}
+
+		/**
+		 * Consome um token em cada nível, do mais específico para o global, e pára
+		 * no primeiro que recuse. Os níveis anteriores não são devolvidos: um
+		 * cliente recusado gasta também a sua própria quota.
+		 *
+		 * @return 0 se o pedido pode seguir; senão, os nanossegundos de espera.
+		 */
+		long consumir(String utilizador, String ip, long agora) {
+			long espera = 0;
+			if (porUtilizador != null && utilizador != null) {
+				espera = porUtilizador.consumir(utilizador, agora);
+			}
+			if (espera == 0 && porIp != null) {
+				espera = porIp.consumir(ip, agora);
+			}
+			if (espera == 0 && global != null) {
+				espera = global.consumir(CHAVE_GLOBAL, agora);
+			}
+			return espera;
+		}
+
+		int removerCheios(long agora) {
+			int removidos = 0;
+			for (Nivel nivel : new Nivel[] { porUtilizador, porIp, global }) {
+				if (nivel != null) {
+					removidos += nivel.removerCheios(agora);
+				}
+			}
+			return removidos;
+		}
+	}
+
+	private static final class Nivel {
+
+		private final LimitesProperties.Limite limite;
+		private final Map<String, BaldeTokens> baldes = new ConcurrentHashMap<>();
+		private final Counter recusas;
+
+		private Nivel(String politica, String nivel, LimitesProperties.Limite limite, MeterRegistry meterRegistry) {
+			this.limite = limite;
+			this.recusas = meterRegistry.counter("limites.recusas", "politica", politica, "nivel", nivel);
+		}
+
+		static Nivel de(String politica, String nivel, LimitesProperties.Limite limite,
+				MeterRegistry meterRegistry) {
+			return limite != null ? new Nivel(politica, nivel, limite, meterRegistry) : null;
+		}
+
+		long consumir(String chave, long agora) {
+			long espera = baldes.computeIfAbsent(chave, c -> new BaldeTokens(limite, agora)).consumir(agora);
+			if (espera > 0) {
+				recusas.increment();
+			}
+			return espera;
+		}
+
+		int removerCheios(long agora) {
+			int removidos = 0;
+			for (Map.Entry<String, BaldeTokens> balde : baldes.entrySet()) {
+				if (balde.getValue().cheio(agora) && baldes.remove(balde.getKey(), balde.getValue())) {
+					removidos++;
+				}
+			}
+			return removidos;
+		}
+	}
+}
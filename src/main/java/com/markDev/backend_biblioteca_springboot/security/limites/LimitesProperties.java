@@ -0,0 +1,62 @@
+package com.markDev.backend_biblioteca_springboot.security.limites;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuração do limite de pedidos ({@code biblioteca.limites.*}). Cada
+ * política aplica-se a um endpoint (método e padrão de caminho) e pode limitar
+ * por utilizador autenticado, por IP e no total. Sem políticas configuradas,
+ * são usadas as predefinidas para o login e para a busca externa. O intervalo
+ * da remoção dos baldes parados ({@code biblioteca.limites.inatividade-limpeza})
+ * é lido diretamente pelo {@code @Scheduled} do {@link LimiteRequisicoesFilter}.
+ *
+ * @param ativo                 Liga ou desliga o filtro.
+ * @param confiarXForwardedFor  Usa o primeiro IP do cabeçalho X-Forwarded-For
+ *                              (só atrás de um proxy que o reescreva).
+ * @param politicas             As políticas, por nome.
+ */
+@ConfigurationProperties(prefix = "biblioteca.limites")
+public record LimitesProperties(@DefaultValue("true") boolean ativo,
+		@DefaultValue("false") boolean confiarXForwardedFor,
+		Map<String, Politica> politicas) {
+
+	public LimitesProperties {
+		if (politicas == null || politicas.isEmpty()) {
+			politicas = politicasPredefinidas();
+		}
+	}
+
+	/**
+	 * @param metodo         O método HTTP, ou {@code null} para todos.
+	 * @param caminho        O padrão do caminho (sintaxe Ant, ex.: {@code /api/livros/**}).
+	 * @param porUtilizador  O limite por utilizador autenticado, ou {@code null}.
+	 * @param porIp          O limite por IP do cliente, ou {@code null}.
+	 * @param global         O limite partilhado por todos os clientes, ou {@code null}.
+	 */
+	public record Politica(String metodo, String caminho, Limite porUtilizador, Limite porIp, Limite global) {
+	}
+
+	/**
+	 * Um balde com {@code capacidade} tokens, reposto de forma contínua ao ritmo
+	 * de {@code capacidade} tokens por {@code periodo}.
+	 */
+	public record Limite(long capacidade, Duration periodo) {
+	}
+
+	private static Map<String, Politica> politicasPredefinidas() {
+		Map<String, Politica> politicas = new LinkedHashMap<>();
+		// Cada login faz uma verificação BCrypt, que ocupa um núcleo durante dezenas de milissegundos.
+		politicas.put("login", new Politica("POST", "/api/auth/login", null,
+				new Limite(10, Duration.ofMinutes(1)), new Limite(20, Duration.ofSeconds(1))));
+		// Cada busca que não está em cache gasta a quota da API do Google Books.
+		politicas.put("busca-externa", new Politica("GET", "/api/livros/busca-externa",
+				new Limite(30, Duration.ofMinutes(1)), new Limite(60, Duration.ofMinutes(1)),
+				new Limite(600, Duration.ofMinutes(1))));
+		return politicas;
+	}
+}
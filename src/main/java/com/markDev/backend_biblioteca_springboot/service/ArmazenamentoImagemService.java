@@ -0,0 +1,288 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
+import com.markDev.backend_biblioteca_springboot.repository.ImagemRepository;
+
+/**
+ * Armazenamento de imagens em disco, endereçado pelo conteúdo. Cada ficheiro é
+ * guardado com o nome do SHA-256 dos seus bytes, o que deduplica capas iguais
+ * entre utilizadores e torna cada ficheiro imutável. A leitura é feita com
+ * {@link FileChannel#transferTo}, sem passar os bytes por arrays na heap.
+ * <p>
+ * Ficheiros que deixaram de ser referenciados são removidos por uma limpeza
+ * periódica, e só depois de um período de carência, para não apagar um ficheiro
+ * que uma transação ainda por confirmar acabou de reutilizar. As variantes
+ * reduzidas ficam ao lado do original ({@code <hash>.<variante>.jpg}) e são
+ * removidas junto com ele.
+ */
+@Service
+public class ArmazenamentoImagemService {
+
+	private static final Logger LOGGER = Logger.getLogger(ArmazenamentoImagemService.class.getName());
+	private static final Pattern NOME_ARQUIVO = Pattern.compile("([0-9a-f]{64})(\\.[a-z]+\\.jpg)?");
+	private static final int LOTE_LIMPEZA = 500;
+
+	private final ImagemRepository imagemRepository;
+	private final Path raiz;
+	private final Duration carencia;
+
+	public ArmazenamentoImagemService(ImagemRepository imagemRepository,
+			@Value("${biblioteca.imagens.diretorio:imagens}") String diretorio,
+			@Value("${biblioteca.imagens.limpeza-carencia:PT1H}") Duration carencia) {
+		this.imagemRepository = imagemRepository;
+		this.raiz = Paths.get(diretorio).toAbsolutePath();
+		this.carencia = carencia;
+	}
+
+	/**
+	 * Guarda o conteúdo no armazenamento, se ainda não existir, e devolve o seu
+	 * hash. A escrita passa por um ficheiro temporário seguido de um move atómico,
+	 * para que nunca se leia um ficheiro incompleto.
+	 *
+	 * @param conteudo Os bytes da imagem.
+	 * @return O SHA-256 do conteúdo em hexadecimal.
+	 */
+	public String guardar(byte[] conteudo) {
+		String hash = calcularHash(conteudo);
+		Path destino = caminho(hash);
+		try {
+			if (Files.exists(destino)) {
+				// Renova a data para a limpeza não remover um ficheiro acabado de reutilizar.
+				Files.setLastModifiedTime(destino, FileTime.from(Instant.now()));
+				return hash;
+			}
+			Files.createDirectories(destino.getParent());
+			Path temporario = Files.createTempFile(destino.getParent(), hash, ".tmp");
+			try {
+				Files.write(temporario, conteudo);
+				Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE);
+			} catch (FileAlreadyExistsException e) {
+				// Outro pedido guardou o mesmo conteúdo entretanto; o ficheiro é idêntico.
+			} finally {
+				Files.deleteIfExists(temporario);
+			}
+			return hash;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Não foi possível guardar a imagem " + hash, e);
+		}
+	}
+
+	public boolean existe(String hash) {
+		return Files.isRegularFile(caminho(hash));
+	}
+
+	public boolean existeVariante(String hash, VarianteImagem variante) {
+		return Files.isRegularFile(caminhoVariante(hash, variante));
+	}
+
+	public Path caminho(String hash) {
+		// Dois níveis de diretórios evitam pastas com centenas de milhares de ficheiros.
+		return raiz.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+	}
+
+	public Path caminhoVariante(String hash, VarianteImagem variante) {
+		return caminho(hash).resolveSibling(hash + "." + variante.getNome() + ".jpg");
+	}
+
+	/**
+	 * Guarda uma variante reduzida de uma imagem já armazenada.
+	 *
+	 * @param hash     O hash da imagem original.
+	 * @param variante A variante gerada.
+	 * @param conteudo Os bytes JPEG da variante.
+	 */
+	public void guardarVariante(String hash, VarianteImagem variante, byte[] conteudo) {
+		Path destino = caminhoVariante(hash, variante);
+		try {
+			Path temporario = Files.createTempFile(destino.getParent(), hash, ".tmp");
+			try {
+				Files.write(temporario, conteudo);
+				Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(temporario);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Não foi possível guardar a variante " + variante + " de " + hash, e);
+		}
+	}
+
+	/**
+	 * Localiza o ficheiro a enviar para uma imagem. Se a variante pedida ainda não
+	 * tiver sido gerada, devolve o original com {@code variantePronta = false}.
+	 *
+	 * @param imagem   Os metadados da imagem.
+	 * @param variante A variante pedida, ou {@code null} para o original.
+	 * @return O ficheiro a enviar e os seus metadados HTTP.
+	 */
+	public ArquivoImagem localizar(ImagemEntity imagem, VarianteImagem variante) throws IOException {
+		if (variante != null) {
+			Path arquivo = caminhoVariante(imagem.getHash(), variante);
+			if (Files.isRegularFile(arquivo)) {
+				return new ArquivoImagem(arquivo, imagem.getHash() + "-" + variante.getNome(), Files.size(arquivo),
+						"image/jpeg", true);
+			}
+		}
+		return new ArquivoImagem(caminho(imagem.getHash()), imagem.getHash(), imagem.getTamanho(),
+				imagem.getTipoConteudo(), variante == null);
+	}
+
+	/**
+	 * Copia um intervalo do ficheiro diretamente para o canal de destino.
+	 *
+	 * @param caminho     O ficheiro a enviar.
+	 * @param inicio      A posição do primeiro byte a enviar.
+	 * @param comprimento O número de bytes a enviar.
+	 * @param destino     O canal de saída (normalmente a resposta HTTP).
+	 */
+	public void transferir(Path caminho, long inicio, long comprimento, WritableByteChannel destino)
+			throws IOException {
+		try (FileChannel arquivo = FileChannel.open(caminho, StandardOpenOption.READ)) {
+			long posicao = inicio;
+			long restante = comprimento;
+			while (restante > 0) {
+				long enviados = arquivo.transferTo(posicao, restante, destino);
+				if (enviados <= 0) {
+					break;
+				}
+				posicao += enviados;
+				restante -= enviados;
+			}
+		}
+	}
+
+	/**
+	 * Remove os ficheiros que nenhuma imagem referencia há mais tempo do que o
+	 * período de carência.
+	 */
+	@Scheduled(cron = "${biblioteca.imagens.limpeza-cron:0 30 3 * * *}")
+	public void limparNaoReferenciados() {
+		if (!Files.isDirectory(raiz)) {
+			return;
+		}
+		Instant limite = Instant.now().minus(carencia);
+		List<Path> candidatos = new ArrayList<>();
+		int removidos = 0;
+		try (Stream<Path> arquivos = Files.walk(raiz)) {
+			for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+				if (Files.isRegularFile(arquivo) && NOME_ARQUIVO.matcher(arquivo.getFileName().toString()).matches()
+						&& Files.getLastModifiedTime(arquivo).toInstant().isBefore(limite)) {
+					candidatos.add(arquivo);
+					if (candidatos.size() == LOTE_LIMPEZA) {
+						removidos += removerNaoReferenciados(candidatos);
+						candidatos.clear();
+					}
+				}
+			}
+			removidos += removerNaoReferenciados(candidatos);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Falha na limpeza do armazenamento de imagens", e);
+		}
+		if (removidos > 0) {
+			LOGGER.log(Level.INFO, "Removidas {0} imagens não referenciadas", removidos);
+		}
+	}
+
+	private int removerNaoReferenciados(List<Path> candidatos) throws IOException {
+		if (candidatos.isEmpty()) {
+			return 0;
+		}
+		Set<String> referenciados = imagemRepository
+				.findHashesReferenciados(candidatos.stream().map(ArmazenamentoImagemService::hashDoArquivo).toList());
+		int removidos = 0;
+		for (Path arquivo : candidatos) {
+			if (!referenciados.contains(hashDoArquivo(arquivo)) && Files.deleteIfExists(arquivo)) {
+				removidos++;
+			}
+		}
+		return removidos;
+	}
+
+	private static String hashDoArquivo(Path arquivo) {
+		Matcher matcher = NOME_ARQUIVO.matcher(arquivo.getFileName().toString());
+		return matcher.matches() ? matcher.group(1) : "";
+	}
+
+	private static String calcularHash(byte[] conteudo) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(conteudo));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 não está disponível nesta JVM", e);
+		}
+	}
+
+	/**
+	 * Identifica o formato da imagem pelos primeiros bytes do conteúdo.
+	 *
+	 * @param conteudo Os bytes da imagem.
+	 * @return O media type correspondente, ou application/octet-stream.
+	 */
+	public static String detectarTipo(byte[] conteudo) {
+		if (comecaCom(conteudo, 0xFF, 0xD8, 0xFF)) {
+			return "image/jpeg";
+		}
+		if (comecaCom(conteudo, 0x89, 'P', 'N', 'G')) {
+			return "image/png";
+		}
+		if (comecaCom(conteudo, 'G', 'I', 'F', '8')) {
+			return "image/gif";
+		}
+		if (comecaCom(conteudo, 'R', 'I', 'F', 'F') && conteudo.length >= 12 && conteudo[8] == 'W'
+				&& conteudo[9] == 'E' && conteudo[10] == 'B' && conteudo[11] == 'P') {
+			return "image/webp";
+		}
+		return "application/octet-stream";
+	}
+
+	private static boolean comecaCom(byte[] conteudo, int... assinatura) {
+		if (conteudo.length < assinatura.length) {
+			return false;
+		}
+		for (int i = 0; i < assinatura.length; i++) {
+			if ((conteudo[i] & 0xFF) != assinatura[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Ficheiro de imagem pronto a ser enviado.
+	 *
+	 * @param caminho         O ficheiro em disco.
+	 * @param etag            O valor do ETag forte (sem aspas).
+	 * @param tamanho         O tamanho do ficheiro em bytes.
+	 * @param tipoConteudo    O media type do ficheiro.
+	 * @param variantePronta  {@code false} quando foi pedida uma variante que ainda não existe e se devolve o original.
+	 */
+	public record ArquivoImagem(Path caminho, String etag, long tamanho, String tipoConteudo, boolean variantePronta) {
+	}
+}
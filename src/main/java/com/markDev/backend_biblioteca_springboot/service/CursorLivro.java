@@ -0,0 +1,61 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.markDev.backend_biblioteca_springboot.exception.RequisicaoInvalidaException;
+import com.markDev.backend_biblioteca_springboot.repository.projection.LivroResumo;
+
+/**
+ * Posição na listagem paginada: o valor da coluna de ordenação e o id do último
+ * livro devolvido. Vai para o cliente como texto opaco em Base64 (URL-safe).
+ *
+ * @param ordenacao A ordenação em que o cursor foi criado.
+ * @param id        O id do último livro da página.
+ * @param chave     O valor da coluna de ordenação desse livro ({@code null} para ano vazio ou ordenação por id).
+ */
+public record CursorLivro(OrdenacaoLivro ordenacao, Long id, String chave) {
+
+	/** Cursor da primeira página: antes de qualquer livro. */
+	public static CursorLivro inicio(OrdenacaoLivro ordenacao) {
+		// Os títulos e autores nunca são nulos: "" fica antes de qualquer valor.
+		boolean texto = ordenacao == OrdenacaoLivro.TITULO || ordenacao == OrdenacaoLivro.AUTOR;
+		return new CursorLivro(ordenacao, 0L, texto ? "" : null);
+	}
+
+	public static CursorLivro apos(OrdenacaoLivro ordenacao, LivroResumo resumo) {
+		return new CursorLivro(ordenacao, resumo.getId(), ordenacao.chaveDe(resumo));
+	}
+
+	public String codificar() {
+		String texto = ordenacao.getNome() + ":" + id + (chave == null ? "" : ":" + chave);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Lê um cursor recebido do cliente.
+	 *
+	 * @param cursor    O texto devolvido numa página anterior, ou {@code null} para a primeira página.
+	 * @param ordenacao A ordenação pedida, que tem de ser a mesma do cursor.
+	 * @throws RequisicaoInvalidaException se o cursor for inválido ou de outra ordenação.
+	 */
+	public static CursorLivro decodificar(String cursor, OrdenacaoLivro ordenacao) {
+		if (cursor == null || cursor.isBlank()) {
+			return inicio(ordenacao);
+		}
+		try {
+			String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] partes = texto.split(":", 3);
+			if (partes.length < 2 || !partes[0].equals(ordenacao.getNome())) {
+				throw new RequisicaoInvalidaException("O cursor não corresponde à ordenação " + ordenacao.getNome() + ".");
+			}
+			String chave = partes.length == 3 ? partes[2] : null;
+			if (ordenacao == OrdenacaoLivro.ANO && chave != null) {
+				Integer.parseInt(chave);
+			}
+			return new CursorLivro(ordenacao, Long.parseLong(partes[1]), chave);
+		} catch (IllegalArgumentException e) {
+			throw new RequisicaoInvalidaException("Cursor de paginação inválido.");
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.markDev.backend_biblioteca_springboot.exception.RequisicaoInvalidaException;
+
+/**
+ * Posição na sincronização incremental: a revisão e o id da última alteração
+ * (livro alterado ou excluído) já entregue ao cliente. Vai para o cliente como
+ * texto opaco em Base64 (URL-safe), tal como o {@link CursorLivro}.
+ *
+ * @param revisao A revisão da estante da última alteração entregue.
+ * @param id      O id do livro dessa alteração; {@link Long#MAX_VALUE} quando a
+ *                revisão inteira já foi entregue.
+ */
+public record CursorMudancas(long revisao, long id) {
+
+	private static final String PREFIXO = "m";
+
+	/** Cursor do início: todos os livros, sem exclusões (o cliente ainda não tem nada). */
+	public static final CursorMudancas INICIO = new CursorMudancas(0, 0);
+
+	/** Cursor depois de todas as alterações até à revisão indicada, inclusive. */
+	public static CursorMudancas aposRevisao(long revisao) {
+		return new CursorMudancas(revisao, Long.MAX_VALUE);
+	}
+
+	public boolean isInicio() {
+		return revisao == 0 && id == 0;
+	}
+
+	/** Indica se esta posição vem antes da alteração (revisão, id). */
+	public boolean antesDe(long outraRevisao, long outroId) {
+		return revisao < outraRevisao || (revisao == outraRevisao && id < outroId);
+	}
+
+	public String codificar() {
+		String texto = PREFIXO + ":" + revisao + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Lê um cursor recebido do cliente.
+	 *
+	 * @param cursor O texto devolvido numa sincronização anterior, ou {@code null} para começar do início.
+	 * @throws RequisicaoInvalidaException se o cursor for inválido.
+	 */
+	public static CursorMudancas decodificar(String cursor) {
+		if (cursor == null || cursor.isBlank()) {
+			return INICIO;
+		}
+		try {
+			String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+			if (partes.length != 3 || !partes[0].equals(PREFIXO)) {
+				throw new RequisicaoInvalidaException("Cursor de sincronização inválido.");
+			}
+			return new CursorMudancas(Long.parseLong(partes[1]), Long.parseLong(partes[2]));
+		} catch (IllegalArgumentException e) {
+			throw new RequisicaoInvalidaException("Cursor de sincronização inválido.");
+		}
+	}
+}
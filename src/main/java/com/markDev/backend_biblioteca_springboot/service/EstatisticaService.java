@@ -0,0 +1,194 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.markDev.backend_biblioteca_springboot.dto.EstatisticasDTO;
+import com.markDev.backend_biblioteca_springboot.entity.EstatisticaBibliotecaEntity;
+import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
+import com.markDev.backend_biblioteca_springboot.entity.UserEntity;
+import com.markDev.backend_biblioteca_springboot.repository.EstatisticaBibliotecaRepository;
+import com.markDev.backend_biblioteca_springboot.repository.EstatisticaDecadaRepository;
+import com.markDev.backend_biblioteca_springboot.repository.LivroRepository;
+import com.markDev.backend_biblioteca_springboot.repository.VersaoBibliotecaRepository;
+import com.markDev.backend_biblioteca_springboot.repository.projection.AgregadoDecada;
+
+/**
+ * Mantém as estatísticas da estante de cada utilizador (totais, lidos,
+ * emprestados, páginas lidas e livros por década) em
+ * {@code MK_ESTATISTICA_BIBLIOTECA} e {@code MK_ESTATISTICA_DECADA}, para
+ * que o painel as leia sem percorrer os livros.
+ * <p>
+ * Cada escrita na estante soma a sua {@link Variacao} na mesma transação, depois
+ * de ter bloqueado a linha da versão da estante; o recálculo a partir de
+ * agregados SQL bloqueia a mesma linha, por isso nunca se cruza com uma escrita
+ * a meio. Enquanto um utilizador não tiver o resumo, as variações são ignoradas
+ * e o resumo é calculado na primeira leitura.
+ */
+@Service
+public class EstatisticaService {
+
+	private final EstatisticaBibliotecaRepository resumoRepository;
+	private final EstatisticaDecadaRepository decadaRepository;
+	private final LivroRepository livroRepository;
+	private final VersaoBibliotecaRepository versaoBibliotecaRepository;
+
+	public EstatisticaService(EstatisticaBibliotecaRepository resumoRepository,
+			EstatisticaDecadaRepository decadaRepository, LivroRepository livroRepository,
+			VersaoBibliotecaRepository versaoBibliotecaRepository) {
+		this.resumoRepository = resumoRepository;
+		this.decadaRepository = decadaRepository;
+		this.livroRepository = livroRepository;
+		this.versaoBibliotecaRepository = versaoBibliotecaRepository;
+	}
+
+	/**
+	 * As estatísticas do utilizador: uma linha do resumo e as linhas das décadas.
+	 * Se o resumo ainda não existir, é calculado primeiro. Em READ COMMITTED, para
+	 * que o cálculo, já com a versão da estante bloqueada, veja as escritas
+	 * confirmadas depois da primeira leitura.
+	 */
+	@Transactional(isolation = Isolation.READ_COMMITTED)
+	public EstatisticasDTO obter(UserEntity user) {
+		EstatisticaBibliotecaEntity resumo = resumoRepository.findById(user.getId())
+				.orElseGet(() -> recalcular(user));
+		List<EstatisticasDTO.Decada> decadas = decadaRepository.findDecadas(user.getId()).stream()
+				.map(d -> new EstatisticasDTO.Decada(d.getDecada(), d.getTotal())).toList();
+		return new EstatisticasDTO(resumo.getTotal(), resumo.getLidos(), resumo.getEmprestados(),
+				resumo.getPaginasLidas(), resumo.getSemAno(), decadas);
+	}
+
+	/**
+	 * Recalcula as estatísticas do utilizador a partir dos livros, com uma consulta
+	 * agregada. Usado na primeira leitura, depois das alterações em lote e a pedido.
+	 */
+	@Transactional(isolation = Isolation.READ_COMMITTED)
+	public EstatisticaBibliotecaEntity recalcular(UserEntity user) {
+		Long userId = user.getId();
+		versaoBibliotecaRepository.bloquear(userId);
+		Variacao contagens = new Variacao();
+		for (AgregadoDecada agregado : livroRepository.agregarPorDecada(user)) {
+			contagens.somar(agregado, 1);
+		}
+
+		resumoRepository.gravar(userId, contagens.total, contagens.lidos, contagens.emprestados,
+				contagens.paginasLidas, contagens.semAno);
+		decadaRepository.deleteByUserId(userId);
+		contagens.decadas.forEach((decada, total) -> decadaRepository.somar(userId, decada, total));
+
+		EstatisticaBibliotecaEntity resumo = new EstatisticaBibliotecaEntity(userId);
+		resumo.setTotal(contagens.total);
+		resumo.setLidos(contagens.lidos);
+		resumo.setEmprestados(contagens.emprestados);
+		resumo.setPaginasLidas(contagens.paginasLidas);
+		resumo.setSemAno(contagens.semAno);
+		return resumo;
+	}
+
+	/**
+	 * Soma uma variação às estatísticas do utilizador, na transação de quem chama
+	 * (que já tem de ter atribuído a revisão da escrita).
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void aplicar(UserEntity user, Variacao variacao) {
+		if (variacao.isVazia() || resumoRepository.somar(user.getId(), variacao.total, variacao.lidos,
+				variacao.emprestados, variacao.paginasLidas, variacao.semAno) == 0) {
+			return;
+		}
+		variacao.decadas.forEach((decada, total) -> {
+			if (total != 0) {
+				decadaRepository.somar(user.getId(), decada, total);
+			}
+		});
+	}
+
+	/**
+	 * Desconta das estatísticas os livros indicados, com uma consulta agregada feita
+	 * antes de os excluir.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void descontarExclusao(UserEntity user, Collection<Long> livroIds) {
+		Variacao variacao = new Variacao();
+		for (AgregadoDecada agregado : livroRepository.agregarPorDecada(user, livroIds)) {
+			variacao.somar(agregado, -1);
+		}
+		aplicar(user, variacao);
+	}
+
+	/**
+	 * O que um livro conta nas estatísticas.
+	 */
+	public record Contribuicao(boolean lido, boolean emprestado, int paginas, Integer ano) {
+
+		public static Contribuicao de(LivroEntity livro) {
+			int paginas = livro.getNumeroPaginas() != null ? livro.getNumeroPaginas() : 0;
+			return new Contribuicao(livro.isLido(), livro.isEmprestado(), paginas, livro.getAno());
+		}
+	}
+
+	/**
+	 * Uma variação das estatísticas, acumulada em memória (ex.: o estado antigo e o
+	 * novo de um livro alterado, ou todos os livros de um bloco) e aplicada de uma
+	 * vez com {@link EstatisticaService#aplicar(UserEntity, Variacao)}.
+	 */
+	public static final class Variacao {
+
+		private long total;
+		private long lidos;
+		private long emprestados;
+		private long paginasLidas;
+		private long semAno;
+		private final Map<Integer, Long> decadas = new TreeMap<>();
+
+		public Variacao adicionar(Contribuicao livro) {
+			somar(livro, 1);
+			return this;
+		}
+
+		public Variacao remover(Contribuicao livro) {
+			somar(livro, -1);
+			return this;
+		}
+
+		private void somar(Contribuicao livro, int sinal) {
+			total += sinal;
+			if (livro.lido()) {
+				lidos += sinal;
+				paginasLidas += (long) sinal * livro.paginas();
+			}
+			if (livro.emprestado()) {
+				emprestados += sinal;
+			}
+			if (livro.ano() == null) {
+				semAno += sinal;
+			} else {
+				decadas.merge(Math.floorDiv(livro.ano(), 10) * 10, (long) sinal, Long::sum);
+			}
+		}
+
+		private void somar(AgregadoDecada agregado, int sinal) {
+			long livros = sinal * agregado.getTotal().longValue();
+			total += livros;
+			lidos += sinal * agregado.getLidos().longValue();
+			emprestados += sinal * agregado.getEmprestados().longValue();
+			paginasLidas += sinal * agregado.getPaginasLidas().longValue();
+			if (agregado.getDecada() == null) {
+				semAno += livros;
+			} else {
+				decadas.merge(agregado.getDecada().intValue(), livros, Long::sum);
+			}
+		}
+
+		private boolean isVazia() {
+			return total == 0 && lidos == 0 && emprestados == 0 && paginasLidas == 0 && semAno == 0
+					&& decadas.values().stream().allMatch(n -> n == 0);
+		}
+	}
+}
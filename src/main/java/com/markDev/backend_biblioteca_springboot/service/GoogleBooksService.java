@@ -1,86 +1,324 @@
 package com.markDev.backend_biblioteca_springboot.service;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.markDev.backend_biblioteca_springboot.dto.BookSearchResultDTO;
-import com.markDev.backend_biblioteca_springboot.service.googlebooks.model.GoogleBooksResponse;
-import com.markDev.backend_biblioteca_springboot.service.googlebooks.model.VolumeItem;
+import com.markDev.backend_biblioteca_springboot.service.googlebooks.GoogleBooksException;
+import com.markDev.backend_biblioteca_springboot.service.googlebooks.GoogleBooksStreamingParser;
+import com.markDev.backend_biblioteca_springboot.service.googlebooks.SingleFlight;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * Serviço que atua como um proxy seguro para a API do Google Books. Esta versão
  * utiliza uma estratégia de busca refinada para maximizar a relevância dos
  * resultados.
+ * <p>
+ * As respostas ficam numa cache limitada em tamanho (Caffeine, com despejo
+ * W-TinyLFU, que favorece as consultas pedidas com frequência), indexada pela
+ * consulta normalizada. Depois do TTL, uma entrada ainda é servida durante a
+ * janela de "stale" enquanto é revalidada em segundo plano, para que nenhum
+ * utilizador espere pela API por uma consulta popular. Erros não são guardados.
+ * As estatísticas da cache ({@code cache.gets}) contam assim um acerto por cada
+ * busca servida da cache e uma falha por cada busca que foi à API.
+ * <p>
+ * Pedidos simultâneos da mesma consulta que não estejam na cache partilham uma
+ * única chamada à API ({@link SingleFlight}); cada um espera no máximo
+ * {@code google.books.timeout} pelo resultado.
+ * <p>
+ * As chamadas usam o {@link HttpClient} do JDK, que mantém um pool de ligações
+ * keep-alive, negocia HTTP/2 e tem timeouts explícitos de ligação e de resposta.
+ * Tudo é assíncrono: nenhuma thread fica bloqueada à espera da API.
+ * <p>
+ * Cada chamada passa por um circuit breaker e por um bulkhead
+ * ({@link com.markDev.backend_biblioteca_springboot.config.ResilienciaConfig}).
+ * Quando a API falha ou o circuito está aberto, devolve-se o último resultado
+ * bom conhecido para a consulta, guardado até {@code google.books.fallback.duracao}
+ * depois de obtido.
+ * <p>
+ * Cada chamada à API é medida em {@code google.books.chamadas}, com o resultado
+ * ({@code sucesso}, {@code erro}, ou {@code falha} sem resposta) e a classe do
+ * estado HTTP ({@code 2xx} a {@code 5xx}), e o número de livros de cada
+ * resposta em {@code google.books.resultados}.
  */
 @Service
 public class GoogleBooksService {
 
 	private static final Logger LOGGER = Logger.getLogger(GoogleBooksService.class.getName());
-	private static final String API_URL = "https://www.googleapis.com/books/v1/volumes";
 
 	@Value("${google.books.api.key}")
 	private String apiKey;
 
-	private final RestTemplate restTemplate = new RestTemplate();
-	private final ObjectMapper objectMapper = new ObjectMapper()
-			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	private final HttpClient httpClient;
+	private final String apiUrl;
+	private final Duration timeoutResposta;
+	private final GoogleBooksStreamingParser parser = new GoogleBooksStreamingParser();
+
+	private final Cache<String, ResultadoBusca> cache;
+	// Último resultado bom de cada consulta, só para o fallback; fica fora da cache para não contar nas estatísticas.
+	private final Cache<String, List<BookSearchResultDTO>> ultimosBons;
+	private final SingleFlight<String, List<BookSearchResultDTO>> consultasEmCurso;
+	private final CircuitBreaker circuitBreaker;
+	private final Bulkhead bulkhead;
+	private final Duration ttl;
+	private final Duration timeout;
+	private final DistributionSummary resultadosPorResposta;
+	// Os timers de google.books.chamadas: o índice 0 é a falha sem resposta, os outros a classe do estado HTTP.
+	private final Timer[] chamadas = new Timer[6];
+
+	public GoogleBooksService(MeterRegistry meterRegistry, CircuitBreaker googleBooksCircuitBreaker,
+			Bulkhead googleBooksBulkhead,
+			@Value("${google.books.api.url:https://www.googleapis.com/books/v1/volumes}") String apiUrl,
+			@Value("${google.books.http.timeout-ligacao:PT2S}") Duration timeoutLigacao,
+			@Value("${google.books.http.timeout-resposta:PT4S}") Duration timeoutResposta,
+			@Value("${google.books.cache.tamanho-maximo:10000}") long tamanhoMaximo,
+			@Value("${google.books.cache.ttl:PT10M}") Duration ttl,
+			@Value("${google.books.cache.stale:PT1H}") Duration stale,
+			@Value("${google.books.fallback.duracao:PT24H}") Duration duracaoFallback,
+			@Value("${google.books.timeout:PT5S}") Duration timeout) {
+		this.circuitBreaker = googleBooksCircuitBreaker;
+		this.bulkhead = googleBooksBulkhead;
+		this.apiUrl = apiUrl;
+		this.timeoutResposta = timeoutResposta;
+		this.ttl = ttl;
+		this.timeout = timeout;
+		this.resultadosPorResposta = DistributionSummary.builder("google.books.resultados")
+				.description("Livros devolvidos por resposta da API do Google Books").register(meterRegistry);
+		chamadas[0] = timerChamadas(meterRegistry, "falha", "-");
+		for (int classe = 1; classe < chamadas.length; classe++) {
+			chamadas[classe] = timerChamadas(meterRegistry, classe == 2 ? "sucesso" : "erro", classe + "xx");
+		}
+		this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).connectTimeout(timeoutLigacao)
+				.followRedirects(HttpClient.Redirect.NORMAL).build();
+		this.consultasEmCurso = new SingleFlight<>("googleBooks", meterRegistry);
+		// Depois do TTL e da janela de "stale" a entrada já não é servida.
+		this.cache = Caffeine.newBuilder().maximumSize(tamanhoMaximo).expireAfterWrite(ttl.plus(stale)).recordStats()
+				.build();
+		this.ultimosBons = Caffeine.newBuilder().maximumSize(tamanhoMaximo).expireAfterWrite(duracaoFallback).build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, "googleBooks");
+	}
 
 	/**
 	 * Busca livros na API do Google e retorna uma lista limpa de DTOs, já
-	 * reordenada para máxima relevância.
+	 * reordenada para máxima relevância. Em caso de erro ou timeout, o resultado
+	 * é o último resultado bom conhecido para a consulta, ou uma lista vazia.
 	 *
 	 * @param titulo O termo de busca para o título.
 	 * @param autor  O termo de busca para o autor.
-	 * @return Uma lista de BookSearchResultDTO com os resultados.
+	 * @return Uma lista de BookSearchResultDTO com os resultados, quando estiver pronta.
 	 */
-	public List<BookSearchResultDTO> buscarLivrosExterno(String titulo, String autor) {
-		String query = buildAdvancedQuery(titulo, autor);
+	public CompletableFuture<List<BookSearchResultDTO>> buscarLivrosExterno(String titulo, String autor) {
+		String query = normalizarConsulta(buildAdvancedQuery(titulo, autor));
 		if (query.isBlank()) {
-			return Collections.emptyList();
+			return CompletableFuture.completedFuture(Collections.emptyList());
 		}
 
-		try {
-			String urlFinal = UriComponentsBuilder.fromHttpUrl(API_URL).queryParam("q", query).queryParam("key", apiKey)
-					.queryParam("maxResults", 40).queryParam("printType", "books").toUriString();
+		ResultadoBusca emCache = cache.getIfPresent(query);
+		if (emCache != null) {
+			if (emCache.expirado(ttl)) {
+				revalidar(query);
+			}
+			return CompletableFuture.completedFuture(ordenarPorRelevancia(emCache.resultados(), titulo));
+		}
+		CompletableFuture<List<BookSearchResultDTO>> espera = consultasEmCurso.executar(query,
+				() -> buscarNaApi(query), timeout);
+		CompletableFuture<List<BookSearchResultDTO>> resultado = espera.exceptionally(erro -> {
+			registarFalha(query, erro);
+			// Último resultado bom: pode ser antigo, mas é melhor do que nada enquanto a API não responde.
+			List<BookSearchResultDTO> ultimo = ultimosBons.getIfPresent(query);
+			return ultimo != null ? ultimo : Collections.emptyList();
+		}).thenApply(resultados -> ordenarPorRelevancia(resultados, titulo));
+		// Quem cancela o resultado deixa de esperar; se era o último, a chamada à API é abortada.
+		cancelarJunto(resultado, espera);
+		return resultado;
+	}
 
-			LOGGER.log(Level.INFO, "URL de busca final: {0}", urlFinal);
+	private static void registarFalha(String query, Throwable erro) {
+		Throwable causa = causa(erro);
+		if (causa instanceof CancellationException) {
+			LOGGER.log(Level.FINE, "Busca cancelada para a consulta: {0}", query);
+		} else if (causa instanceof TimeoutException) {
+			LOGGER.log(Level.WARNING, "A API do Google Books não respondeu a tempo para a consulta: {0}", query);
+		} else if (causa instanceof CallNotPermittedException || causa instanceof BulkheadFullException) {
+			LOGGER.log(Level.WARNING, "Chamada ao Google Books recusada ({0}) para a consulta: {1}",
+					new Object[] { causa.getMessage(), query });
+		} else {
+			LOGGER.log(Level.SEVERE, "Erro ao chamar ou processar a API do Google Books para a consulta: " + query,
+					causa);
+		}
+	}
 
-			String respostaJson = restTemplate.getForObject(urlFinal, String.class);
-			GoogleBooksResponse response = objectMapper.readValue(respostaJson, GoogleBooksResponse.class);
+	/**
+	 * Atualiza em segundo plano uma entrada que passou do TTL. Se já houver uma chamada em
+	 * curso para a consulta, junta-se a ela. Se falhar, a entrada antiga continua
+	 * a ser servida até ao fim da janela de "stale".
+	 */
+	private void revalidar(String query) {
+		consultasEmCurso.executar(query, () -> buscarNaApi(query), timeout).whenComplete((resultados, erro) -> {
+			if (erro != null) {
+				registarFalha(query, erro);
+			}
+		});
+	}
 
-			if (response == null || response.getItems() == null) {
-				return Collections.emptyList();
+	/**
+	 * Chama a API através do bulkhead e do circuit breaker. Com o bulkhead cheio
+	 * ou o circuito aberto, falha de imediato sem tocar na rede. O bulkhead fica
+	 * por fora: uma recusa por excesso de chamadas simultâneas não é uma falha da
+	 * API e não pode contar para abrir o circuito.
+	 * <p>
+	 * Os decoradores devolvem futuros novos, que não passam o cancelamento ao
+	 * pedido HTTP; por isso cancelar o resultado cancela diretamente o futuro do
+	 * {@link HttpClient#sendAsync}, o que aborta a troca com a API.
+	 */
+	private CompletableFuture<List<BookSearchResultDTO>> buscarNaApi(String query) {
+		AtomicReference<CompletableFuture<?>> envio = new AtomicReference<>();
+		CompletableFuture<List<BookSearchResultDTO>> chamada = Bulkhead
+				.decorateCompletionStage(bulkhead,
+						CircuitBreaker.decorateCompletionStage(circuitBreaker, () -> enviarPedido(query, envio)))
+				.get().toCompletableFuture();
+		chamada.whenComplete((resultados, erro) -> {
+			CompletableFuture<?> pedido = envio.get();
+			if (chamada.isCancelled() && pedido != null) {
+				pedido.cancel(true);
 			}
+		});
+		return chamada;
+	}
 
-			List<BookSearchResultDTO> resultados = response.getItems().stream()
-					.filter(item -> item != null && item.getVolumeInfo() != null).map(this::convertToStandardDTO)
-					.collect(Collectors.toList());
+	/** Tira o erro de dentro da {@link CompletionException} com que os futuros o embrulham. */
+	private static Throwable causa(Throwable erro) {
+		return erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+	}
 
-			// Reordena a nossa lista de DTOs com base nos critérios de relevância.
-			resultados.sort(Comparator
-					.comparing((BookSearchResultDTO dto) -> "pt".equalsIgnoreCase(dto.getIdioma()) ? 0 : 1)
-					.thenComparing(
-							dto -> titulo != null && !titulo.isBlank() && titulo.equalsIgnoreCase(dto.getTitulo()) ? 0
-									: 1));
+	/** Cancela {@code origem} quando {@code dependente} for cancelado. */
+	private static void cancelarJunto(CompletableFuture<?> dependente, CompletableFuture<?> origem) {
+		dependente.whenComplete((valor, erro) -> {
+			if (dependente.isCancelled()) {
+				origem.cancel(true);
+			}
+		});
+	}
 
-			return resultados;
+	/**
+	 * Envia o pedido à API sem bloquear e guarda o resultado na cache quando
+	 * chega. Respostas que não sejam 2xx contam como erro e não ficam em cache.
+	 */
+	private CompletableFuture<List<BookSearchResultDTO>> enviarPedido(String query,
+			AtomicReference<CompletableFuture<?>> envio) {
+		URI uri = UriComponentsBuilder.fromHttpUrl(apiUrl).queryParam("q", query).queryParam("key", apiKey)
+				.queryParam("maxResults", 40).queryParam("printType", "books").encode().build().toUri();
+
+		LOGGER.log(Level.INFO, "URL de busca final: {0}", uri);
 
-		} catch (Exception e) {
-			LOGGER.log(Level.SEVERE, "Erro ao chamar ou processar a API do Google Books para a consulta: " + query, e);
-			return Collections.emptyList();
+		HttpRequest pedido = HttpRequest.newBuilder(uri).timeout(timeoutResposta).header("Accept", "application/json")
+				.GET().build();
+		long inicio = System.nanoTime();
+		CompletableFuture<HttpResponse<byte[]>> pedidoHttp = httpClient.sendAsync(pedido,
+				HttpResponse.BodyHandlers.ofByteArray());
+		envio.set(pedidoHttp);
+		return pedidoHttp
+				.whenComplete((resposta, erro) -> {
+					// Um pedido cancelado não diz nada sobre a latência da API.
+					if (!(causa(erro) instanceof CancellationException)) {
+						registarChamada(resposta, System.nanoTime() - inicio);
+					}
+				})
+				.thenApply(resposta -> {
+					if (resposta.statusCode() / 100 != 2) {
+						throw new GoogleBooksException("A API do Google Books respondeu com HTTP " + resposta.statusCode(),
+								resposta.statusCode());
+					}
+					List<BookSearchResultDTO> resultados = converterResposta(resposta.body());
+					resultadosPorResposta.record(resultados.size());
+					cache.put(query, new ResultadoBusca(resultados, System.nanoTime()));
+					ultimosBons.put(query, resultados);
+					return resultados;
+				});
+	}
+
+	private static Timer timerChamadas(MeterRegistry meterRegistry, String resultado, String estado) {
+		return Timer.builder("google.books.chamadas").description("Latência das chamadas à API do Google Books")
+				.tag("resultado", resultado).tag("estado", estado).register(meterRegistry);
+	}
+
+	/** Regista a latência de uma chamada à API; sem resposta (timeout, erro de rede), conta como falha. */
+	private void registarChamada(HttpResponse<?> resposta, long nanos) {
+		int classe = resposta == null ? 0 : Math.min(Math.max(resposta.statusCode() / 100, 1), chamadas.length - 1);
+		chamadas[classe].record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Converte o corpo da resposta da API numa lista de DTOs, sem ordenar. O corpo
+	 * é lido com o parser de streaming, que só materializa os campos usados. O
+	 * HttpClient entrega-o sem bloquear como um único array de bytes; ler do
+	 * InputStream da ligação obrigaria a bloquear uma thread à espera da rede.
+	 */
+	private List<BookSearchResultDTO> converterResposta(byte[] respostaJson) {
+		try {
+			return List.copyOf(parser.ler(new ByteArrayInputStream(respostaJson)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
+	/**
+	 * Reordena os resultados com base nos critérios de relevância. Devolve uma
+	 * cópia, já que a lista original é partilhada pela cache. Visível no pacote
+	 * para o benchmark JMH.
+	 */
+	static List<BookSearchResultDTO> ordenarPorRelevancia(List<BookSearchResultDTO> resultados,
+			String titulo) {
+		List<BookSearchResultDTO> ordenados = new ArrayList<>(resultados);
+		ordenados.sort(Comparator
+				.comparing((BookSearchResultDTO dto) -> "pt".equalsIgnoreCase(dto.getIdioma()) ? 0 : 1)
+				.thenComparing(
+						dto -> titulo != null && !titulo.isBlank() && titulo.equalsIgnoreCase(dto.getTitulo()) ? 0
+								: 1));
+		return ordenados;
+	}
+
+	/**
+	 * Normaliza a consulta para servir de chave da cache: "Dom  Casmurro" e "dom
+	 * casmurro" dão os mesmos resultados na API e partilham a mesma entrada.
+	 */
+	private static String normalizarConsulta(String query) {
+		return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+	}
+
 	/**
 	 * Constrói a string de consulta para a API do Google. Esta versão combina os
 	 * termos de forma mais genérica para permitir que o algoritmo de relevância do
@@ -102,30 +340,11 @@ public class GoogleBooksService {
 		return queryBuilder.toString();
 	}
 
-	private BookSearchResultDTO convertToStandardDTO(VolumeItem item) {
-		var volumeInfo = item.getVolumeInfo();
-		BookSearchResultDTO dto = new BookSearchResultDTO();
-
-		dto.setTitulo(volumeInfo.getTitle() != null ? volumeInfo.getTitle() : "Sem título");
-		dto.setAutor(volumeInfo.getAuthors() != null && !volumeInfo.getAuthors().isEmpty()
-				? String.join(", ", volumeInfo.getAuthors())
-				: "Autor desconhecido");
-		dto.setSinopse(volumeInfo.getDescription());
-		dto.setNumeroPaginas(volumeInfo.getPageCount());
-		dto.setIdioma(volumeInfo.getLanguage());
-
-		if (volumeInfo.getPublishedDate() != null && volumeInfo.getPublishedDate().matches("\\d{4}.*")) {
-			try {
-				dto.setAno(Integer.parseInt(volumeInfo.getPublishedDate().substring(0, 4)));
-			} catch (NumberFormatException e) {
-				/* ignora */ }
-		}
+	/** Resultados de uma consulta e o instante ({@link System#nanoTime()}) em que foram obtidos. */
+	private record ResultadoBusca(List<BookSearchResultDTO> resultados, long obtidoEm) {
 
-		if (volumeInfo.getImageLinks() != null && volumeInfo.getImageLinks().getThumbnail() != null) {
-			String capaUrl = volumeInfo.getImageLinks().getThumbnail().replace("&zoom=1", "&zoom=0")
-					.replace("&edge=curl", "");
-			dto.setCapaUrl(capaUrl);
+		boolean expirado(Duration ttl) {
+			return System.nanoTime() - obtidoEm > ttl.toNanos();
 		}
-		return dto;
 	}
 }
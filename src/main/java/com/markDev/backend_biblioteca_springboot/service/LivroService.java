@@ -1,19 +1,74 @@
 package com.markDev.backend_biblioteca_springboot.service;
 
+import com.markDev.backend_biblioteca_springboot.dto.AtualizacaoLoteDTO;
+import com.markDev.backend_biblioteca_springboot.dto.EstatisticasDTO;
+import com.markDev.backend_biblioteca_springboot.dto.ExclusaoLoteDTO;
+import com.markDev.backend_biblioteca_springboot.dto.FiltroLivrosDTO;
+import com.markDev.backend_biblioteca_springboot.dto.ItemLoteDTO;
 import com.markDev.backend_biblioteca_springboot.dto.LivroDTO;
+import com.markDev.backend_biblioteca_springboot.dto.MudancasDTO;
+import com.markDev.backend_biblioteca_springboot.dto.PaginaDTO;
+import com.markDev.backend_biblioteca_springboot.dto.ResultadoLoteDTO;
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
 import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
+import com.markDev.backend_biblioteca_springboot.entity.LivroExcluidoEntity;
 import com.markDev.backend_biblioteca_springboot.entity.UserEntity;
+import com.markDev.backend_biblioteca_springboot.entity.VersaoBibliotecaEntity;
+import com.markDev.backend_biblioteca_springboot.event.ImagemGuardadaEvent;
+import com.markDev.backend_biblioteca_springboot.event.LivroSalvoEvent;
+import com.markDev.backend_biblioteca_springboot.event.LivrosExcluidosEvent;
+import com.markDev.backend_biblioteca_springboot.exception.PreCondicaoFalhouException;
 import com.markDev.backend_biblioteca_springboot.exception.RecursoNaoEncontradoException;
+import com.markDev.backend_biblioteca_springboot.exception.RequisicaoInvalidaException;
+import com.markDev.backend_biblioteca_springboot.mapper.LivroMapper;
+import com.markDev.backend_biblioteca_springboot.repository.ImagemRepository;
+import com.markDev.backend_biblioteca_springboot.repository.LivroExcluidoRepository;
 import com.markDev.backend_biblioteca_springboot.repository.LivroRepository;
 import com.markDev.backend_biblioteca_springboot.repository.UserRepository;
-import org.springframework.beans.BeanUtils;
+import com.markDev.backend_biblioteca_springboot.repository.VersaoBibliotecaRepository;
+import com.markDev.backend_biblioteca_springboot.repository.projection.LivroResumo;
+import com.markDev.backend_biblioteca_springboot.security.UsuarioAutenticado;
+import com.markDev.backend_biblioteca_springboot.service.EstatisticaService.Contribuicao;
+import com.markDev.backend_biblioteca_springboot.service.EstatisticaService.Variacao;
+import com.markDev.backend_biblioteca_springboot.service.busca.IndiceBuscaLivros;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -23,13 +78,52 @@ import java.util.stream.Collectors;
  * A principal característica desta versão segura é que **todas as operações são
  * realizadas no contexto do utilizador atualmente autenticado**, garantindo que um
  * utilizador só possa ver e manipular os seus próprios livros.
+ * <p>
+ * O tempo de cada método público é medido no timer {@code livros.servico}
+ * (etiquetas {@code class}, {@code method} e {@code exception}).
  */
 @Service
+@Timed(value = "livros.servico", description = "Tempo dos métodos do LivroService")
 public class LivroService {
 
+    private static final int LIMITE_IN = 1000;
+
     //<editor-fold desc="Dependências">
     private final LivroRepository livroRepository;
     private final UserRepository userRepository;
+    private final ImagemRepository imagemRepository;
+    private final VersaoBibliotecaRepository versaoBibliotecaRepository;
+    private final LivroExcluidoRepository livroExcluidoRepository;
+    private final ArmazenamentoImagemService armazenamentoImagemService;
+    private final EstatisticaService estatisticaService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IndiceBuscaLivros indiceBuscaLivros;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final LivroMapper livroMapper;
+
+    @Value("${biblioteca.paginacao.tamanho-padrao:50}")
+    private int tamanhoPaginaPadrao;
+
+    @Value("${biblioteca.paginacao.tamanho-maximo:200}")
+    private int tamanhoPaginaMaximo;
+
+    @Value("${biblioteca.busca.limite-resultados:100}")
+    private int limiteResultadosBusca;
+
+    @Value("${biblioteca.sincronizacao.retencao-exclusoes:P90D}")
+    private Duration retencaoExclusoes;
+
+    @Value("${biblioteca.lote.maximo-itens:10000}")
+    private int maximoItensLote;
+
+    @Value("${biblioteca.lote.livros-por-transacao:500}")
+    private int livrosPorTransacao;
+
+    @Value("${biblioteca.lote.tamanho-jdbc:50}")
+    private int tamanhoLoteJdbc;
 
     /**
      * Injeção de dependência via construtor. Esta é a prática recomendada pelo Spring
@@ -37,10 +131,40 @@ public class LivroService {
      *
      * @param livroRepository O repositório para acesso aos dados dos livros.
      * @param userRepository O repositório para acesso aos dados dos utilizadores.
+     * @param imagemRepository O repositório das imagens, excluídas junto com os livros.
+     * @param versaoBibliotecaRepository A versão da estante de cada utilizador (ETag da listagem).
+     * @param livroExcluidoRepository Os registos das exclusões, para a sincronização incremental.
+     * @param armazenamentoImagemService O armazenamento em disco dos bytes das imagens.
+     * @param estatisticaService As estatísticas da estante, atualizadas em cada escrita.
+     * @param eventPublisher Publica os eventos tratados depois do commit (ex.: geração de miniaturas).
+     * @param indiceBuscaLivros O índice em memória usado pela busca local.
+     * @param transactionTemplate As transações de cada bloco da inserção em lote.
+     * @param entityManager Usado na inserção em lote, para controlar a ordem dos INSERTs.
+     * @param validator Valida cada item da inserção em lote e o resultado de um PATCH.
+     * @param objectMapper Aplica os documentos JSON Merge Patch ao livro.
+     * @param livroMapper As conversões entre a entidade, o DTO e a projeção da listagem.
      */
-    public LivroService(LivroRepository livroRepository, UserRepository userRepository) {
+    public LivroService(LivroRepository livroRepository, UserRepository userRepository,
+            ImagemRepository imagemRepository, VersaoBibliotecaRepository versaoBibliotecaRepository,
+            LivroExcluidoRepository livroExcluidoRepository,
+            ArmazenamentoImagemService armazenamentoImagemService, EstatisticaService estatisticaService,
+            ApplicationEventPublisher eventPublisher,
+            IndiceBuscaLivros indiceBuscaLivros, TransactionTemplate transactionTemplate, EntityManager entityManager,
+            Validator validator, ObjectMapper objectMapper, LivroMapper livroMapper) {
         this.livroRepository = livroRepository;
         this.userRepository = userRepository;
+        this.imagemRepository = imagemRepository;
+        this.versaoBibliotecaRepository = versaoBibliotecaRepository;
+        this.livroExcluidoRepository = livroExcluidoRepository;
+        this.armazenamentoImagemService = armazenamentoImagemService;
+        this.estatisticaService = estatisticaService;
+        this.eventPublisher = eventPublisher;
+        this.indiceBuscaLivros = indiceBuscaLivros;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.livroMapper = livroMapper;
     }
     //</editor-fold>
 
@@ -48,14 +172,169 @@ public class LivroService {
     /**
      * Lista todos os livros PERTENCENTES AO UTILIZADOR ATUALMENTE AUTENTICADO.
      * A segurança é garantida ao filtrar os resultados pelo utilizador obtido do contexto de segurança.
+     * As imagens não são lidas: cada livro traz apenas a referência (URL e tamanho) da capa e contracapa.
      *
      * @return Uma lista de LivroDTO contendo os livros do utilizador.
      */
     @Transactional(readOnly = true)
     public List<LivroDTO> listarTodos() {
         UserEntity currentUser = getCurrentUser();
-        List<LivroEntity> livros = livroRepository.findByUser(currentUser);
-        return livros.stream().map(this::toDTO).collect(Collectors.toList());
+        List<LivroResumo> livros = livroRepository.findResumosByUser(currentUser);
+        return livros.stream().map(livroMapper::paraDTO).collect(Collectors.toList());
+    }
+
+    /**
+     * O ETag da estante do utilizador autenticado: o seu ID e a versão da estante, que muda em
+     * cada inserção, alteração ou exclusão. Custa uma leitura pela chave primária, sem ler
+     * nenhum livro; deve ser obtido antes da listagem, para que uma alteração pelo meio dê
+     * quando muito um ETag antigo com dados novos, e nunca o contrário.
+     *
+     * @return O ETag, sem aspas.
+     */
+    @Transactional(readOnly = true)
+    public String etagBiblioteca() {
+        UserEntity currentUser = getCurrentUser();
+        long versao = versaoBibliotecaRepository.findVersao(currentUser.getId()).orElse(0L);
+        return currentUser.getId() + "-" + versao;
+    }
+
+    /**
+     * Lê um livro do utilizador autenticado, só com as colunas da listagem.
+     *
+     * @param id O ID do livro.
+     * @return O livro, com a versão (o seu ETag) e as referências das imagens.
+     * @throws RecursoNaoEncontradoException se o livro não for encontrado ou não pertencer ao utilizador.
+     */
+    @Transactional(readOnly = true)
+    public LivroDTO buscarPorId(Long id) {
+        UserEntity currentUser = getCurrentUser();
+        return livroRepository.findResumoByIdAndUser(id, currentUser).map(livroMapper::paraDTO)
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Livro com ID " + id + " não encontrado para este utilizador."));
+    }
+
+    /**
+     * A versão atual de um livro do utilizador autenticado, lida sem carregar o livro.
+     *
+     * @param id O ID do livro.
+     * @return A versão, que é o ETag do livro.
+     * @throws RecursoNaoEncontradoException se o livro não for encontrado ou não pertencer ao utilizador.
+     */
+    @Transactional(readOnly = true)
+    public long versaoLivro(Long id) {
+        UserEntity currentUser = getCurrentUser();
+        return livroRepository.findVersaoByIdAndUser(id, currentUser)
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Livro com ID " + id + " não encontrado para este utilizador."));
+    }
+
+    /**
+     * Lista uma página dos livros do utilizador autenticado, continuando a partir do cursor
+     * devolvido na página anterior. Usa paginação por chave (keyset) sobre os índices
+     * (user_id, coluna, id), por isso o custo de cada página é o mesmo em qualquer posição
+     * da estante, ao contrário de OFFSET.
+     *
+     * @param ordenarPor A coluna de ordenação: titulo, autor, ano ou id.
+     * @param cursor O cursor devolvido na página anterior, ou {@code null} para a primeira.
+     * @param tamanho O número de livros por página, ou {@code null} para o padrão configurado.
+     * @return A página de livros e o cursor da seguinte.
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<LivroDTO> listarPagina(String ordenarPor, String cursor, Integer tamanho) {
+        OrdenacaoLivro ordenacao = OrdenacaoLivro.porNome(ordenarPor);
+        CursorLivro posicao = CursorLivro.decodificar(cursor, ordenacao);
+        int limite = tamanho == null ? tamanhoPaginaPadrao : Math.max(1, Math.min(tamanho, tamanhoPaginaMaximo));
+        // Pede-se um livro a mais só para saber se existe uma página seguinte.
+        Pageable linhas = PageRequest.of(0, limite + 1);
+        UserEntity currentUser = getCurrentUser();
+
+        List<LivroResumo> resumos = switch (ordenacao) {
+            case TITULO -> livroRepository.findPaginaPorTitulo(currentUser, posicao.chave(), posicao.id(), linhas);
+            case AUTOR -> livroRepository.findPaginaPorAutor(currentUser, posicao.chave(), posicao.id(), linhas);
+            case ANO -> posicao.chave() == null
+                    ? livroRepository.findPaginaPorAnoAposSemAno(currentUser, posicao.id(), linhas)
+                    : livroRepository.findPaginaPorAno(currentUser, Integer.valueOf(posicao.chave()), posicao.id(), linhas);
+            case ID -> livroRepository.findPaginaPorId(currentUser, posicao.id(), linhas);
+        };
+
+        String proximoCursor = null;
+        if (resumos.size() > limite) {
+            resumos = resumos.subList(0, limite);
+            proximoCursor = CursorLivro.apos(ordenacao, resumos.get(limite - 1)).codificar();
+        }
+        return new PaginaDTO<>(resumos.stream().map(livroMapper::paraDTO).collect(Collectors.toList()), proximoCursor);
+    }
+
+    /**
+     * Devolve as alterações da estante do utilizador autenticado desde um cursor: os livros criados
+     * ou alterados e os ids dos excluídos, por ordem de revisão. Sem cursor devolve todos os livros
+     * (sem exclusões, que um cliente vazio não precisa). Se nada mudou desde o cursor, a resposta
+     * custa uma só leitura pela chave primária.
+     * <p>
+     * Tudo corre numa transação só de leitura, para que a versão e as consultas vejam o mesmo
+     * estado: o cursor final é a versão lida, e todas as revisões até ela já estão confirmadas.
+     *
+     * @param desde O cursor devolvido na sincronização anterior, ou {@code null} para começar.
+     * @param tamanho O número máximo de alterações, ou {@code null} para o tamanho de página padrão.
+     * @return As alterações, o cursor seguinte e se há mais páginas.
+     */
+    @Transactional(readOnly = true)
+    public MudancasDTO listarMudancas(String desde, Integer tamanho) {
+        CursorMudancas cursor = CursorMudancas.decodificar(desde);
+        int limite = tamanho == null ? tamanhoPaginaPadrao : Math.max(1, Math.min(tamanho, tamanhoPaginaMaximo));
+        UserEntity currentUser = getCurrentUser();
+        VersaoBibliotecaEntity versao = versaoBibliotecaRepository.findById(currentUser.getId()).orElse(null);
+        long versaoAtual = versao == null ? 0 : versao.getVersao();
+
+        if (!cursor.isInicio() && versao != null && cursor.revisao() < versao.getHorizonte()) {
+            return new MudancasDTO(List.of(), List.of(), null, false, true);
+        }
+        if (!cursor.antesDe(versaoAtual, Long.MAX_VALUE)) {
+            return new MudancasDTO(List.of(), List.of(), cursor.codificar(), false, false);
+        }
+
+        Pageable linhas = PageRequest.of(0, limite + 1);
+        List<LivroResumo> livros = livroRepository.findMudancasApos(currentUser, cursor.revisao(), cursor.id(),
+                versaoAtual, linhas);
+        List<LivroExcluidoEntity> exclusoes = cursor.isInicio() ? List.of()
+                : livroExcluidoRepository.findMudancasApos(currentUser.getId(), cursor.revisao(), cursor.id(),
+                        versaoAtual, linhas);
+
+        // Junta as duas listas, já ordenadas por (revisão, id), até ao limite da página.
+        List<LivroDTO> alterados = new ArrayList<>();
+        List<Long> excluidos = new ArrayList<>();
+        CursorMudancas ultimo = cursor;
+        int l = 0;
+        int e = 0;
+        while (l + e < limite && (l < livros.size() || e < exclusoes.size())) {
+            LivroResumo livro = l < livros.size() ? livros.get(l) : null;
+            LivroExcluidoEntity exclusao = e < exclusoes.size() ? exclusoes.get(e) : null;
+            CursorMudancas posicaoLivro = livro == null ? null : new CursorMudancas(livro.getRevisao(), livro.getId());
+            if (exclusao == null
+                    || (posicaoLivro != null && posicaoLivro.antesDe(exclusao.getRevisao(), exclusao.getLivroId()))) {
+                alterados.add(livroMapper.paraDTO(livro));
+                ultimo = posicaoLivro;
+                l++;
+            } else {
+                excluidos.add(exclusao.getLivroId());
+                ultimo = new CursorMudancas(exclusao.getRevisao(), exclusao.getLivroId());
+                e++;
+            }
+        }
+        boolean temMais = l < livros.size() || e < exclusoes.size();
+        CursorMudancas proximo = temMais ? ultimo : CursorMudancas.aposRevisao(versaoAtual);
+        return new MudancasDTO(alterados, excluidos, proximo.codificar(), temMais, false);
+    }
+
+    /**
+     * Apaga os registos de exclusão mais antigos do que a retenção configurada. Antes disso,
+     * guarda em cada estante a maior revisão apagada, para que um cliente com um cursor anterior
+     * seja mandado recomeçar em vez de perder exclusões.
+     */
+    @Transactional
+    @Scheduled(cron = "${biblioteca.sincronizacao.limpeza-cron:0 15 4 * * *}")
+    public void limparExclusoesAntigas() {
+        Instant limite = Instant.now().minus(retencaoExclusoes);
+        versaoBibliotecaRepository.atualizarHorizontes(limite);
+        livroExcluidoRepository.deleteAnteriores(limite);
     }
 
     /**
@@ -68,14 +347,71 @@ public class LivroService {
     @Transactional
     public LivroEntity inserir(LivroDTO livroDTO) {
         UserEntity currentUser = getCurrentUser();
-        LivroEntity livroEntity = new LivroEntity();
         // Converte o DTO recebido numa nova Entidade, ignorando o ID que vem do frontend (que pode ser temporário).
-        BeanUtils.copyProperties(livroDTO, livroEntity, "id");
+        LivroEntity livroEntity = livroMapper.paraEntidade(livroDTO);
+        aplicarImagens(livroDTO, livroEntity);
         
         // Passo crucial: Associa o livro ao utilizador logado ANTES de salvar.
         livroEntity.setUser(currentUser);
         
-        return livroRepository.save(livroEntity);
+        livroEntity.setRevisao(novaRevisao(currentUser));
+        LivroEntity livroSalvo = livroRepository.save(livroEntity);
+        estatisticaService.aplicar(currentUser, new Variacao().adicionar(Contribuicao.de(livroSalvo)));
+        publicarLivroSalvo(currentUser, livroSalvo);
+        return livroSalvo;
+    }
+
+    /**
+     * Insere vários livros do utilizador autenticado, lidos um a um do iterador (ex.: uma lista
+     * JSON ou NDJSON lida em streaming). Cada item é validado; os válidos são gravados em blocos
+     * de {@code biblioteca.lote.livros-por-transacao}, cada bloco numa transação e com os INSERTs
+     * enviados em lotes JDBC. Se um bloco falhar, os seus livros são gravados um a um para
+     * identificar o item com problema; os blocos já gravados mantêm-se.
+     * <p>
+     * O método não é transacional: cada bloco abre a sua própria transação.
+     *
+     * @param itens Os livros a inserir. Uma exceção do iterador (ex.: JSON inválido) encerra a leitura.
+     * @return O resultado de cada item, pela ordem em que foram enviados.
+     */
+    public ResultadoLoteDTO inserirLote(Iterator<LivroDTO> itens) {
+        UserEntity currentUser = getCurrentUser();
+        List<ItemLoteDTO> resultados = new ArrayList<>();
+        List<LivroDTO> bloco = new ArrayList<>();
+        List<Integer> indicesBloco = new ArrayList<>();
+
+        for (int indice = 0;; indice++) {
+            LivroDTO livroDTO;
+            try {
+                if (!itens.hasNext()) {
+                    break;
+                }
+                livroDTO = itens.next();
+            } catch (RuntimeException e) {
+                resultados.add(ItemLoteDTO.erro(indice, "Item ilegível; o resto do lote foi ignorado: " + e.getMessage()));
+                break;
+            }
+            if (indice >= maximoItensLote) {
+                resultados.add(ItemLoteDTO.erro(indice,
+                        "O lote excede o máximo de " + maximoItensLote + " livros; o resto foi ignorado."));
+                break;
+            }
+            List<String> erros = validar(livroDTO);
+            if (!erros.isEmpty()) {
+                resultados.add(ItemLoteDTO.invalido(indice, erros));
+                continue;
+            }
+            bloco.add(livroDTO);
+            indicesBloco.add(indice);
+            if (bloco.size() == livrosPorTransacao) {
+                gravarBloco(currentUser, bloco, indicesBloco, resultados);
+                bloco.clear();
+                indicesBloco.clear();
+            }
+        }
+        gravarBloco(currentUser, bloco, indicesBloco, resultados);
+
+        resultados.sort(Comparator.comparingInt(ItemLoteDTO::getIndice));
+        return new ResultadoLoteDTO(resultados);
     }
 
     /**
@@ -85,23 +421,106 @@ public class LivroService {
      *
      * @param id O ID do livro a ser alterado.
      * @param livroDTO Os novos dados para o livro.
+     * @param versaoEsperada A versão que o cliente leu (do {@code If-Match}), ou {@code null} para não verificar.
      * @return A Entidade do livro que foi atualizada.
      * @throws RecursoNaoEncontradoException se o livro não for encontrado ou não pertencer ao utilizador.
+     * @throws PreCondicaoFalhouException se o livro já não estiver na versão esperada.
      */
     @Transactional
-    public LivroEntity alterar(Long id, LivroDTO livroDTO) {
+    public LivroEntity alterar(Long id, LivroDTO livroDTO, Long versaoEsperada) {
         UserEntity currentUser = getCurrentUser();
         // Busca o livro apenas se o ID e o utilizador corresponderem.
         LivroEntity livroEntity = livroRepository.findByIdAndUser(id, currentUser)
                 .orElseThrow(() -> new RecursoNaoEncontradoException("Livro com ID " + id + " não encontrado para este utilizador."));
+        verificarVersao(livroEntity, versaoEsperada);
+        Contribuicao antes = Contribuicao.de(livroEntity);
 
         // Copia as novas propriedades do DTO para a entidade encontrada, ignorando o ID e o utilizador.
-        BeanUtils.copyProperties(livroDTO, livroEntity, "id", "user");
-        return livroRepository.save(livroEntity);
+        // As imagens só são substituídas quando o cliente as envia; a listagem não as devolve.
+        livroMapper.atualizar(livroDTO, livroEntity);
+        aplicarImagens(livroDTO, livroEntity);
+        livroEntity.setRevisao(novaRevisao(currentUser));
+        // O flush aqui aplica o incremento de @Version, para a resposta levar o ETag novo.
+        LivroEntity livroSalvo = livroRepository.saveAndFlush(livroEntity);
+        estatisticaService.aplicar(currentUser, new Variacao().remover(antes).adicionar(Contribuicao.de(livroSalvo)));
+        publicarLivroSalvo(currentUser, livroSalvo);
+        return livroSalvo;
+    }
+
+    /**
+     * Altera só os campos presentes no documento, com a semântica de JSON Merge Patch (RFC 7396):
+     * um campo ausente fica como está e um campo a {@code null} é removido. Para a capa e a
+     * contracapa, {@code null} remove a imagem e um valor em Base64 substitui-a. O resultado é
+     * validado com as mesmas regras do {@link LivroDTO}.
+     * <p>
+     * A entidade usa {@code @DynamicUpdate}, por isso o UPDATE gerado leva apenas as colunas
+     * que mudaram. Um documento que não muda nada não gera UPDATE, nem revisão, nem evento:
+     * a versão do livro e a da estante ficam como estavam.
+     *
+     * @param id O ID do livro a ser alterado.
+     * @param patch O documento JSON Merge Patch.
+     * @param versaoEsperada A versão que o cliente leu (do {@code If-Match}), ou {@code null} para não verificar.
+     * @return A Entidade do livro depois da alteração.
+     * @throws RecursoNaoEncontradoException se o livro não for encontrado ou não pertencer ao utilizador.
+     * @throws RequisicaoInvalidaException se o documento não for um objeto ou o resultado for inválido.
+     * @throws PreCondicaoFalhouException se o livro já não estiver na versão esperada.
+     */
+    @Transactional
+    public LivroEntity alterarParcial(Long id, JsonNode patch, Long versaoEsperada) {
+        if (patch == null || !patch.isObject()) {
+            throw new RequisicaoInvalidaException("O corpo do PATCH tem de ser um objeto JSON.");
+        }
+        UserEntity currentUser = getCurrentUser();
+        LivroEntity livroEntity = livroRepository.findByIdAndUser(id, currentUser)
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Livro com ID " + id + " não encontrado para este utilizador."));
+        verificarVersao(livroEntity, versaoEsperada);
+        Contribuicao antes = Contribuicao.de(livroEntity);
+
+        // Os campos simples são aplicados sobre um DTO com o estado atual, para reaproveitar a validação.
+        ObjectNode campos = ((ObjectNode) patch).deepCopy();
+        campos.remove(List.of("id", "capa", "contraCapa"));
+        LivroDTO livroDTO = new LivroDTO();
+        livroMapper.atualizar(livroEntity, livroDTO);
+        JsonNode estadoAnterior = objectMapper.valueToTree(livroDTO);
+        try {
+            objectMapper.readerForUpdating(livroDTO).readValue(campos);
+        } catch (IOException e) {
+            throw new RequisicaoInvalidaException("Documento de PATCH inválido: " + e.getMessage());
+        }
+        List<String> erros = validar(livroDTO);
+        if (!erros.isEmpty()) {
+            throw new RequisicaoInvalidaException(String.join("; ", erros));
+        }
+        boolean mudou = !estadoAnterior.equals(objectMapper.valueToTree(livroDTO));
+        if (mudou) {
+            livroMapper.atualizar(livroDTO, livroEntity);
+        }
+
+        // null só muda alguma coisa se havia imagem; um valor em Base64 substitui-a sempre.
+        JsonNode capa = patch.get("capa");
+        if (capa != null && (!capa.isNull() || livroEntity.getCapa() != null)) {
+            livroEntity.setCapa(imagemDoPatch(capa, "capa"));
+            mudou = true;
+        }
+        JsonNode contraCapa = patch.get("contraCapa");
+        if (contraCapa != null && (!contraCapa.isNull() || livroEntity.getContraCapa() != null)) {
+            livroEntity.setContraCapa(imagemDoPatch(contraCapa, "contraCapa"));
+            mudou = true;
+        }
+        if (!mudou) {
+            return livroEntity;
+        }
+        livroEntity.setRevisao(novaRevisao(currentUser));
+        entityManager.flush();
+        estatisticaService.aplicar(currentUser, new Variacao().remover(antes).adicionar(Contribuicao.de(livroEntity)));
+        publicarLivroSalvo(currentUser, livroEntity);
+        return livroEntity;
     }
 
     /**
      * Exclui um livro do banco de dados, garantindo que ele pertença ao utilizador autenticado.
+     * Usa o mesmo caminho da exclusão em lote: uma consulta pelos ids do livro e das imagens
+     * e um DELETE por tabela, sem carregar a entidade.
      *
      * @param id O ID do livro a ser excluído.
      * @throws RecursoNaoEncontradoException se o livro não for encontrado ou não pertencer ao utilizador.
@@ -109,24 +528,158 @@ public class LivroService {
     @Transactional
     public void excluir(Long id) {
         UserEntity currentUser = getCurrentUser();
-        // Verifica a existência antes de deletar para fornecer uma mensagem de erro segura.
-        if (!livroRepository.existsByIdAndUser(id, currentUser)) {
+        List<Tuple> linhas = selecionarParaExclusao(currentUser, List.of(id), null);
+        if (linhas.isEmpty()) {
             throw new RecursoNaoEncontradoException("Livro com ID " + id + " não encontrado para este utilizador.");
         }
-        livroRepository.deleteById(id);
+        excluirLinhas(currentUser, linhas);
+    }
+
+    /**
+     * Altera o estado de leitura e/ou de empréstimo dos livros do utilizador autenticado escolhidos
+     * pelos ids e/ou pelo filtro, numa só instrução {@code UPDATE ... WHERE user_id = ? AND ...},
+     * sem carregar nenhum livro. As estatísticas são depois recalculadas com uma consulta agregada.
+     *
+     * @param atualizacao Os livros a alterar e os novos valores.
+     * @return O número de livros alterados.
+     * @throws RequisicaoInvalidaException se não houver seleção, nada para alterar ou um
+     *         {@code emprestadoPara} sem {@code emprestado=true}.
+     */
+    @Transactional
+    public long atualizarEmLote(AtualizacaoLoteDTO atualizacao) {
+        validarSelecao(atualizacao.getIds(), atualizacao.getFiltro());
+        Boolean emprestado = atualizacao.getEmprestado();
+        // Sem emprestado=true, o emprestadoPara ficaria gravado em livros que não estão emprestados.
+        if (atualizacao.getEmprestadoPara() != null && !Boolean.TRUE.equals(emprestado)) {
+            throw new RequisicaoInvalidaException("O emprestadoPara só pode ser indicado com emprestado=true.");
+        }
+        if (atualizacao.getLido() == null && emprestado == null) {
+            throw new RequisicaoInvalidaException("Indique o que alterar: lido e/ou emprestado.");
+        }
+        if (atualizacao.getIds() != null && atualizacao.getIds().isEmpty()) {
+            return 0;
+        }
+        UserEntity currentUser = getCurrentUser();
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<LivroEntity> update = cb.createCriteriaUpdate(LivroEntity.class);
+        Root<LivroEntity> livro = update.from(LivroEntity.class);
+        update.set(livro.<Long>get("versao"), cb.sum(livro.<Long>get("versao"), 1L));
+        update.set(livro.<Long>get("revisao"), novaRevisao(currentUser));
+        if (atualizacao.getLido() != null) {
+            update.set(livro.<Boolean>get("lido"), atualizacao.getLido());
+        }
+        if (emprestado != null) {
+            update.set(livro.<Boolean>get("emprestado"), emprestado);
+            if (!emprestado) {
+                update.set(livro.<String>get("emprestadoPara"), cb.nullLiteral(String.class));
+            }
+        }
+        if (atualizacao.getEmprestadoPara() != null) {
+            update.set(livro.<String>get("emprestadoPara"), atualizacao.getEmprestadoPara());
+        }
+        update.where(criterios(cb, livro, currentUser, atualizacao.getIds(), atualizacao.getFiltro()));
+        int alterados = entityManager.createQuery(update).executeUpdate();
+        if (alterados > 0) {
+            estatisticaService.recalcular(currentUser);
+        }
+        return alterados;
+    }
+
+    /**
+     * Exclui os livros do utilizador autenticado escolhidos pelos ids e/ou pelo filtro, com as
+     * suas imagens. São lidos só os ids (livros e imagens) e depois cada tabela é limpa com um
+     * {@code DELETE ... WHERE id IN (...)}, sem carregar as entidades.
+     *
+     * @param exclusao Os livros a excluir.
+     * @return O número de livros excluídos.
+     * @throws RequisicaoInvalidaException se não houver seleção.
+     */
+    @Transactional
+    public long excluirEmLote(ExclusaoLoteDTO exclusao) {
+        validarSelecao(exclusao.getIds(), exclusao.getFiltro());
+        if (exclusao.getIds() != null && exclusao.getIds().isEmpty()) {
+            return 0;
+        }
+        UserEntity currentUser = getCurrentUser();
+        return excluirLinhas(currentUser, selecionarParaExclusao(currentUser, exclusao.getIds(), exclusao.getFiltro()));
+    }
+
+    /**
+     * Devolve as estatísticas da estante do utilizador autenticado. São lidas do resumo mantido
+     * a cada escrita (uma linha, mais uma por década), por isso o custo não depende do número de livros.
+     *
+     * @return Os totais e a distribuição por década.
+     */
+    public EstatisticasDTO estatisticas() {
+        return estatisticaService.obter(getCurrentUser());
+    }
+
+    /**
+     * Recalcula as estatísticas do utilizador autenticado a partir dos livros, com agregados SQL.
+     * Serve para corrigir o resumo se alguma vez divergir (ex.: alterações feitas fora da API).
+     *
+     * @return As estatísticas recalculadas.
+     */
+    public EstatisticasDTO recalcularEstatisticas() {
+        UserEntity currentUser = getCurrentUser();
+        estatisticaService.recalcular(currentUser);
+        return estatisticaService.obter(currentUser);
+    }
+
+    /**
+     * Busca livros por título, autor ou sinopse, mas apenas dentro da coleção do utilizador autenticado.
+     * A busca ignora acentos e maiúsculas, aceita prefixos ("cora" encontra "Coração") e ordena os
+     * resultados por relevância, usando o índice invertido em memória em vez de um LIKE no banco.
+     *
+     * @param termo O texto de busca.
+     * @return Uma lista de LivroDTO com os resultados, do mais para o menos relevante.
+     */
+    @Transactional(readOnly = true)
+    public List<LivroDTO> buscar(String termo) {
+        UserEntity currentUser = getCurrentUser();
+        if (!indiceBuscaLivros.isPronto()) {
+            // O índice ainda está a ser construído no arranque: usa a busca antiga por título.
+            List<LivroResumo> livros = livroRepository.findResumosByTituloAndUser(termo, currentUser);
+            return livros.stream().map(livroMapper::paraDTO).collect(Collectors.toList());
+        }
+        List<Long> ids = indiceBuscaLivros.buscar(currentUser.getId(), termo, limiteResultadosBusca);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, LivroResumo> porId = livroRepository.findResumosByIdInAndUser(ids, currentUser).stream()
+                .collect(Collectors.toMap(LivroResumo::getId, Function.identity()));
+        // Mantém a ordem de relevância do índice.
+        return ids.stream().map(porId::get).filter(Objects::nonNull).map(livroMapper::paraDTO).collect(Collectors.toList());
+    }
+
+    /**
+     * Obtém os metadados da capa de um livro do utilizador autenticado.
+     * Os bytes são lidos depois, diretamente do armazenamento de ficheiros.
+     *
+     * @param id O ID do livro.
+     * @return A imagem da capa (hash, tamanho e tipo).
+     * @throws RecursoNaoEncontradoException se o livro não existir, não pertencer ao utilizador ou não tiver capa.
+     */
+    @Transactional(readOnly = true)
+    public ImagemEntity buscarCapa(Long id) {
+        UserEntity currentUser = getCurrentUser();
+        return livroRepository.findCapaByIdAndUser(id, currentUser)
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Capa do livro com ID " + id + " não encontrada."));
     }
 
     /**
-     * Busca livros por título, mas apenas dentro da coleção do utilizador autenticado.
+     * Obtém os metadados da contracapa de um livro do utilizador autenticado.
      *
-     * @param titulo O termo de busca.
-     * @return Uma lista de LivroDTO com os resultados filtrados pelo utilizador.
+     * @param id O ID do livro.
+     * @return A imagem da contracapa (hash, tamanho e tipo).
+     * @throws RecursoNaoEncontradoException se o livro não existir, não pertencer ao utilizador ou não tiver contracapa.
      */
     @Transactional(readOnly = true)
-    public List<LivroDTO> buscarPorTitulo(String titulo) {
+    public ImagemEntity buscarContraCapa(Long id) {
         UserEntity currentUser = getCurrentUser();
-        List<LivroEntity> livros = livroRepository.findByTituloContainingIgnoreCaseAndUser(titulo, currentUser);
-        return livros.stream().map(this::toDTO).collect(Collectors.toList());
+        return livroRepository.findContraCapaByIdAndUser(id, currentUser)
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Contracapa do livro com ID " + id + " não encontrada."));
     }
     //</editor-fold>
     
@@ -135,6 +688,10 @@ public class LivroService {
      * Método auxiliar privado para obter a entidade do utilizador atualmente autenticado.
      * Ele acede ao 'SecurityContextHolder' do Spring Security, que armazena as informações
      * de autenticação da requisição atual (preenchido pelo nosso JwtRequestFilter).
+     * <p>
+     * Quando o principal já traz o ID (vindo das claims do JWT), devolve apenas uma
+     * referência (proxy) à entidade, sem consultar o banco: as consultas e as
+     * associações só precisam do ID.
      *
      * @return A UserEntity correspondente ao utilizador logado.
      * @throws UsernameNotFoundException se, por algum motivo, o utilizador autenticado não for encontrado no banco de dados.
@@ -144,22 +701,221 @@ public class LivroService {
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new IllegalStateException("Nenhum utilizador autenticado encontrado no contexto de segurança.");
         }
+        if (authentication.getPrincipal() instanceof UsuarioAutenticado usuario) {
+            return userRepository.getReferenceById(usuario.getId());
+        }
         String username = authentication.getName();
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Utilizador '" + username + "' não encontrado no contexto de segurança."));
     }
 
     /**
-     * Método auxiliar privado para converter uma Entidade em um DTO.
-     * Centraliza a lógica de conversão, garantindo consistência.
-     *
-     * @param entidade O objeto LivroEntity a ser convertido.
-     * @return Um objeto LivroDTO preenchido.
+     * Substitui a capa e/ou a contracapa da entidade pelas imagens enviadas no DTO.
+     * Uma imagem ausente no DTO mantém a atual; a antiga é removida por orphanRemoval
+     * e o seu ficheiro fica para a limpeza periódica do armazenamento.
+     */
+    private void aplicarImagens(LivroDTO livroDTO, LivroEntity livroEntity) {
+        if (livroDTO.getCapa() != null) {
+            livroEntity.setCapa(novaImagem(livroDTO.getCapa()));
+        }
+        if (livroDTO.getContraCapa() != null) {
+            livroEntity.setContraCapa(novaImagem(livroDTO.getContraCapa()));
+        }
+    }
+
+    /**
+     * Incrementa a versão da estante e devolve-a: é a revisão das alterações desta transação.
+     * A linha da versão fica bloqueada até ao commit, por isso as revisões de um utilizador
+     * ficam visíveis pela ordem em que foram atribuídas.
      */
-    private LivroDTO toDTO(LivroEntity entidade) {
-        LivroDTO dto = new LivroDTO();
-        BeanUtils.copyProperties(entidade, dto);
-        return dto;
+    private long novaRevisao(UserEntity user) {
+        versaoBibliotecaRepository.incrementar(user.getId());
+        return versaoBibliotecaRepository.findVersao(user.getId()).orElseThrow();
+    }
+
+    private static void verificarVersao(LivroEntity livro, Long versaoEsperada) {
+        if (versaoEsperada != null && versaoEsperada != livro.getVersao()) {
+            throw new PreCondicaoFalhouException("O livro com ID " + livro.getId() + " foi alterado (versão atual "
+                    + livro.getVersao() + ").");
+        }
+    }
+
+    /** Exige ids e/ou um filtro não vazio, para que um pedido em branco nunca afete a estante inteira. */
+    private void validarSelecao(List<Long> ids, FiltroLivrosDTO filtro) {
+        if (ids == null && (filtro == null || filtro.isVazio())) {
+            throw new RequisicaoInvalidaException("Indique os ids dos livros e/ou um filtro.");
+        }
+        if (ids != null && ids.size() > maximoItensLote) {
+            throw new RequisicaoInvalidaException("No máximo " + maximoItensLote + " ids por pedido.");
+        }
+    }
+
+    /** As condições comuns às operações em lote: sempre o dono, mais os ids e o filtro, se existirem. */
+    private static Predicate[] criterios(CriteriaBuilder cb, Root<LivroEntity> livro, UserEntity user, List<Long> ids,
+            FiltroLivrosDTO filtro) {
+        List<Predicate> condicoes = new ArrayList<>();
+        condicoes.add(cb.equal(livro.get("user"), user));
+        if (ids != null) {
+            condicoes.add(livro.get("id").in(ids));
+        }
+        if (filtro != null) {
+            if (filtro.getLido() != null) {
+                condicoes.add(cb.equal(livro.get("lido"), filtro.getLido()));
+            }
+            if (filtro.getEmprestado() != null) {
+                condicoes.add(cb.equal(livro.get("emprestado"), filtro.getEmprestado()));
+            }
+            if (filtro.getAutor() != null) {
+                condicoes.add(cb.equal(cb.lower(livro.get("autor")), filtro.getAutor().toLowerCase(Locale.ROOT)));
+            }
+            if (filtro.getAno() != null) {
+                condicoes.add(cb.equal(livro.get("ano"), filtro.getAno()));
+            }
+        }
+        return condicoes.toArray(Predicate[]::new);
+    }
+
+    /** Lê os ids dos livros escolhidos e das suas imagens: (livro, capa, contracapa). */
+    private List<Tuple> selecionarParaExclusao(UserEntity user, List<Long> ids, FiltroLivrosDTO filtro) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> consulta = cb.createTupleQuery();
+        Root<LivroEntity> livro = consulta.from(LivroEntity.class);
+        Join<LivroEntity, ImagemEntity> capa = livro.join("capa", JoinType.LEFT);
+        Join<LivroEntity, ImagemEntity> contraCapa = livro.join("contraCapa", JoinType.LEFT);
+        consulta.multiselect(livro.get("id"), capa.get("id"), contraCapa.get("id"))
+                .where(criterios(cb, livro, user, ids, filtro));
+        return entityManager.createQuery(consulta).getResultList();
     }
+
+    /**
+     * Regista as exclusões para a sincronização incremental, desconta os livros das estatísticas, exclui os livros e depois as
+     * imagens (o livro tem a chave estrangeira), em instruções {@code IN} de no máximo
+     * {@value #LIMITE_IN} ids, e publica o evento de exclusão.
+     */
+    private long excluirLinhas(UserEntity user, List<Tuple> linhas) {
+        List<Long> livroIds = new ArrayList<>(linhas.size());
+        List<Long> imagemIds = new ArrayList<>();
+        for (Tuple linha : linhas) {
+            livroIds.add(linha.get(0, Long.class));
+            for (int i = 1; i <= 2; i++) {
+                Long imagemId = linha.get(i, Long.class);
+                if (imagemId != null) {
+                    imagemIds.add(imagemId);
+                }
+            }
+        }
+        if (livroIds.isEmpty()) {
+            return 0;
+        }
+        long revisao = novaRevisao(user);
+        Instant agora = Instant.now();
+        long excluidos = 0;
+        for (int inicio = 0; inicio < livroIds.size(); inicio += LIMITE_IN) {
+            List<Long> parte = livroIds.subList(inicio, Math.min(inicio + LIMITE_IN, livroIds.size()));
+            livroExcluidoRepository.registarExclusoes(user, parte, revisao, agora);
+            estatisticaService.descontarExclusao(user, parte);
+            excluidos += livroRepository.deleteByUserAndIdIn(user, parte);
+        }
+        for (int inicio = 0; inicio < imagemIds.size(); inicio += LIMITE_IN) {
+            imagemRepository.deleteByIdIn(imagemIds.subList(inicio, Math.min(inicio + LIMITE_IN, imagemIds.size())));
+        }
+        eventPublisher.publishEvent(new LivrosExcluidosEvent(user.getId(), livroIds));
+        return excluidos;
+    }
+
+    private List<String> validar(LivroDTO livroDTO) {
+        if (livroDTO == null) {
+            return List.of("O item está vazio.");
+        }
+        return validator.validate(livroDTO).stream()
+                .map(violacao -> violacao.getPropertyPath() + ": " + violacao.getMessage())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Grava um bloco da inserção em lote numa transação. As imagens são persistidas antes de
+     * todos os livros, para que os INSERTs de cada tabela fiquem seguidos e vão num só lote JDBC.
+     * No fim do bloco o contexto de persistência é limpo: com o open-in-view o EntityManager é o
+     * do pedido, e sem isso guardaria todos os livros e imagens do lote até ao fim do pedido.
+     */
+    private void gravarBloco(UserEntity user, List<LivroDTO> bloco, List<Integer> indices,
+            List<ItemLoteDTO> resultados) {
+        if (bloco.isEmpty()) {
+            return;
+        }
+        try {
+            List<LivroEntity> livros = transactionTemplate.execute(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(tamanhoLoteJdbc);
+                long revisao = novaRevisao(user);
+                List<LivroEntity> novos = new ArrayList<>(bloco.size());
+                for (LivroDTO livroDTO : bloco) {
+                    LivroEntity livroEntity = livroMapper.paraEntidade(livroDTO);
+                    aplicarImagens(livroDTO, livroEntity);
+                    livroEntity.setUser(user);
+                    livroEntity.setRevisao(revisao);
+                    novos.add(livroEntity);
+                }
+                for (LivroEntity livro : novos) {
+                    if (livro.getCapa() != null) {
+                        entityManager.persist(livro.getCapa());
+                    }
+                    if (livro.getContraCapa() != null) {
+                        entityManager.persist(livro.getContraCapa());
+                    }
+                }
+                Variacao variacao = new Variacao();
+                for (LivroEntity livro : novos) {
+                    entityManager.persist(livro);
+                    variacao.adicionar(Contribuicao.de(livro));
+                    publicarLivroSalvo(user, livro);
+                }
+                estatisticaService.aplicar(user, variacao);
+                entityManager.flush();
+                entityManager.clear();
+                return novos;
+            });
+            for (int i = 0; i < livros.size(); i++) {
+                resultados.add(ItemLoteDTO.criado(indices.get(i), livros.get(i).getId()));
+            }
+        } catch (RuntimeException e) {
+            if (bloco.size() == 1) {
+                resultados.add(ItemLoteDTO.erro(indices.get(0), "Não foi possível gravar o livro: " + e.getMessage()));
+                return;
+            }
+            for (int i = 0; i < bloco.size(); i++) {
+                gravarBloco(user, List.of(bloco.get(i)), List.of(indices.get(i)), resultados);
+            }
+        }
+    }
+
+    /** A imagem de um campo do PATCH: {@code null} remove-a, um texto em Base64 substitui-a. */
+    private ImagemEntity imagemDoPatch(JsonNode valor, String campo) {
+        if (valor.isNull()) {
+            return null;
+        }
+        try {
+            byte[] conteudo = valor.isTextual() ? valor.binaryValue() : null;
+            if (conteudo == null || conteudo.length == 0) {
+                throw new RequisicaoInvalidaException("O campo " + campo + " tem de ser uma imagem em Base64 ou null.");
+            }
+            return novaImagem(conteudo);
+        } catch (IOException e) {
+            throw new RequisicaoInvalidaException("O campo " + campo + " não está em Base64 válido.");
+        }
+    }
+
+    private void publicarLivroSalvo(UserEntity user, LivroEntity livro) {
+        eventPublisher.publishEvent(new LivroSalvoEvent(user.getId(), livro.getId(), livro.getTitulo(),
+                livro.getAutor(), livro.getSinopse()));
+    }
+
+    private ImagemEntity novaImagem(byte[] conteudo) {
+        String hash = armazenamentoImagemService.guardar(conteudo);
+        // As miniaturas são geradas em segundo plano, só depois do commit.
+        eventPublisher.publishEvent(new ImagemGuardadaEvent(hash));
+        return new ImagemEntity(hash, conteudo.length, ArmazenamentoImagemService.detectarTipo(conteudo));
+    }
+
     //</editor-fold>
 }
@@ -0,0 +1,205 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.markDev.backend_biblioteca_springboot.event.ImagemGuardadaEvent;
+
+/**
+ * Gera as variantes reduzidas ({@link VarianteImagem}) de cada imagem guardada.
+ * Corre no executor limitado "imagemExecutor", depois do commit, para que a
+ * thread do pedido nunca espere pela descodificação da imagem. Uma imagem cujas
+ * variantes ainda não existem é servida no tamanho original entretanto.
+ */
+@Service
+public class MiniaturaService {
+
+	private static final Logger LOGGER = Logger.getLogger(MiniaturaService.class.getName());
+
+	private final ArmazenamentoImagemService armazenamentoImagemService;
+	private final long pixeisMaximos;
+	// Evita gerar duas vezes as mesmas variantes quando vários pedidos chegam juntos.
+	private final Set<String> emProcessamento = ConcurrentHashMap.newKeySet();
+	// Imagens cujas variantes não se conseguiram gerar, para os pedidos não voltarem a agendar a mesma falha.
+	// As entradas expiram, para que uma falha passageira (ex.: disco) seja tentada de novo mais tarde.
+	private final Cache<String, Boolean> falhadas = Caffeine.newBuilder().maximumSize(10_000)
+			.expireAfterWrite(Duration.ofHours(1)).build();
+
+	/**
+	 * @param pixeisMaximos Largura vezes altura a partir da qual uma imagem não é
+	 *                      descodificada: um PNG pequeno pode declarar dimensões
+	 *                      que ocupariam gigabytes em memória depois de
+	 *                      descodificado.
+	 */
+	public MiniaturaService(ArmazenamentoImagemService armazenamentoImagemService,
+			@Value("${biblioteca.imagens.miniaturas.pixeis-maximos:25000000}") long pixeisMaximos) {
+		this.armazenamentoImagemService = armazenamentoImagemService;
+		this.pixeisMaximos = pixeisMaximos;
+	}
+
+	@Async("imagemExecutor")
+	@TransactionalEventListener
+	public void aoGuardarImagem(ImagemGuardadaEvent evento) {
+		gerarVariantes(evento.hash());
+	}
+
+	/**
+	 * Pede a geração das variantes de uma imagem que ainda não as tem, por exemplo
+	 * uma imagem migrada antes de existirem miniaturas. Não bloqueia.
+	 */
+	@Async("imagemExecutor")
+	public void agendar(String hash) {
+		gerarVariantes(hash);
+	}
+
+	/**
+	 * Indica se a geração das variantes desta imagem falhou recentemente, caso em
+	 * que não vale a pena agendá-la de novo.
+	 */
+	public boolean falhou(String hash) {
+		return falhadas.getIfPresent(hash) != null;
+	}
+
+	/**
+	 * Gera as variantes em falta de uma imagem. Imagens que o ImageIO não
+	 * consegue ler (por exemplo WebP) ou maiores do que o limite de pixéis ficam
+	 * apenas no tamanho original.
+	 *
+	 * @param hash O hash da imagem original.
+	 */
+	public void gerarVariantes(String hash) {
+		if (falhou(hash) || !emProcessamento.add(hash)) {
+			return;
+		}
+		try {
+			if (!armazenamentoImagemService.existe(hash) || todasExistem(hash)) {
+				return;
+			}
+			BufferedImage original = ler(hash);
+			if (original == null) {
+				falhadas.put(hash, Boolean.TRUE);
+				return;
+			}
+			for (VarianteImagem variante : VarianteImagem.values()) {
+				if (!armazenamentoImagemService.existeVariante(hash, variante)) {
+					armazenamentoImagemService.guardarVariante(hash, variante, gerar(original, variante));
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			falhadas.put(hash, Boolean.TRUE);
+			LOGGER.log(Level.WARNING, "Não foi possível gerar as miniaturas da imagem " + hash, e);
+		} finally {
+			emProcessamento.remove(hash);
+		}
+	}
+
+	/**
+	 * Lê a imagem original, depois de confirmar pelo cabeçalho que as dimensões
+	 * estão dentro do limite.
+	 *
+	 * @return A imagem, ou {@code null} se o formato não for suportado ou se for
+	 *         grande demais.
+	 */
+	private BufferedImage ler(String hash) throws IOException {
+		try (ImageInputStream entrada = ImageIO.createImageInputStream(armazenamentoImagemService.caminho(hash).toFile())) {
+			Iterator<ImageReader> leitores = entrada == null ? null : ImageIO.getImageReaders(entrada);
+			if (leitores == null || !leitores.hasNext()) {
+				return null;
+			}
+			ImageReader leitor = leitores.next();
+			try {
+				leitor.setInput(entrada, true, true);
+				long pixeis = (long) leitor.getWidth(0) * leitor.getHeight(0);
+				if (pixeis > pixeisMaximos) {
+					LOGGER.log(Level.WARNING, "Imagem {0} com {1} pixéis acima do limite de {2}; sem miniaturas",
+							new Object[] { hash, pixeis, pixeisMaximos });
+					return null;
+				}
+				return leitor.read(0);
+			} finally {
+				leitor.dispose();
+			}
+		}
+	}
+
+	private boolean todasExistem(String hash) {
+		for (VarianteImagem variante : VarianteImagem.values()) {
+			if (!armazenamentoImagemService.existeVariante(hash, variante)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte[] gerar(BufferedImage original, VarianteImagem variante) throws IOException {
+		BufferedImage reduzida = redimensionar(original, variante.getLargura());
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		try (ImageOutputStream stream = ImageIO.createImageOutputStream(saida)) {
+			ImageWriteParam parametros = writer.getDefaultWriteParam();
+			parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			parametros.setCompressionQuality(variante.getQualidade());
+			writer.setOutput(stream);
+			writer.write(null, new IIOImage(reduzida, null, null), parametros);
+		} finally {
+			writer.dispose();
+		}
+		return saida.toByteArray();
+	}
+
+	/**
+	 * Reduz a imagem para a largura indicada, mantendo a proporção. A redução é
+	 * feita em passos de metade, que com interpolação bilinear dá um resultado
+	 * próximo do bicúbico a uma fração do custo. Imagens mais estreitas só são
+	 * convertidas para RGB (o JPEG não tem canal alfa).
+	 */
+	private static BufferedImage redimensionar(BufferedImage original, int larguraAlvo) {
+		int largura = original.getWidth();
+		int altura = original.getHeight();
+		BufferedImage atual = original;
+		do {
+			if (largura > larguraAlvo) {
+				largura = Math.max(largura / 2, larguraAlvo);
+				altura = Math.max(1, (int) Math.round((double) original.getHeight() * largura / original.getWidth()));
+			}
+			BufferedImage passo = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = passo.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				g.setColor(Color.WHITE);
+				g.fillRect(0, 0, largura, altura);
+				g.drawImage(atual, 0, 0, largura, altura, null);
+			} finally {
+				g.dispose();
+			}
+			atual = passo;
+		} while (largura > larguraAlvo);
+		return atual;
+	}
+}
@@ -0,0 +1,47 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.util.function.Function;
+
+import com.markDev.backend_biblioteca_springboot.exception.RequisicaoInvalidaException;
+import com.markDev.backend_biblioteca_springboot.repository.projection.LivroResumo;
+
+/**
+ * Ordenações aceites pela listagem paginada. Cada uma corresponde a um índice
+ * (user_id, coluna, id) em MK_LIVRO, e o id desempata livros com o mesmo valor.
+ */
+public enum OrdenacaoLivro {
+
+	TITULO(LivroResumo::getTitulo),
+	AUTOR(LivroResumo::getAutor),
+	ANO(resumo -> resumo.getAno() == null ? null : resumo.getAno().toString()),
+	ID(resumo -> null);
+
+	private final Function<LivroResumo, String> chave;
+
+	OrdenacaoLivro(Function<LivroResumo, String> chave) {
+		this.chave = chave;
+	}
+
+	/** Valor da coluna de ordenação do livro, guardado no cursor. */
+	public String chaveDe(LivroResumo resumo) {
+		return chave.apply(resumo);
+	}
+
+	public String getNome() {
+		return name().toLowerCase();
+	}
+
+	/**
+	 * Converte o parâmetro {@code ordenarPor} do pedido.
+	 *
+	 * @throws RequisicaoInvalidaException se o nome não corresponder a nenhuma ordenação.
+	 */
+	public static OrdenacaoLivro porNome(String nome) {
+		for (OrdenacaoLivro ordenacao : values()) {
+			if (ordenacao.getNome().equalsIgnoreCase(nome.trim())) {
+				return ordenacao;
+			}
+		}
+		throw new RequisicaoInvalidaException("Ordenação desconhecida: " + nome);
+	}
+}
@@ -0,0 +1,270 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.markDev.backend_biblioteca_springboot.dto.AuthResponse;
+import com.markDev.backend_biblioteca_springboot.entity.RefreshTokenEntity;
+import com.markDev.backend_biblioteca_springboot.exception.TokenInvalidoException;
+import com.markDev.backend_biblioteca_springboot.repository.RefreshTokenRepository;
+import com.markDev.backend_biblioteca_springboot.security.FiltroBloom;
+import com.markDev.backend_biblioteca_springboot.security.JwtUtil;
+import com.markDev.backend_biblioteca_springboot.security.UserDetailsServiceImpl;
+import com.markDev.backend_biblioteca_springboot.security.UsuarioAutenticado;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Sessões com refresh tokens rotativos. Cada login abre uma família de tokens;
+ * cada renovação revoga o token usado e emite outro da mesma família, e um token
+ * já revogado que volte a aparecer revoga a família inteira (alguém ficou com
+ * uma cópia). O estado fica na tabela {@link RefreshTokenEntity}.
+ * <p>
+ * Os jti e as famílias revogados ainda por expirar são também mantidos num
+ * {@link FiltroBloom} em memória, para que a verificação comum, "não está
+ * revogado", não precise de ir ao banco de dados: só uma resposta positiva do
+ * filtro é confirmada com uma consulta. O filtro é carregado no arranque e
+ * reconstruído na compactação periódica, que apaga os tokens expirados. Cada
+ * revogação entra no filtro depois do commit: uma reconstrução que leia o banco
+ * de dados antes disso recebe-a depois, e nenhuma a perde. É local
+ * a cada instância: uma sessão terminada noutra instância só é vista aqui na
+ * compactação seguinte, mas a rotação dos refresh tokens decide-se sempre no
+ * banco de dados.
+ */
+@Service
+public class RefreshTokenService {
+
+	private static final Logger LOGGER = Logger.getLogger(RefreshTokenService.class.getName());
+	private static final String PREFIXO_JTI = "j:";
+	private static final String PREFIXO_FAMILIA = "f:";
+	private static final String MENSAGEM_INVALIDO = "Refresh Token inválido ou expirado.";
+
+	private final RefreshTokenRepository refreshTokenRepository;
+	private final UserDetailsServiceImpl userDetailsService;
+	private final JwtUtil jwtUtil;
+	private final long revogacoesEsperadas;
+	private final double probabilidadeFalsoPositivo;
+
+	private final Object trava = new Object();
+	private volatile FiltroBloom revogados;
+	private volatile boolean pronto;
+	// Revogações feitas durante uma reconstrução, reaplicadas no filtro novo antes da troca.
+	private List<String> pendentes;
+
+	public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+			UserDetailsServiceImpl userDetailsService, JwtUtil jwtUtil,
+			@Value("${biblioteca.auth.revogacoes-esperadas:100000}") long revogacoesEsperadas,
+			@Value("${biblioteca.auth.revogacoes-falsos-positivos:0.01}") double probabilidadeFalsoPositivo) {
+		this.refreshTokenRepository = refreshTokenRepository;
+		this.userDetailsService = userDetailsService;
+		this.jwtUtil = jwtUtil;
+		this.revogacoesEsperadas = revogacoesEsperadas;
+		this.probabilidadeFalsoPositivo = probabilidadeFalsoPositivo;
+		this.revogados = new FiltroBloom(revogacoesEsperadas, probabilidadeFalsoPositivo);
+	}
+
+	/**
+	 * Abre uma sessão para um utilizador que acabou de se autenticar.
+	 *
+	 * @return O access token e o primeiro refresh token de uma família nova.
+	 */
+	@Transactional
+	public AuthResponse iniciarSessao(UserDetails userDetails) {
+		return emitir(userDetails, UUID.randomUUID().toString());
+	}
+
+	/**
+	 * Troca um refresh token por um access token novo e por outro refresh token
+	 * da mesma família. O token apresentado fica revogado. A revogação da
+	 * família por reutilização é confirmada mesmo com a exceção.
+	 *
+	 * @throws TokenInvalidoException Se o token for inválido, expirado,
+	 *                                desconhecido ou já tiver sido usado, ou se
+	 *                                a conta já não existir.
+	 */
+	@Transactional(noRollbackFor = TokenInvalidoException.class)
+	public AuthResponse renovar(String refreshToken) {
+		Claims claims = verificarRefreshToken(refreshToken);
+		String jti = claims.getId();
+		String familia = claims.get(JwtUtil.CLAIM_FAMILIA, String.class);
+		Instant agora = Instant.now();
+
+		// O filtro só tem jti revogados: sem resposta positiva, segue direto para a rotação.
+		if (revogados.podeConter(PREFIXO_JTI + jti)) {
+			refreshTokenRepository.findByJti(jti).filter(RefreshTokenEntity::isRevogado)
+					.ifPresent(this::revogarPorReutilizacao);
+		}
+		if (refreshTokenRepository.revogarSeAtivo(jti, agora) == 0) {
+			RefreshTokenEntity token = refreshTokenRepository.findByJti(jti)
+					.orElseThrow(() -> new TokenInvalidoException(MENSAGEM_INVALIDO));
+			if (token.isRevogado()) {
+				revogarPorReutilizacao(token);
+			}
+			throw new TokenInvalidoException(MENSAGEM_INVALIDO);
+		}
+		registarRevogacao(PREFIXO_JTI + jti);
+
+		UserDetails userDetails;
+		try {
+			userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+		} catch (UsernameNotFoundException e) {
+			// A conta foi apagada depois de o token ser emitido.
+			throw new TokenInvalidoException(MENSAGEM_INVALIDO);
+		}
+		return emitir(userDetails, familia);
+	}
+
+	/**
+	 * Termina a sessão do refresh token: revoga a família inteira, o que também
+	 * invalida os access tokens emitidos nela.
+	 *
+	 * @throws TokenInvalidoException Se o token não for um refresh token válido.
+	 */
+	@Transactional
+	public void encerrarSessao(String refreshToken) {
+		String familia = verificarRefreshToken(refreshToken).get(JwtUtil.CLAIM_FAMILIA, String.class);
+		refreshTokenRepository.revogarFamilia(familia);
+		registarRevogacao(PREFIXO_FAMILIA + familia);
+	}
+
+	/**
+	 * Indica se a sessão de uma família foi terminada. Quase sempre responde só
+	 * com o filtro em memória; antes de o filtro estar carregado, e nos seus
+	 * positivos, consulta o banco de dados.
+	 */
+	public boolean familiaRevogada(String familia) {
+		if (pronto && !revogados.podeConter(PREFIXO_FAMILIA + familia)) {
+			return false;
+		}
+		return !refreshTokenRepository.existsByFamiliaAndRevogadoFalseAndExpiraEmAfter(familia, Instant.now());
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void aoIniciar() {
+		reconstruirFiltro();
+	}
+
+	/**
+	 * Apaga os refresh tokens expirados, que já não podem ser apresentados, e
+	 * reconstrói o filtro só com as revogações que ainda contam.
+	 */
+	@Transactional
+	@Scheduled(cron = "${biblioteca.auth.compactacao-cron:0 0 4 * * *}")
+	public void compactar() {
+		int apagados = refreshTokenRepository.deleteExpirados(Instant.now());
+		if (apagados > 0) {
+			LOGGER.log(Level.INFO, "Apagados {0} refresh tokens expirados", apagados);
+		}
+		reconstruirFiltro();
+	}
+
+	/**
+	 * Constrói um filtro novo a partir do banco de dados. Até à troca, as
+	 * verificações continuam a usar o filtro anterior.
+	 */
+	public void reconstruirFiltro() {
+		synchronized (trava) {
+			if (pendentes != null) {
+				return;
+			}
+			pendentes = new ArrayList<>();
+		}
+		try {
+			Instant agora = Instant.now();
+			FiltroBloom novo = new FiltroBloom(revogacoesEsperadas, probabilidadeFalsoPositivo);
+			List<String> jtis = refreshTokenRepository.findJtisRevogados(agora);
+			List<String> familias = refreshTokenRepository.findFamiliasRevogadas(agora);
+			jtis.forEach(jti -> novo.adicionar(PREFIXO_JTI + jti));
+			familias.forEach(familia -> novo.adicionar(PREFIXO_FAMILIA + familia));
+
+			synchronized (trava) {
+				pendentes.forEach(novo::adicionar);
+				revogados = novo;
+				pronto = true;
+			}
+			LOGGER.log(Level.INFO, "Filtro de revogações carregado com {0} tokens e {1} sessões",
+					new Object[] { jtis.size(), familias.size() });
+		} finally {
+			synchronized (trava) {
+				pendentes = null;
+			}
+		}
+	}
+
+	private Claims verificarRefreshToken(String refreshToken) {
+		Claims claims;
+		try {
+			claims = jwtUtil.verificar(refreshToken);
+		} catch (IllegalArgumentException | JwtException e) {
+			throw new TokenInvalidoException(MENSAGEM_INVALIDO);
+		}
+		// Refresh tokens anteriores à rotação não têm jti nem família e deixam de ser aceites.
+		if (!jwtUtil.isRefreshToken(claims) || claims.getId() == null
+				|| claims.get(JwtUtil.CLAIM_FAMILIA) == null) {
+			throw new TokenInvalidoException(MENSAGEM_INVALIDO);
+		}
+		return claims;
+	}
+
+	private AuthResponse emitir(UserDetails userDetails, String familia) {
+		if (!(userDetails instanceof UsuarioAutenticado usuario)) {
+			throw new IllegalStateException("Utilizador sem ID: " + userDetails.getUsername());
+		}
+		String jti = UUID.randomUUID().toString();
+		Instant expiraEm = Instant.now().plus(jwtUtil.getRefreshTokenExpiration());
+		refreshTokenRepository.save(new RefreshTokenEntity(jti, familia, usuario.getId(), expiraEm));
+		return new AuthResponse(jwtUtil.generateToken(userDetails, familia),
+				jwtUtil.generateRefreshToken(userDetails, jti, familia));
+	}
+
+	private void revogarPorReutilizacao(RefreshTokenEntity token) {
+		LOGGER.log(Level.WARNING, "Refresh token reutilizado; a sessão {0} do utilizador {1} foi revogada",
+				new Object[] { token.getFamilia(), token.getUserId() });
+		refreshTokenRepository.revogarFamilia(token.getFamilia());
+		registarRevogacao(PREFIXO_FAMILIA + token.getFamilia());
+		throw new TokenInvalidoException(MENSAGEM_INVALIDO);
+	}
+
+	/**
+	 * Junta uma revogação ao filtro quando a transação for confirmada; sem
+	 * transação, junta-a logo. Antes do commit, uma reconstrução ainda não a vê
+	 * no banco de dados, e o filtro que ela constrói também não a teria.
+	 */
+	private void registarRevogacao(String valor) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			adicionarAoFiltro(valor);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				adicionarAoFiltro(valor);
+			}
+		});
+	}
+
+	private void adicionarAoFiltro(String valor) {
+		synchronized (trava) {
+			revogados.adicionar(valor);
+			if (pendentes != null) {
+				pendentes.add(valor);
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import java.util.Locale;
+
+import com.markDev.backend_biblioteca_springboot.exception.RequisicaoInvalidaException;
+
+/**
+ * Versões reduzidas geradas para cada imagem. O cliente pede a que corresponde
+ * ao tamanho em que vai desenhar a capa, em vez da imagem original.
+ */
+public enum VarianteImagem {
+
+	/** Miniatura para as listagens da estante. */
+	MINIATURA(160, 0.75f),
+	/** Tamanho intermédio para grelhas e ecrãs de alta densidade. */
+	MEDIA(320, 0.80f),
+	/** Tamanho para a página de detalhe do livro. */
+	DETALHE(640, 0.85f);
+
+	private final int largura;
+	private final float qualidade;
+
+	VarianteImagem(int largura, float qualidade) {
+		this.largura = largura;
+		this.qualidade = qualidade;
+	}
+
+	public int getLargura() {
+		return largura;
+	}
+
+	public float getQualidade() {
+		return qualidade;
+	}
+
+	/** Nome usado no parâmetro {@code tamanho} e no nome do ficheiro. */
+	public String getNome() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Converte o parâmetro {@code tamanho} do pedido.
+	 *
+	 * @param nome O nome da variante, ou {@code null} para a imagem original.
+	 * @return A variante, ou {@code null} para a imagem original.
+	 * @throws RequisicaoInvalidaException se o nome não corresponder a nenhuma variante.
+	 */
+	public static VarianteImagem porNome(String nome) {
+		if (nome == null || nome.isBlank() || nome.equalsIgnoreCase("original")) {
+			return null;
+		}
+		for (VarianteImagem variante : values()) {
+			if (variante.getNome().equalsIgnoreCase(nome.trim())) {
+				return variante;
+			}
+		}
+		throw new RequisicaoInvalidaException("Tamanho de imagem desconhecido: " + nome);
+	}
+}
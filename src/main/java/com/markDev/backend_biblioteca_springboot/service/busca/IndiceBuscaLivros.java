@@ -0,0 +1,265 @@
+package com.markDev.backend_biblioteca_springboot.service.busca;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.markDev.backend_biblioteca_springboot.event.LivroSalvoEvent;
+import com.markDev.backend_biblioteca_springboot.event.LivrosExcluidosEvent;
+import com.markDev.backend_biblioteca_springboot.repository.LivroRepository;
+import com.markDev.backend_biblioteca_springboot.repository.projection.LivroIndexavel;
+
+/**
+ * Índice invertido em memória para a busca na estante de cada utilizador.
+ * <p>
+ * Cada utilizador tem o seu próprio índice: um mapa ordenado de termos
+ * normalizados ({@link NormalizadorTexto}) para os livros em que aparecem, com
+ * um peso que favorece o título sobre o autor e o autor sobre a sinopse. Por
+ * ser ordenado, os termos que começam por um prefixo são um intervalo contíguo
+ * do mapa, o que permite procurar enquanto o utilizador escreve.
+ * <p>
+ * O índice é reconstruído no arranque e mantido atualizado pelos eventos de
+ * livro salvo/excluído depois de cada commit. Enquanto não está pronto, a
+ * busca usa a consulta SQL antiga. O índice é local a cada instância da
+ * aplicação.
+ */
+@Component
+public class IndiceBuscaLivros {
+
+	private static final Logger LOGGER = Logger.getLogger(IndiceBuscaLivros.class.getName());
+	private static final float PESO_TITULO = 3f;
+	private static final float PESO_AUTOR = 2f;
+	private static final float PESO_SINOPSE = 1f;
+	// Um termo que só começa pelo texto procurado vale menos do que um termo igual.
+	private static final float FATOR_PREFIXO = 0.6f;
+	private static final int LOTE_RECONSTRUCAO = 1000;
+
+	private final LivroRepository livroRepository;
+	private final boolean reconstruirNaInicializacao;
+
+	private final Object trava = new Object();
+	private volatile Map<Long, IndiceUsuario> indices = new ConcurrentHashMap<>();
+	private volatile boolean pronto;
+	// Alterações recebidas durante uma reconstrução, reaplicadas no índice novo antes da troca.
+	private List<Consumer<Map<Long, IndiceUsuario>>> pendentes;
+
+	public IndiceBuscaLivros(LivroRepository livroRepository,
+			@Value("${biblioteca.busca.reconstruir-na-inicializacao:true}") boolean reconstruirNaInicializacao) {
+		this.livroRepository = livroRepository;
+		this.reconstruirNaInicializacao = reconstruirNaInicializacao;
+	}
+
+	/** Indica se o índice já foi construído e pode responder às buscas. */
+	public boolean isPronto() {
+		return pronto;
+	}
+
+	/**
+	 * Procura livros de um utilizador. Todos os termos da consulta têm de
+	 * aparecer no livro (como termo inteiro ou prefixo).
+	 *
+	 * @param userId   O ID do utilizador.
+	 * @param consulta O texto procurado.
+	 * @param limite   O número máximo de resultados.
+	 * @return Os IDs dos livros encontrados, do mais para o menos relevante.
+	 */
+	public List<Long> buscar(Long userId, String consulta, int limite) {
+		List<String> termos = NormalizadorTexto.termos(consulta);
+		IndiceUsuario indice = indices.get(userId);
+		if (termos.isEmpty() || indice == null) {
+			return Collections.emptyList();
+		}
+		return indice.buscar(termos, limite);
+	}
+
+	@TransactionalEventListener
+	public void aoSalvarLivro(LivroSalvoEvent evento) {
+		aplicar(mapa -> indiceDe(mapa, evento.userId()).indexar(evento.livroId(), evento.titulo(), evento.autor(),
+				evento.sinopse()));
+	}
+
+	@TransactionalEventListener
+	public void aoExcluirLivros(LivrosExcluidosEvent evento) {
+		aplicar(mapa -> {
+			IndiceUsuario indice = mapa.get(evento.userId());
+			if (indice != null) {
+				evento.livroIds().forEach(indice::remover);
+			}
+		});
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void aoIniciar() {
+		if (reconstruirNaInicializacao) {
+			reconstruir();
+		}
+	}
+
+	/**
+	 * Reconstrói o índice de todos os utilizadores a partir do banco de dados,
+	 * lendo os livros em lotes por ordem de id. As buscas continuam a usar o
+	 * índice anterior até à troca.
+	 */
+	public void reconstruir() {
+		synchronized (trava) {
+			if (pendentes != null) {
+				return;
+			}
+			pendentes = new ArrayList<>();
+		}
+		try {
+			long inicio = System.currentTimeMillis();
+			Map<Long, IndiceUsuario> novo = new ConcurrentHashMap<>();
+			long ultimoId = 0;
+			int total = 0;
+			List<LivroIndexavel> lote;
+			do {
+				lote = livroRepository.findIndexaveisApos(ultimoId, PageRequest.of(0, LOTE_RECONSTRUCAO));
+				for (LivroIndexavel livro : lote) {
+					indiceDe(novo, livro.getUserId()).indexar(livro.getId(), livro.getTitulo(), livro.getAutor(),
+							livro.getSinopse());
+					ultimoId = livro.getId();
+				}
+				total += lote.size();
+			} while (lote.size() == LOTE_RECONSTRUCAO);
+
+			synchronized (trava) {
+				pendentes.forEach(alteracao -> alteracao.accept(novo));
+				indices = novo;
+				pronto = true;
+			}
+			LOGGER.log(Level.INFO, "Índice de busca construído com {0} livros em {1} ms",
+					new Object[] { total, System.currentTimeMillis() - inicio });
+		} finally {
+			synchronized (trava) {
+				pendentes = null;
+			}
+		}
+	}
+
+	private void aplicar(Consumer<Map<Long, IndiceUsuario>> alteracao) {
+		synchronized (trava) {
+			alteracao.accept(indices);
+			if (pendentes != null) {
+				pendentes.add(alteracao);
+			}
+		}
+	}
+
+	private static IndiceUsuario indiceDe(Map<Long, IndiceUsuario> mapa, Long userId) {
+		return mapa.computeIfAbsent(userId, id -> new IndiceUsuario());
+	}
+
+	/**
+	 * Índice de um único utilizador, protegido por um lock de leitura/escrita:
+	 * várias buscas correm em paralelo, as alterações são exclusivas.
+	 */
+	static final class IndiceUsuario {
+
+		private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		private final TreeMap<String, Map<Long, Float>> livrosPorTermo = new TreeMap<>();
+		private final Map<Long, Set<String>> termosPorLivro = new HashMap<>();
+
+		void indexar(Long livroId, String titulo, String autor, String sinopse) {
+			Map<String, Float> pesos = new HashMap<>();
+			acumular(pesos, titulo, PESO_TITULO);
+			acumular(pesos, autor, PESO_AUTOR);
+			acumular(pesos, sinopse, PESO_SINOPSE);
+
+			lock.writeLock().lock();
+			try {
+				removerSemLock(livroId);
+				pesos.forEach((termo, peso) -> livrosPorTermo.computeIfAbsent(termo, t -> new HashMap<>()).put(livroId,
+						peso));
+				termosPorLivro.put(livroId, pesos.keySet());
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		void remover(Long livroId) {
+			lock.writeLock().lock();
+			try {
+				removerSemLock(livroId);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		List<Long> buscar(List<String> consulta, int limite) {
+			lock.readLock().lock();
+			try {
+				int totalLivros = termosPorLivro.size();
+				Map<Long, Float> pontuacao = null;
+				for (String termo : new LinkedHashSet<>(consulta)) {
+					Map<Long, Float> doTermo = new HashMap<>();
+					for (Map.Entry<String, Map<Long, Float>> entrada : livrosPorTermo
+							.subMap(termo, true, termo + Character.MAX_VALUE, false).entrySet()) {
+						float fator = entrada.getKey().equals(termo) ? 1f : FATOR_PREFIXO;
+						// Termos raros na estante pesam mais do que termos que aparecem em quase todos os livros.
+						float idf = (float) Math.log(1 + (double) totalLivros / entrada.getValue().size());
+						entrada.getValue().forEach((livro, peso) -> doTermo.merge(livro, peso * fator * idf, Float::max));
+					}
+					if (pontuacao == null) {
+						pontuacao = doTermo;
+					} else {
+						pontuacao.keySet().retainAll(doTermo.keySet());
+						pontuacao.replaceAll((livro, pontos) -> pontos + doTermo.get(livro));
+					}
+					if (pontuacao.isEmpty()) {
+						return Collections.emptyList();
+					}
+				}
+				return pontuacao.entrySet().stream()
+						.sorted(Map.Entry.<Long, Float>comparingByValue().reversed()
+								.thenComparing(Map.Entry.comparingByKey()))
+						.limit(limite).map(Map.Entry::getKey).toList();
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		private void removerSemLock(Long livroId) {
+			Set<String> antigos = termosPorLivro.remove(livroId);
+			if (antigos == null) {
+				return;
+			}
+			for (String termo : antigos) {
+				Map<Long, Float> livros = livrosPorTermo.get(termo);
+				if (livros != null) {
+					livros.remove(livroId);
+					if (livros.isEmpty()) {
+						livrosPorTermo.remove(termo);
+					}
+				}
+			}
+		}
+
+		/** Soma o peso de cada termo do campo, com frequência amortecida por logaritmo. */
+		private static void acumular(Map<String, Float> pesos, String texto, float pesoCampo) {
+			Map<String, Integer> frequencias = new HashMap<>();
+			for (String termo : NormalizadorTexto.termos(texto)) {
+				frequencias.merge(termo, 1, Integer::sum);
+			}
+			frequencias.forEach(
+					(termo, vezes) -> pesos.merge(termo, pesoCampo * (1f + (float) Math.log(vezes)), Float::sum));
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.markDev.backend_biblioteca_springboot.service.busca;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalização de texto para a busca local. Remove acentos e cedilhas
+ * ("Coração" passa a "coracao"), passa para minúsculas, separa em termos por
+ * tudo o que não é letra ou dígito e descarta as palavras vazias mais comuns
+ * do português (artigos, preposições e contrações).
+ */
+public final class NormalizadorTexto {
+
+	private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARADOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Set<String> PALAVRAS_VAZIAS = Set.of("a", "o", "as", "os", "um", "uma", "uns", "umas", "de",
+			"da", "do", "das", "dos", "e", "em", "na", "no", "nas", "nos", "ao", "aos", "para", "por", "pelo", "pela",
+			"pelos", "pelas", "com", "que", "se", "num", "numa");
+
+	private NormalizadorTexto() {
+	}
+
+	/**
+	 * Remove acentos e passa o texto para minúsculas, sem o separar em termos.
+	 */
+	public static String normalizar(String texto) {
+		String decomposto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+		return MARCAS.matcher(decomposto).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Separa o texto nos termos que vão para o índice (ou que são procurados nele).
+	 *
+	 * @param texto O texto original; {@code null} resulta numa lista vazia.
+	 * @return Os termos normalizados, pela ordem em que aparecem (com repetições).
+	 */
+	public static List<String> termos(String texto) {
+		List<String> termos = new ArrayList<>();
+		if (texto == null || texto.isBlank()) {
+			return termos;
+		}
+		for (String termo : SEPARADOR.split(normalizar(texto))) {
+			if (!termo.isEmpty() && !PALAVRAS_VAZIAS.contains(termo)) {
+				termos.add(termo);
+			}
+		}
+		return termos;
+	}
+}
@@ -0,0 +1,27 @@
+package com.markDev.backend_biblioteca_springboot.service.googlebooks;
+
+/**
+ * Falha na chamada à API do Google Books (resposta de erro ou inválida).
+ */
+public class GoogleBooksException extends RuntimeException {
+
+	private final int status;
+
+	public GoogleBooksException(String mensagem, int status) {
+		super(mensagem);
+		this.status = status;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Indica se o erro foi causado pelo próprio pedido (4xx, exceto 429) e não
+	 * por uma falha da API; estes erros não contam para o circuit breaker.
+	 */
+	public boolean isErroDoPedido() {
+		return status >= 400 && status < 500 && status != 429;
+	}
+
+}
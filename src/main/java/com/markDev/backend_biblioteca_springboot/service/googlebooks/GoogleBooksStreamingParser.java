@@ -0,0 +1,172 @@
+package com.markDev.backend_biblioteca_springboot.service.googlebooks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.markDev.backend_biblioteca_springboot.dto.BookSearchResultDTO;
+
+/**
+ * Lê a resposta de /volumes da API do Google Books diretamente do fluxo de
+ * tokens JSON, sem construir a árvore completa ({@code GoogleBooksResponse},
+ * {@code VolumeItem}, {@code VolumeInfo}). Só os campos usados em
+ * {@link BookSearchResultDTO} são lidos; todo o resto (saleInfo, accessInfo,
+ * searchInfo, identificadores...) é saltado com {@link JsonParser#skipChildren()}
+ * sem ser convertido em objetos ou strings.
+ * <p>
+ * As regras de conversão são as mesmas do mapeamento anterior: título e autor
+ * por omissão, autores separados por vírgula, ano a partir dos quatro primeiros
+ * dígitos da data e miniatura pedida no tamanho original. Instâncias são
+ * imutáveis e podem ser partilhadas entre threads.
+ */
+public class GoogleBooksStreamingParser {
+
+	private static final Pattern DATA_COM_ANO = Pattern.compile("\\d{4}.*");
+
+	private final JsonFactory jsonFactory;
+
+	public GoogleBooksStreamingParser(JsonFactory jsonFactory) {
+		this.jsonFactory = jsonFactory;
+	}
+
+	public GoogleBooksStreamingParser() {
+		this(new JsonFactory());
+	}
+
+	/**
+	 * Converte uma resposta da API nos resultados de busca, pela ordem em que
+	 * aparecem. Itens sem {@code volumeInfo} são ignorados.
+	 *
+	 * @param entrada O corpo da resposta (JSON em UTF-8). Não é fechado.
+	 * @return Os resultados; vazio se a resposta não tiver {@code items}.
+	 * @throws IOException Se o JSON for inválido ou a raiz não for um objeto.
+	 */
+	public List<BookSearchResultDTO> ler(InputStream entrada) throws IOException {
+		try (JsonParser parser = jsonFactory.createParser(entrada)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "A resposta do Google Books não é um objeto JSON");
+			}
+			List<BookSearchResultDTO> resultados = new ArrayList<>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String campo = parser.currentName();
+				JsonToken valor = parser.nextToken();
+				if ("items".equals(campo) && valor == JsonToken.START_ARRAY) {
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						BookSearchResultDTO dto = lerItem(parser);
+						if (dto != null) {
+							resultados.add(dto);
+						}
+					}
+				} else {
+					parser.skipChildren();
+				}
+			}
+			return resultados;
+		}
+	}
+
+	private static BookSearchResultDTO lerItem(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return null;
+		}
+		BookSearchResultDTO dto = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String campo = parser.currentName();
+			JsonToken valor = parser.nextToken();
+			if ("volumeInfo".equals(campo) && valor == JsonToken.START_OBJECT) {
+				dto = lerVolumeInfo(parser);
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return dto;
+	}
+
+	private static BookSearchResultDTO lerVolumeInfo(JsonParser parser) throws IOException {
+		String titulo = null;
+		String autores = null;
+		String sinopse = null;
+		int numeroPaginas = 0;
+		String idioma = null;
+		String dataPublicacao = null;
+		String miniatura = null;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String campo = parser.currentName();
+			parser.nextToken();
+			switch (campo) {
+			case "title" -> titulo = texto(parser);
+			case "authors" -> autores = lerAutores(parser);
+			case "description" -> sinopse = texto(parser);
+			case "pageCount" -> numeroPaginas = parser.currentToken().isScalarValue() ? parser.getValueAsInt(0) : 0;
+			case "language" -> idioma = texto(parser);
+			case "publishedDate" -> dataPublicacao = texto(parser);
+			case "imageLinks" -> miniatura = lerMiniatura(parser);
+			default -> parser.skipChildren();
+			}
+		}
+
+		BookSearchResultDTO dto = new BookSearchResultDTO();
+		dto.setTitulo(titulo != null ? titulo : "Sem título");
+		dto.setAutor(autores != null ? autores : "Autor desconhecido");
+		dto.setSinopse(sinopse);
+		dto.setNumeroPaginas(numeroPaginas);
+		dto.setIdioma(idioma);
+		if (dataPublicacao != null && DATA_COM_ANO.matcher(dataPublicacao).matches()) {
+			dto.setAno(Integer.parseInt(dataPublicacao, 0, 4, 10));
+		}
+		if (miniatura != null) {
+			dto.setCapaUrl(miniatura.replace("&zoom=1", "&zoom=0").replace("&edge=curl", ""));
+		}
+		return dto;
+	}
+
+	/** Os autores separados por vírgula, ou {@code null} se a lista faltar ou estiver vazia. */
+	private static String lerAutores(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return null;
+		}
+		StringBuilder autores = null;
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			String autor = texto(parser);
+			autores = autores == null ? new StringBuilder() : autores.append(", ");
+			autores.append(autor);
+		}
+		return autores != null ? autores.toString() : null;
+	}
+
+	private static String lerMiniatura(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return null;
+		}
+		String miniatura = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String campo = parser.currentName();
+			parser.nextToken();
+			if ("thumbnail".equals(campo)) {
+				miniatura = texto(parser);
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return miniatura;
+	}
+
+	/** O valor escalar atual como texto; objetos e listas inesperados são saltados. */
+	private static String texto(JsonParser parser) throws IOException {
+		if (parser.currentToken().isScalarValue()) {
+			return parser.getValueAsString();
+		}
+		parser.skipChildren();
+		return null;
+	}
+}
@@ -0,0 +1,139 @@
+package com.markDev.backend_biblioteca_springboot.service.googlebooks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Junta chamadas concorrentes com a mesma chave numa única execução. A
+ * primeira chamada inicia a tarefa; as que chegam enquanto ela está em curso
+ * recebem o mesmo resultado (ou o mesmo erro), sem repetir o trabalho. Quando a
+ * tarefa termina, a chave fica livre e a chamada seguinte volta a executá-la.
+ * <p>
+ * Cada chamada recebe a sua própria cópia do resultado partilhado, com o seu
+ * próprio timeout, e desiste quando esse timeout passa ou quando cancela a
+ * cópia. Enquanto alguém espera, a execução continua para os outros; quando o
+ * último desiste, a execução é cancelada (incluindo o futuro devolvido pela
+ * tarefa) e a chave fica livre.
+ *
+ * @param <K> O tipo da chave.
+ * @param <V> O tipo do resultado.
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentHashMap<K, Execucao<V>> emCurso = new ConcurrentHashMap<>();
+	private final Counter executadas;
+	private final Counter coalescidas;
+	private final Counter timeouts;
+	private final Counter canceladas;
+
+	/**
+	 * @param nome          O nome que identifica este grupo nas métricas.
+	 * @param meterRegistry O registo onde são publicadas as métricas.
+	 */
+	public SingleFlight(String nome, MeterRegistry meterRegistry) {
+		this.executadas = Counter.builder("singleflight.chamadas").tag("nome", nome).tag("resultado", "executada")
+				.description("Chamadas que iniciaram uma execução").register(meterRegistry);
+		this.coalescidas = Counter.builder("singleflight.chamadas").tag("nome", nome).tag("resultado", "coalescida")
+				.description("Chamadas que aproveitaram uma execução já em curso").register(meterRegistry);
+		this.timeouts = Counter.builder("singleflight.esperas.expiradas").tag("nome", nome)
+				.description("Chamadas que desistiram de esperar pelo resultado").register(meterRegistry);
+		this.canceladas = Counter.builder("singleflight.cancelamentos").tag("nome", nome)
+				.description("Execuções canceladas porque todos desistiram de esperar").register(meterRegistry);
+		meterRegistry.gauge("singleflight.em.curso", Tags.of("nome", nome), emCurso, ConcurrentHashMap::size);
+	}
+
+	/**
+	 * Executa a tarefa para a chave, ou junta-se à execução já em curso.
+	 *
+	 * @param chave   A chave que identifica o trabalho.
+	 * @param tarefa  Inicia o trabalho; só é chamada se não houver outra execução em curso.
+	 * @param timeout Quanto tempo esta chamada espera pelo resultado.
+	 * @return O resultado, que termina com {@link TimeoutException} se o timeout
+	 *         passar primeiro. Cancelá-lo é desistir de esperar.
+	 */
+	public CompletableFuture<V> executar(K chave, Supplier<CompletableFuture<V>> tarefa, Duration timeout) {
+		Execucao<V> nova = new Execucao<>();
+		// Entrar e sair passam pelo compute da mesma chave, por isso a contagem nunca se cruza com a remoção.
+		Execucao<V> execucao = emCurso.compute(chave, (k, atual) -> {
+			Execucao<V> escolhida = atual != null ? atual : nova;
+			escolhida.aEspera++;
+			return escolhida;
+		});
+		if (execucao != nova) {
+			coalescidas.increment();
+		} else {
+			executadas.increment();
+			iniciar(chave, nova, tarefa);
+		}
+		CompletableFuture<V> espera = execucao.partilhado.copy().orTimeout(timeout.toMillis(),
+				TimeUnit.MILLISECONDS);
+		espera.whenComplete((valor, erro) -> {
+			if (erro instanceof TimeoutException) {
+				timeouts.increment();
+			}
+			if (erro != null && !execucao.partilhado.isDone()) {
+				desistir(chave, execucao);
+			}
+		});
+		return espera;
+	}
+
+	/** O número de chaves com uma execução em curso. */
+	public int emCurso() {
+		return emCurso.size();
+	}
+
+	private void iniciar(K chave, Execucao<V> execucao, Supplier<CompletableFuture<V>> tarefa) {
+		CompletableFuture<V> trabalho;
+		try {
+			trabalho = tarefa.get();
+		} catch (RuntimeException e) {
+			trabalho = CompletableFuture.failedFuture(e);
+		}
+		execucao.trabalho = trabalho;
+		trabalho.whenComplete((valor, erro) -> {
+			// Liberta a chave antes de entregar o resultado, para que a próxima chamada comece uma execução nova.
+			emCurso.remove(chave, execucao);
+			if (erro != null) {
+				execucao.partilhado.completeExceptionally(erro);
+			} else {
+				execucao.partilhado.complete(valor);
+			}
+		});
+	}
+
+	/** Retira uma chamada da execução; se era a última à espera, cancela-a. */
+	private void desistir(K chave, Execucao<V> execucao) {
+		boolean[] ultima = { false };
+		emCurso.computeIfPresent(chave, (k, atual) -> {
+			if (atual != execucao || --atual.aEspera > 0) {
+				return atual;
+			}
+			ultima[0] = true;
+			return null;
+		});
+		if (ultima[0]) {
+			canceladas.increment();
+			execucao.partilhado.cancel(true);
+			execucao.trabalho.cancel(true);
+		}
+	}
+
+	/** Uma execução em curso e quantas chamadas ainda esperam por ela. */
+	private static final class Execucao<V> {
+
+		final CompletableFuture<V> partilhado = new CompletableFuture<>();
+		// Só é alterado dentro do compute da chave no mapa.
+		int aEspera;
+		// Atribuído antes de a primeira chamada poder desistir, já que é ela que inicia a tarefa.
+		volatile CompletableFuture<V> trabalho;
+	}
+}
@@ -0,0 +1,114 @@
+package com.markDev.backend_biblioteca_springboot.controller;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mapstruct.factory.Mappers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
+import com.markDev.backend_biblioteca_springboot.handler.GlobalExceptionHandler;
+import com.markDev.backend_biblioteca_springboot.mapper.LivroMapper;
+import com.markDev.backend_biblioteca_springboot.repository.ImagemRepository;
+import com.markDev.backend_biblioteca_springboot.service.ArmazenamentoImagemService;
+import com.markDev.backend_biblioteca_springboot.service.GoogleBooksService;
+import com.markDev.backend_biblioteca_springboot.service.LivroService;
+import com.markDev.backend_biblioteca_springboot.service.MiniaturaService;
+
+/**
+ * Pedidos com {@code Range} à capa de um livro. A imagem é um ficheiro real no
+ * armazenamento, numa pasta temporária; o serviço dos livros é simulado.
+ */
+class LivroControllerTest {
+
+	private static final int TAMANHO = 100;
+
+	@TempDir
+	Path pasta;
+
+	private MockMvc mockMvc;
+	private byte[] conteudo;
+	private String etag;
+
+	@BeforeEach
+	void preparar() {
+		ArmazenamentoImagemService armazenamento = new ArmazenamentoImagemService(mock(ImagemRepository.class),
+				pasta.toString(), Duration.ofHours(1));
+		conteudo = new byte[TAMANHO];
+		for (int i = 0; i < TAMANHO; i++) {
+			conteudo[i] = (byte) i;
+		}
+		String hash = armazenamento.guardar(conteudo);
+		etag = "\"" + hash + "\"";
+
+		LivroService livroService = mock(LivroService.class);
+		when(livroService.buscarCapa(1L)).thenReturn(new ImagemEntity(hash, TAMANHO, "image/png"));
+		LivroController controller = new LivroController(livroService, mock(GoogleBooksService.class), armazenamento,
+				mock(MiniaturaService.class), new ObjectMapper(), Mappers.getMapper(LivroMapper.class));
+		mockMvc = MockMvcBuilders.standaloneSetup(controller).setControllerAdvice(new GlobalExceptionHandler())
+				.build();
+	}
+
+	@Test
+	void intervaloDoInicio() throws Exception {
+		mockMvc.perform(get("/api/livros/1/capa").header(HttpHeaders.RANGE, "bytes=0-9"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/" + TAMANHO))
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+				.andExpect(content().bytes(Arrays.copyOfRange(conteudo, 0, 10)));
+	}
+
+	@Test
+	void intervaloDoFim() throws Exception {
+		mockMvc.perform(get("/api/livros/1/capa").header(HttpHeaders.RANGE, "bytes=-20"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 80-99/" + TAMANHO))
+				.andExpect(content().bytes(Arrays.copyOfRange(conteudo, 80, TAMANHO)));
+	}
+
+	@Test
+	void inicioDepoisDoFimDaImagemDa416() throws Exception {
+		for (String range : new String[] { "bytes=100-", "bytes=150-200" }) {
+			mockMvc.perform(get("/api/livros/1/capa").header(HttpHeaders.RANGE, range))
+					.andExpect(status().isRequestedRangeNotSatisfiable())
+					.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + TAMANHO))
+					.andExpect(content().bytes(new byte[0]));
+		}
+	}
+
+	@Test
+	void variosIntervalosDevolvemAImagemInteira() throws Exception {
+		mockMvc.perform(get("/api/livros/1/capa").header(HttpHeaders.RANGE, "bytes=0-9,20-29"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+				.andExpect(content().bytes(conteudo));
+	}
+
+	@Test
+	void ifRangeDeOutraVersaoDevolveAImagemInteira() throws Exception {
+		mockMvc.perform(get("/api/livros/1/capa").header(HttpHeaders.RANGE, "bytes=0-9")
+				.header(HttpHeaders.IF_RANGE, "\"outra-versao\""))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+				.andExpect(content().bytes(conteudo));
+
+		mockMvc.perform(get("/api/livros/1/capa").header(HttpHeaders.RANGE, "bytes=0-9")
+				.header(HttpHeaders.IF_RANGE, etag))
+				.andExpect(status().isPartialContent())
+				.andExpect(content().bytes(Arrays.copyOfRange(conteudo, 0, 10)));
+	}
+}
@@ -0,0 +1,86 @@
+package com.markDev.backend_biblioteca_springboot.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class FiltroBloomTest {
+
+	private static final int ESPERADOS = 10_000;
+	private static final double TAXA = 0.01;
+
+	@Test
+	void naoTemFalsosNegativos() {
+		FiltroBloom filtro = new FiltroBloom(ESPERADOS, TAXA);
+		for (int i = 0; i < ESPERADOS; i++) {
+			filtro.adicionar(familia(i));
+		}
+
+		for (int i = 0; i < ESPERADOS; i++) {
+			assertThat(filtro.podeConter(familia(i))).as(familia(i)).isTrue();
+		}
+	}
+
+	@Test
+	void taxaDeFalsosPositivosPertoDaPedida() {
+		FiltroBloom filtro = new FiltroBloom(ESPERADOS, TAXA);
+		for (int i = 0; i < ESPERADOS; i++) {
+			filtro.adicionar(familia(i));
+		}
+
+		int consultas = 200_000;
+		int positivos = 0;
+		for (int i = 0; i < consultas; i++) {
+			if (filtro.podeConter("f:ausente-" + i)) {
+				positivos++;
+			}
+		}
+		assertThat((double) positivos / consultas).isBetween(TAXA / 2, TAXA * 2);
+	}
+
+	@Test
+	void filtroVazioNaoContemNada() {
+		FiltroBloom filtro = new FiltroBloom(ESPERADOS, TAXA);
+
+		assertThat(filtro.podeConter(familia(0))).isFalse();
+		assertThat(filtro.podeConter("")).isFalse();
+	}
+
+	@Test
+	void insercoesConcorrentesNaoPerdemBits() throws Exception {
+		FiltroBloom filtro = new FiltroBloom(ESPERADOS, TAXA);
+		int threads = 4;
+		int porThread = ESPERADOS / threads;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> tarefas = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int inicio = t * porThread;
+				tarefas.add(executor.submit(() -> {
+					for (int i = inicio; i < inicio + porThread; i++) {
+						filtro.adicionar(familia(i));
+					}
+				}));
+			}
+			for (Future<?> tarefa : tarefas) {
+				tarefa.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (int i = 0; i < threads * porThread; i++) {
+			assertThat(filtro.podeConter(familia(i))).as(familia(i)).isTrue();
+		}
+	}
+
+	private static String familia(int i) {
+		return "f:familia-" + i;
+	}
+}
@@ -0,0 +1,120 @@
+package com.markDev.backend_biblioteca_springboot.security.limites;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * O relógio é o argumento {@code agora} de cada chamada, por isso os tempos são
+ * exatos e os testes não dormem.
+ */
+class BaldeTokensTest {
+
+	private static final long SEGUNDO = Duration.ofSeconds(1).toNanos();
+	private static final long MILISSEGUNDO = Duration.ofMillis(1).toNanos();
+	// O System.nanoTime() pode ser negativo; começar perto do limite testa também a passagem por Long.MAX_VALUE.
+	private static final long INICIO = Long.MAX_VALUE - 2 * SEGUNDO;
+
+	@Test
+	void rajadaAteACapacidade() {
+		BaldeTokens balde = new BaldeTokens(new LimitesProperties.Limite(5, Duration.ofSeconds(1)), INICIO);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(balde.consumir(INICIO)).as("token %d", i).isZero();
+		}
+		assertThat(balde.consumir(INICIO)).isEqualTo(200 * MILISSEGUNDO);
+	}
+
+	@Test
+	void reposicaoAoRitmoDoPeriodo() {
+		BaldeTokens balde = new BaldeTokens(new LimitesProperties.Limite(5, Duration.ofSeconds(1)), INICIO);
+		esvaziar(balde, INICIO);
+
+		// Um token a cada 200 ms.
+		assertThat(balde.consumir(INICIO + 199 * MILISSEGUNDO)).isEqualTo(MILISSEGUNDO);
+		assertThat(balde.consumir(INICIO + 200 * MILISSEGUNDO)).isZero();
+		assertThat(balde.consumir(INICIO + 200 * MILISSEGUNDO)).isEqualTo(200 * MILISSEGUNDO);
+		assertThat(balde.consumir(INICIO + 600 * MILISSEGUNDO)).isZero();
+		assertThat(balde.consumir(INICIO + 600 * MILISSEGUNDO)).isZero();
+		assertThat(balde.consumir(INICIO + 600 * MILISSEGUNDO)).isPositive();
+	}
+
+	@Test
+	void tempoParadoNaoAcumulaAlemDaCapacidade() {
+		BaldeTokens balde = new BaldeTokens(new LimitesProperties.Limite(5, Duration.ofSeconds(1)), INICIO);
+		esvaziar(balde, INICIO);
+		long depois = INICIO + 60 * SEGUNDO;
+
+		assertThat(balde.cheio(depois)).isTrue();
+		assertThat(esvaziar(balde, depois)).isEqualTo(5);
+		assertThat(balde.cheio(depois)).isFalse();
+	}
+
+	@Test
+	void retryAfterArredondaAEsperaParaCima() {
+		BaldeTokens balde = new BaldeTokens(new LimitesProperties.Limite(10, Duration.ofMinutes(1)), INICIO);
+		esvaziar(balde, INICIO);
+
+		// Um token a cada 6 s.
+		long espera = balde.consumir(INICIO);
+		assertThat(espera).isEqualTo(6 * SEGUNDO);
+		assertThat(LimiteRequisicoesFilter.segundosRetryAfter(espera)).isEqualTo(6);
+
+		espera = balde.consumir(INICIO + 2500 * MILISSEGUNDO);
+		assertThat(espera).isEqualTo(3500 * MILISSEGUNDO);
+		assertThat(LimiteRequisicoesFilter.segundosRetryAfter(espera)).isEqualTo(4);
+
+		assertThat(LimiteRequisicoesFilter.segundosRetryAfter(1)).isEqualTo(1);
+	}
+
+	@Test
+	void threadsConcorrentesRecebemExatamenteACapacidade() throws Exception {
+		int capacidade = 1_000;
+		int threads = 8;
+		int tentativasPorThread = 500;
+		// Um período longo: durante o teste não é reposto nenhum token.
+		BaldeTokens balde = new BaldeTokens(new LimitesProperties.Limite(capacidade, Duration.ofDays(1)), INICIO);
+		CountDownLatch partida = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> concedidos = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				concedidos.add(executor.submit(() -> {
+					partida.await();
+					int obtidos = 0;
+					for (int i = 0; i < tentativasPorThread; i++) {
+						if (balde.consumir(INICIO) == 0) {
+							obtidos++;
+						}
+					}
+					return obtidos;
+				}));
+			}
+			partida.countDown();
+			int total = 0;
+			for (Future<Integer> obtidos : concedidos) {
+				total += obtidos.get();
+			}
+			assertThat(total).isEqualTo(capacidade);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** Consome tokens até o balde recusar e devolve quantos foram obtidos. */
+	private static int esvaziar(BaldeTokens balde, long agora) {
+		int obtidos = 0;
+		while (balde.consumir(agora) == 0) {
+			obtidos++;
+		}
+		return obtidos;
+	}
+}
@@ -0,0 +1,57 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import com.markDev.backend_biblioteca_springboot.exception.RequisicaoInvalidaException;
+
+class CursorMudancasTest {
+
+	@Test
+	void codificarEDecodificarDevolvemAMesmaPosicao() {
+		CursorMudancas cursor = new CursorMudancas(42, 7);
+
+		assertThat(CursorMudancas.decodificar(cursor.codificar())).isEqualTo(cursor);
+		assertThat(CursorMudancas.decodificar(CursorMudancas.aposRevisao(0).codificar()))
+				.isEqualTo(new CursorMudancas(0, Long.MAX_VALUE));
+	}
+
+	@Test
+	void semCursorComecaDoInicio() {
+		assertThat(CursorMudancas.decodificar(null).isInicio()).isTrue();
+		assertThat(CursorMudancas.decodificar(" ").isInicio()).isTrue();
+		// Depois da revisão 0 já não é o início: as exclusões passam a contar.
+		assertThat(CursorMudancas.aposRevisao(0).isInicio()).isFalse();
+	}
+
+	@Test
+	void ordemPorRevisaoEDepoisPorId() {
+		CursorMudancas cursor = new CursorMudancas(5, 2);
+
+		assertThat(cursor.antesDe(5, 3)).isTrue();
+		assertThat(cursor.antesDe(6, 1)).isTrue();
+		assertThat(cursor.antesDe(5, 2)).isFalse();
+		assertThat(cursor.antesDe(4, 9)).isFalse();
+		// Depois de uma revisão inteira, nenhum id dessa revisão vem a seguir.
+		assertThat(CursorMudancas.aposRevisao(5).antesDe(5, Long.MAX_VALUE - 1)).isFalse();
+		assertThat(CursorMudancas.aposRevisao(5).antesDe(6, 0)).isTrue();
+	}
+
+	@Test
+	void cursorInvalidoERecusado() {
+		String outroPrefixo = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString("c:1:2".getBytes(StandardCharsets.UTF_8));
+		String semNumero = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString("m:um:2".getBytes(StandardCharsets.UTF_8));
+
+		for (String cursor : new String[] { "não é base64!", outroPrefixo, semNumero }) {
+			assertThatThrownBy(() -> CursorMudancas.decodificar(cursor)).as(cursor)
+					.isInstanceOf(RequisicaoInvalidaException.class);
+		}
+	}
+}
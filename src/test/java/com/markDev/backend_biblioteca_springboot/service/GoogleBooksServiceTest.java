@@ -0,0 +1,195 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.markDev.backend_biblioteca_springboot.config.ResilienciaConfig;
+import com.markDev.backend_biblioteca_springboot.dto.BookSearchResultDTO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Testes contra um servidor HTTP local, que pode reter as respostas até o teste
+ * o libertar para controlar quantas chamadas estão em curso ao mesmo tempo.
+ */
+class GoogleBooksServiceTest {
+
+	private static final Duration ESPERA = Duration.ofSeconds(5);
+	private static final String RESPOSTA = "{\"totalItems\":1,\"items\":[{\"volumeInfo\":"
+			+ "{\"title\":\"Dom Casmurro\",\"authors\":[\"Machado de Assis\"],\"language\":\"pt\"}}]}";
+
+	private final ResilienciaConfig resiliencia = new ResilienciaConfig();
+	private HttpServer servidor;
+	private ExecutorService threadsServidor;
+	private final AtomicInteger pedidosRecebidos = new AtomicInteger();
+	// Cada resposta espera por este latch, que só os testes do bulkhead deixam fechado.
+	private volatile CountDownLatch libertar = new CountDownLatch(0);
+	private volatile int estado = 200;
+	private SimpleMeterRegistry registry;
+
+	@BeforeEach
+	void iniciarServidor() throws IOException {
+		servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		threadsServidor = Executors.newCachedThreadPool();
+		servidor.setExecutor(threadsServidor);
+		servidor.createContext("/volumes", this::responder);
+		servidor.start();
+		registry = new SimpleMeterRegistry();
+	}
+
+	@AfterEach
+	void pararServidor() {
+		libertar.countDown();
+		servidor.stop(0);
+		threadsServidor.shutdownNow();
+	}
+
+	@Test
+	void bulkheadCheioNaoAbreOCircuito() throws Exception {
+		// Janela e mínimo de chamadas pequenos: bastariam duas falhas para abrir o circuito.
+		CircuitBreaker circuito = resiliencia.googleBooksCircuitBreaker(CircuitBreakerRegistry.ofDefaults(), 4, 2,
+				50, 80, Duration.ofSeconds(3), Duration.ofSeconds(30), 3);
+		Bulkhead bulkhead = resiliencia.googleBooksBulkhead(BulkheadRegistry.ofDefaults(), 2);
+		GoogleBooksService servico = servico(circuito, bulkhead, Duration.ofMinutes(10));
+		libertar = new CountDownLatch(1);
+
+		List<CompletableFuture<List<BookSearchResultDTO>>> buscas = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			buscas.add(servico.buscarLivrosExterno("titulo" + i, null));
+		}
+		aguardarPedidos(2);
+
+		// As oito buscas recusadas pelo bulkhead recebem o fallback (lista vazia) de imediato.
+		assertThat(buscas.stream().filter(CompletableFuture::isDone)).hasSize(8);
+		assertThat(circuito.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(circuito.getMetrics().getNumberOfFailedCalls()).isZero();
+
+		libertar.countDown();
+		for (CompletableFuture<List<BookSearchResultDTO>> busca : buscas) {
+			assertThat(busca).succeedsWithin(ESPERA);
+		}
+		assertThat(circuito.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(circuito.getMetrics().getNumberOfSuccessfulCalls()).isEqualTo(2);
+		assertThat(pedidosRecebidos).hasValue(2);
+	}
+
+	@Test
+	void estatisticasDaCacheContamUmaVezPorBusca() {
+		GoogleBooksService servico = servico(Duration.ofMinutes(10));
+
+		assertThat(servico.buscarLivrosExterno("Dom Casmurro", null)).succeedsWithin(ESPERA).asList().hasSize(1);
+		assertThat(servico.buscarLivrosExterno("Dom Casmurro", null)).succeedsWithin(ESPERA).asList().hasSize(1);
+		assertThat(servico.buscarLivrosExterno("Dom Casmurro", null)).succeedsWithin(ESPERA).asList().hasSize(1);
+
+		assertThat(pedidosRecebidos).hasValue(1);
+		assertThat(consultasCache("miss")).isEqualTo(1);
+		assertThat(consultasCache("hit")).isEqualTo(2);
+	}
+
+	@Test
+	void entradaForaDaValidadeContaComoFalhaMasServeDeFallback() {
+		// TTL e "stale" nulos: a entrada deixa de ser servida logo depois de gravada.
+		GoogleBooksService servico = servico(Duration.ZERO);
+		assertThat(servico.buscarLivrosExterno("Dom Casmurro", null)).succeedsWithin(ESPERA).asList().hasSize(1);
+
+		estado = 503;
+		assertThat(servico.buscarLivrosExterno("Dom Casmurro", null)).succeedsWithin(ESPERA).asList().hasSize(1);
+
+		assertThat(pedidosRecebidos).hasValue(2);
+		assertThat(consultasCache("miss")).isEqualTo(2);
+		assertThat(consultasCache("hit")).isZero();
+	}
+
+	@Test
+	void cancelarABuscaAbortaOPedidoEmCurso() throws Exception {
+		CircuitBreaker circuito = resiliencia.googleBooksCircuitBreaker(CircuitBreakerRegistry.ofDefaults(), 4, 2,
+				50, 80, Duration.ofSeconds(3), Duration.ofSeconds(30), 3);
+		Bulkhead bulkhead = resiliencia.googleBooksBulkhead(BulkheadRegistry.ofDefaults(), 1);
+		GoogleBooksService servico = servico(circuito, bulkhead, Duration.ofMinutes(10));
+		libertar = new CountDownLatch(1);
+
+		CompletableFuture<List<BookSearchResultDTO>> busca = servico.buscarLivrosExterno("Dom Casmurro", null);
+		aguardarPedidos(1);
+		busca.cancel(true);
+
+		// O pedido abortado devolve a vaga do bulkhead sem esperar pela resposta retida no servidor.
+		aguardarVagaNoBulkhead(bulkhead);
+		assertThat(circuito.getMetrics().getNumberOfFailedCalls()).isZero();
+		assertThat(circuito.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		// Um pedido cancelado não entra na latência da API.
+		assertThat(registry.find("google.books.chamadas").timers())
+				.allSatisfy(timer -> assertThat(timer.count()).isZero());
+	}
+
+	private GoogleBooksService servico(Duration ttl) {
+		CircuitBreaker circuito = resiliencia.googleBooksCircuitBreaker(CircuitBreakerRegistry.ofDefaults(), 20, 10,
+				50, 80, Duration.ofSeconds(3), Duration.ofSeconds(30), 3);
+		return servico(circuito, resiliencia.googleBooksBulkhead(BulkheadRegistry.ofDefaults(), 20), ttl);
+	}
+
+	private GoogleBooksService servico(CircuitBreaker circuito, Bulkhead bulkhead, Duration ttl) {
+		String url = "http://" + servidor.getAddress().getHostString() + ":" + servidor.getAddress().getPort()
+				+ "/volumes";
+		return new GoogleBooksService(registry, circuito, bulkhead, url, Duration.ofSeconds(2), Duration.ofSeconds(4),
+				100, ttl, ttl, Duration.ofHours(24), ESPERA);
+	}
+
+	private double consultasCache(String resultado) {
+		return registry.get("cache.gets").tag("cache", "googleBooks").tag("result", resultado).functionCounter()
+				.count();
+	}
+
+	private void aguardarPedidos(int esperados) throws InterruptedException {
+		long limite = System.nanoTime() + ESPERA.toNanos();
+		while (pedidosRecebidos.get() < esperados && System.nanoTime() < limite) {
+			Thread.sleep(10);
+		}
+		assertThat(pedidosRecebidos).hasValue(esperados);
+	}
+
+	private static void aguardarVagaNoBulkhead(Bulkhead bulkhead) throws InterruptedException {
+		long limite = System.nanoTime() + ESPERA.toNanos();
+		while (bulkhead.getMetrics().getAvailableConcurrentCalls() == 0 && System.nanoTime() < limite) {
+			Thread.sleep(10);
+		}
+		assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+	}
+
+	private void responder(HttpExchange troca) throws IOException {
+		pedidosRecebidos.incrementAndGet();
+		try {
+			libertar.await(ESPERA.toMillis(), TimeUnit.MILLISECONDS);
+			byte[] corpo = RESPOSTA.getBytes(StandardCharsets.UTF_8);
+			troca.getResponseHeaders().set("Content-Type", "application/json");
+			troca.sendResponseHeaders(estado, corpo.length);
+			troca.getResponseBody().write(corpo);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			troca.close();
+		}
+	}
+}
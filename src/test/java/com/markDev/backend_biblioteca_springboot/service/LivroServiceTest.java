@@ -0,0 +1,350 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.markDev.backend_biblioteca_springboot.dto.AtualizacaoLoteDTO;
+import com.markDev.backend_biblioteca_springboot.dto.LivroDTO;
+import com.markDev.backend_biblioteca_springboot.dto.MudancasDTO;
+import com.markDev.backend_biblioteca_springboot.entity.ImagemEntity;
+import com.markDev.backend_biblioteca_springboot.entity.LivroEntity;
+import com.markDev.backend_biblioteca_springboot.entity.LivroExcluidoEntity;
+import com.markDev.backend_biblioteca_springboot.entity.UserEntity;
+import com.markDev.backend_biblioteca_springboot.entity.VersaoBibliotecaEntity;
+import com.markDev.backend_biblioteca_springboot.exception.RequisicaoInvalidaException;
+import com.markDev.backend_biblioteca_springboot.mapper.LivroMapper;
+import com.markDev.backend_biblioteca_springboot.repository.ImagemRepository;
+import com.markDev.backend_biblioteca_springboot.repository.LivroExcluidoRepository;
+import com.markDev.backend_biblioteca_springboot.repository.LivroRepository;
+import com.markDev.backend_biblioteca_springboot.repository.UserRepository;
+import com.markDev.backend_biblioteca_springboot.repository.VersaoBibliotecaRepository;
+import com.markDev.backend_biblioteca_springboot.repository.projection.LivroResumo;
+import com.markDev.backend_biblioteca_springboot.security.UsuarioAutenticado;
+import com.markDev.backend_biblioteca_springboot.service.busca.IndiceBuscaLivros;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+
+/**
+ * Testes do serviço com os repositórios simulados: o mapeamento, a validação e
+ * a aplicação dos documentos JSON são os reais.
+ */
+class LivroServiceTest {
+
+	private static final long ID_UTILIZADOR = 7L;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private LivroRepository livroRepository;
+	private VersaoBibliotecaRepository versaoBibliotecaRepository;
+	private LivroExcluidoRepository livroExcluidoRepository;
+	private ArmazenamentoImagemService armazenamentoImagemService;
+	private EstatisticaService estatisticaService;
+	private ApplicationEventPublisher eventPublisher;
+	private EntityManager entityManager;
+	private UserEntity utilizador;
+	private LivroService servico;
+
+	@BeforeEach
+	void preparar() {
+		livroRepository = mock(LivroRepository.class);
+		UserRepository userRepository = mock(UserRepository.class);
+		versaoBibliotecaRepository = mock(VersaoBibliotecaRepository.class);
+		livroExcluidoRepository = mock(LivroExcluidoRepository.class);
+		armazenamentoImagemService = mock(ArmazenamentoImagemService.class);
+		estatisticaService = mock(EstatisticaService.class);
+		eventPublisher = mock(ApplicationEventPublisher.class);
+		entityManager = mock(EntityManager.class);
+		servico = new LivroService(livroRepository, userRepository, mock(ImagemRepository.class),
+				versaoBibliotecaRepository, livroExcluidoRepository, armazenamentoImagemService, estatisticaService,
+				eventPublisher, mock(IndiceBuscaLivros.class), mock(TransactionTemplate.class), entityManager,
+				Validation.buildDefaultValidatorFactory().getValidator(), objectMapper,
+				Mappers.getMapper(LivroMapper.class));
+		ReflectionTestUtils.setField(servico, "tamanhoPaginaPadrao", 50);
+		ReflectionTestUtils.setField(servico, "tamanhoPaginaMaximo", 200);
+		ReflectionTestUtils.setField(servico, "maximoItensLote", 10_000);
+
+		utilizador = new UserEntity();
+		utilizador.setId(ID_UTILIZADOR);
+		when(userRepository.getReferenceById(ID_UTILIZADOR)).thenReturn(utilizador);
+		UsuarioAutenticado principal = new UsuarioAutenticado(ID_UTILIZADOR, "leitor", "senha", List.of());
+		SecurityContextHolder.getContext()
+				.setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+		when(versaoBibliotecaRepository.findVersao(ID_UTILIZADOR)).thenReturn(Optional.of(43L));
+	}
+
+	@AfterEach
+	void limparContexto() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void patchQueNaoMudaNadaNaoGeraRevisao() throws Exception {
+		LivroEntity livro = livro();
+
+		servico.alterarParcial(1L, json("{\"titulo\":\"Dom Casmurro\",\"capa\":null}"), null);
+
+		assertThat(livro.getRevisao()).isEqualTo(42);
+		verify(versaoBibliotecaRepository, never()).incrementar(anyLong());
+		verify(entityManager, never()).flush();
+		verify(eventPublisher, never()).publishEvent(any());
+		verify(estatisticaService, never()).aplicar(any(), any());
+	}
+
+	@Test
+	void patchQueMudaUmCampoGeraRevisao() throws Exception {
+		LivroEntity livro = livro();
+
+		servico.alterarParcial(1L, json("{\"lido\":true}"), null);
+
+		assertThat(livro.isLido()).isTrue();
+		assertThat(livro.getRevisao()).isEqualTo(43);
+		verify(versaoBibliotecaRepository).incrementar(ID_UTILIZADOR);
+		verify(entityManager).flush();
+	}
+
+	@Test
+	void patchMantemOsCamposAusentesERemoveOsNulos() throws Exception {
+		LivroEntity livro = livro();
+		livro.setAno(1899);
+		livro.setSinopse("Bentinho e Capitu.");
+		livro.setEmprestado(true);
+		livro.setEmprestadoPara("Ana");
+
+		servico.alterarParcial(1L, json("{\"sinopse\":null,\"emprestado\":false,\"emprestadoPara\":null}"), null);
+
+		assertThat(livro.getTitulo()).isEqualTo("Dom Casmurro");
+		assertThat(livro.getAutor()).isEqualTo("Machado de Assis");
+		assertThat(livro.getAno()).isEqualTo(1899);
+		assertThat(livro.getSinopse()).isNull();
+		assertThat(livro.isEmprestado()).isFalse();
+		assertThat(livro.getEmprestadoPara()).isNull();
+	}
+
+	@Test
+	void capaNulaRemoveAImagemEBase64ASubstitui() throws Exception {
+		LivroEntity livro = livro();
+		livro.setCapa(new ImagemEntity("capa-antiga", 10, "image/png"));
+		ImagemEntity contraCapa = new ImagemEntity("contracapa", 10, "image/png");
+		livro.setContraCapa(contraCapa);
+		byte[] novaCapa = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 1, 2, 3 };
+		when(armazenamentoImagemService.guardar(novaCapa)).thenReturn("capa-nova");
+
+		servico.alterarParcial(1L, json("{\"contraCapa\":null}"), null);
+		assertThat(livro.getContraCapa()).isNull();
+		assertThat(livro.getCapa().getHash()).isEqualTo("capa-antiga");
+
+		String base64 = Base64.getEncoder().encodeToString(novaCapa);
+		servico.alterarParcial(1L, json("{\"capa\":\"" + base64 + "\"}"), null);
+		assertThat(livro.getCapa().getHash()).isEqualTo("capa-nova");
+		assertThat(livro.getCapa().getTamanho()).isEqualTo(novaCapa.length);
+	}
+
+	@Test
+	void patchQueNaoEUmObjetoERecusado() throws Exception {
+		livro();
+
+		for (String corpo : new String[] { "[]", "\"titulo\"", "null" }) {
+			assertThatThrownBy(() -> servico.alterarParcial(1L, json(corpo), null)).as(corpo)
+					.isInstanceOf(RequisicaoInvalidaException.class);
+		}
+		assertThatThrownBy(() -> servico.alterarParcial(1L, null, null))
+				.isInstanceOf(RequisicaoInvalidaException.class);
+	}
+
+	@Test
+	void resultadoInvalidoERecusadoSemAlterarOLivro() throws Exception {
+		LivroEntity livro = livro();
+
+		assertThatThrownBy(() -> servico.alterarParcial(1L, json("{\"titulo\":null,\"ano\":-1}"), null))
+				.isInstanceOf(RequisicaoInvalidaException.class)
+				.hasMessageContaining("titulo")
+				.hasMessageContaining("ano");
+		assertThatThrownBy(() -> servico.alterarParcial(1L, json("{\"capa\":\"não é base64!\"}"), null))
+				.isInstanceOf(RequisicaoInvalidaException.class);
+
+		assertThat(livro.getTitulo()).isEqualTo("Dom Casmurro");
+		assertThat(livro.getAno()).isNull();
+		verify(versaoBibliotecaRepository, never()).incrementar(anyLong());
+	}
+
+	@Test
+	void emprestadoParaEmLoteExigeEmprestado() {
+		for (Boolean emprestado : new Boolean[] { null, false }) {
+			AtualizacaoLoteDTO atualizacao = new AtualizacaoLoteDTO();
+			atualizacao.setIds(List.of(1L, 2L));
+			atualizacao.setEmprestado(emprestado);
+			atualizacao.setEmprestadoPara("Ana");
+
+			assertThatThrownBy(() -> servico.atualizarEmLote(atualizacao)).as("emprestado=%s", emprestado)
+					.isInstanceOf(RequisicaoInvalidaException.class)
+					.hasMessageContaining("emprestado=true");
+		}
+		verify(entityManager, never()).getCriteriaBuilder();
+		verify(versaoBibliotecaRepository, never()).incrementar(anyLong());
+	}
+
+	@Test
+	void mudancasIntercalamLivrosEExclusoesDaMesmaRevisao() {
+		versao(5, 0);
+		estante(List.of(resumo(5, 1), resumo(5, 3), resumo(4, 9)), List.of(exclusao(5, 2), exclusao(3, 4)));
+
+		MudancasDTO mudancas = servico.listarMudancas(CursorMudancas.aposRevisao(2).codificar(), null);
+
+		assertThat(mudancas.getAlterados()).extracting(LivroDTO::getId).containsExactly(9L, 1L, 3L);
+		assertThat(mudancas.getExcluidos()).containsExactly(4L, 2L);
+		assertThat(mudancas.getCursor()).isEqualTo(CursorMudancas.aposRevisao(5).codificar());
+		assertThat(mudancas.isTemMais()).isFalse();
+		assertThat(mudancas.isRecomecar()).isFalse();
+
+		// Numa página de três, a ordem entre livros e exclusões decide o que fica de fora.
+		MudancasDTO pagina = servico.listarMudancas(CursorMudancas.aposRevisao(2).codificar(), 3);
+		assertThat(pagina.getAlterados()).extracting(LivroDTO::getId).containsExactly(9L, 1L);
+		assertThat(pagina.getExcluidos()).containsExactly(4L);
+		assertThat(pagina.getCursor()).isEqualTo(new CursorMudancas(5, 1).codificar());
+	}
+
+	@Test
+	void limiteDaPaginaPodeDividirUmaRevisao() {
+		versao(5, 0);
+		estante(List.of(resumo(5, 1), resumo(5, 3)), List.of(exclusao(5, 2), exclusao(5, 4)));
+
+		MudancasDTO primeira = servico.listarMudancas(CursorMudancas.aposRevisao(4).codificar(), 2);
+		assertThat(primeira.getAlterados()).extracting(LivroDTO::getId).containsExactly(1L);
+		assertThat(primeira.getExcluidos()).containsExactly(2L);
+		assertThat(primeira.isTemMais()).isTrue();
+		assertThat(primeira.getCursor()).isEqualTo(new CursorMudancas(5, 2).codificar());
+
+		// A segunda página continua a meio da revisão 5, sem repetir nem saltar nada.
+		MudancasDTO segunda = servico.listarMudancas(primeira.getCursor(), 2);
+		assertThat(segunda.getAlterados()).extracting(LivroDTO::getId).containsExactly(3L);
+		assertThat(segunda.getExcluidos()).containsExactly(4L);
+		assertThat(segunda.isTemMais()).isFalse();
+		assertThat(segunda.getCursor()).isEqualTo(CursorMudancas.aposRevisao(5).codificar());
+	}
+
+	@Test
+	void cursorAnteriorAoHorizonteMandaRecomecar() {
+		versao(12, 10);
+		estante(List.of(resumo(11, 1)), List.of());
+
+		MudancasDTO mudancas = servico.listarMudancas(CursorMudancas.aposRevisao(9).codificar(), null);
+
+		assertThat(mudancas.isRecomecar()).isTrue();
+		assertThat(mudancas.getCursor()).isNull();
+		assertThat(mudancas.getAlterados()).isEmpty();
+		assertThat(mudancas.getExcluidos()).isEmpty();
+		verify(livroRepository, never()).findMudancasApos(any(), anyLong(), any(), anyLong(), any());
+
+		// As exclusões até ao horizonte já foram entregues a um cursor nessa revisão.
+		MudancasDTO noHorizonte = servico.listarMudancas(CursorMudancas.aposRevisao(10).codificar(), null);
+		assertThat(noHorizonte.isRecomecar()).isFalse();
+		assertThat(noHorizonte.getAlterados()).extracting(LivroDTO::getId).containsExactly(1L);
+	}
+
+	@Test
+	void estanteSemVersaoEntregaOsLivrosAntigosDaRevisaoZero() {
+		// Sem linha de versão (versão 0) e com livros gravados antes das revisões, todos na revisão 0.
+		when(versaoBibliotecaRepository.findById(ID_UTILIZADOR)).thenReturn(Optional.empty());
+		estante(List.of(resumo(0, 1), resumo(0, 2)), List.of());
+
+		MudancasDTO primeira = servico.listarMudancas(null, 1);
+		assertThat(primeira.getAlterados()).extracting(LivroDTO::getId).containsExactly(1L);
+		assertThat(primeira.isTemMais()).isTrue();
+
+		MudancasDTO segunda = servico.listarMudancas(primeira.getCursor(), 1);
+		assertThat(segunda.getAlterados()).extracting(LivroDTO::getId).containsExactly(2L);
+		assertThat(segunda.isTemMais()).isFalse();
+		assertThat(segunda.getCursor()).isEqualTo(CursorMudancas.aposRevisao(0).codificar());
+
+		MudancasDTO semMudancas = servico.listarMudancas(segunda.getCursor(), 1);
+		assertThat(semMudancas.getAlterados()).isEmpty();
+		assertThat(semMudancas.getCursor()).isEqualTo(segunda.getCursor());
+	}
+
+	private void versao(long versao, long horizonte) {
+		VersaoBibliotecaEntity entidade = new VersaoBibliotecaEntity();
+		entidade.setUserId(ID_UTILIZADOR);
+		entidade.setVersao(versao);
+		entidade.setHorizonte(horizonte);
+		when(versaoBibliotecaRepository.findById(ID_UTILIZADOR)).thenReturn(Optional.of(entidade));
+	}
+
+	/** Simula as consultas da sincronização sobre listas em memória, com os mesmos critérios e ordem. */
+	private void estante(List<LivroResumo> livros, List<LivroExcluidoEntity> exclusoes) {
+		when(livroRepository.findMudancasApos(any(), anyLong(), any(), anyLong(), any()))
+				.thenAnswer(invocacao -> depois(livros, LivroResumo::getRevisao, LivroResumo::getId,
+						invocacao.getArgument(1), invocacao.getArgument(2), invocacao.getArgument(3),
+						invocacao.getArgument(4)));
+		when(livroExcluidoRepository.findMudancasApos(any(), anyLong(), any(), anyLong(), any()))
+				.thenAnswer(invocacao -> depois(exclusoes, LivroExcluidoEntity::getRevisao,
+						LivroExcluidoEntity::getLivroId, invocacao.getArgument(1), invocacao.getArgument(2),
+						invocacao.getArgument(3), invocacao.getArgument(4)));
+	}
+
+	private static <T> List<T> depois(List<T> linhas, ToLongFunction<T> revisao, Function<T, Long> id,
+			long depoisRevisao, Long depoisId, long ate, Pageable pagina) {
+		return linhas.stream()
+				.filter(linha -> revisao.applyAsLong(linha) <= ate
+						&& new CursorMudancas(depoisRevisao, depoisId).antesDe(revisao.applyAsLong(linha), id.apply(linha)))
+				.sorted(Comparator.comparingLong(revisao).thenComparing(id))
+				.limit(pagina.getPageSize())
+				.toList();
+	}
+
+	private static LivroResumo resumo(long revisao, long id) {
+		LivroResumo resumo = mock(LivroResumo.class);
+		when(resumo.getId()).thenReturn(id);
+		when(resumo.getRevisao()).thenReturn(revisao);
+		return resumo;
+	}
+
+	private static LivroExcluidoEntity exclusao(long revisao, long livroId) {
+		LivroExcluidoEntity exclusao = new LivroExcluidoEntity();
+		exclusao.setLivroId(livroId);
+		exclusao.setUserId(ID_UTILIZADOR);
+		exclusao.setRevisao(revisao);
+		return exclusao;
+	}
+
+	/** Um livro do utilizador, com o id 1 e a revisão 42, devolvido pelo repositório. */
+	private LivroEntity livro() {
+		LivroEntity livro = new LivroEntity();
+		livro.setId(1L);
+		livro.setUser(utilizador);
+		livro.setTitulo("Dom Casmurro");
+		livro.setAutor("Machado de Assis");
+		livro.setRevisao(42);
+		when(livroRepository.findByIdAndUser(1L, utilizador)).thenReturn(Optional.of(livro));
+		return livro;
+	}
+
+	private JsonNode json(String texto) throws Exception {
+		return objectMapper.readTree(texto);
+	}
+}
@@ -0,0 +1,114 @@
+package com.markDev.backend_biblioteca_springboot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import com.markDev.backend_biblioteca_springboot.exception.TokenInvalidoException;
+import com.markDev.backend_biblioteca_springboot.repository.RefreshTokenRepository;
+import com.markDev.backend_biblioteca_springboot.security.JwtUtil;
+import com.markDev.backend_biblioteca_springboot.security.UserDetailsServiceImpl;
+import com.markDev.backend_biblioteca_springboot.security.UsuarioAutenticado;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RefreshTokenServiceTest {
+
+	private static final String SEGREDO = "segredo-dos-testes-com-pelo-menos-256-bits!";
+	private static final UsuarioAutenticado UTILIZADOR = new UsuarioAutenticado(1L, "leitor", "senha", List.of());
+
+	private RefreshTokenRepository repositorio;
+	private UserDetailsServiceImpl userDetailsService;
+	private JwtUtil jwtUtil;
+	private RefreshTokenService servico;
+
+	@BeforeEach
+	void preparar() {
+		repositorio = mock(RefreshTokenRepository.class);
+		jwtUtil = new JwtUtil(SEGREDO, 100, new SimpleMeterRegistry());
+		userDetailsService = mock(UserDetailsServiceImpl.class);
+		servico = new RefreshTokenService(repositorio, userDetailsService, jwtUtil, 1_000, 0.01);
+		when(repositorio.findJtisRevogados(any(Instant.class))).thenReturn(List.of());
+	}
+
+	@Test
+	void reconstrucaoCarregaAsSessoesTerminadasDoBanco() {
+		when(repositorio.findFamiliasRevogadas(any(Instant.class))).thenReturn(List.of("familia-terminada"));
+
+		servico.reconstruirFiltro();
+
+		assertThat(servico.familiaRevogada("familia-terminada")).isTrue();
+		assertThat(servico.familiaRevogada("familia-aberta")).isFalse();
+		// Uma família que o filtro não contém é respondida sem ir ao banco de dados.
+		verify(repositorio, never()).existsByFamiliaAndRevogadoFalseAndExpiraEmAfter(eq("familia-aberta"),
+				any(Instant.class));
+	}
+
+	@Test
+	void revogacaoDuranteAReconstrucaoSobreviveATroca() {
+		String refreshToken = jwtUtil.generateRefreshToken(UTILIZADOR, "jti-1", "familia-terminada");
+		// A sessão termina depois de a reconstrução ler o banco: a lista lida já não a inclui.
+		when(repositorio.findFamiliasRevogadas(any(Instant.class))).thenAnswer(invocacao -> {
+			servico.encerrarSessao(refreshToken);
+			return List.of();
+		});
+
+		servico.reconstruirFiltro();
+
+		assertThat(servico.familiaRevogada("familia-terminada")).isTrue();
+		assertThat(servico.familiaRevogada("familia-aberta")).isFalse();
+	}
+
+	@Test
+	void revogacaoConfirmadaDepoisDeUmaReconstrucaoNaoSePerde() {
+		when(repositorio.findFamiliasRevogadas(any(Instant.class))).thenReturn(List.of());
+		String refreshToken = jwtUtil.generateRefreshToken(UTILIZADOR, "jti-3", "familia-terminada");
+
+		// A reconstrução corre entre o UPDATE da sessão e o commit: o banco de dados ainda não a mostra revogada.
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			servico.encerrarSessao(refreshToken);
+			servico.reconstruirFiltro();
+			TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertThat(servico.familiaRevogada("familia-terminada")).isTrue();
+	}
+
+	@Test
+	void renovacaoDeUmaContaApagadaEUmTokenInvalido() {
+		when(repositorio.revogarSeAtivo(eq("jti-4"), any(Instant.class))).thenReturn(1);
+		when(userDetailsService.loadUserByUsername(anyString()))
+				.thenThrow(new UsernameNotFoundException("Utilizador não encontrado: leitor"));
+
+		assertThatThrownBy(() -> servico.renovar(jwtUtil.generateRefreshToken(UTILIZADOR, "jti-4", "familia")))
+				.isInstanceOf(TokenInvalidoException.class);
+	}
+
+	@Test
+	void revogacaoDepoisDaReconstrucaoEntraNoFiltroAtual() {
+		when(repositorio.findFamiliasRevogadas(any(Instant.class))).thenReturn(List.of());
+		servico.reconstruirFiltro();
+
+		servico.encerrarSessao(jwtUtil.generateRefreshToken(UTILIZADOR, "jti-2", "familia-nova"));
+
+		assertThat(servico.familiaRevogada("familia-nova")).isTrue();
+	}
+}
@@ -0,0 +1,184 @@
+package com.markDev.backend_biblioteca_springboot.service.googlebooks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SingleFlightTest {
+
+	private static final Duration ESPERA = Duration.ofSeconds(5);
+
+	private SimpleMeterRegistry registry;
+	private SingleFlight<String, String> singleFlight;
+	private CompletableFuture<String> fonte;
+	private AtomicInteger execucoes;
+	private Supplier<CompletableFuture<String>> tarefa;
+
+	@BeforeEach
+	void preparar() {
+		registry = new SimpleMeterRegistry();
+		singleFlight = new SingleFlight<>("teste", registry);
+		fonte = new CompletableFuture<>();
+		execucoes = new AtomicInteger();
+		tarefa = () -> {
+			execucoes.incrementAndGet();
+			return fonte;
+		};
+	}
+
+	@Test
+	void chamadasConcorrentesPartilhamUmaExecucao() throws Exception {
+		int threads = 8;
+		CountDownLatch partida = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<CompletableFuture<String>>> chamadas = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				chamadas.add(executor.submit(() -> {
+					partida.await();
+					return singleFlight.executar("chave", tarefa, ESPERA);
+				}));
+			}
+			partida.countDown();
+			List<CompletableFuture<String>> resultados = new ArrayList<>();
+			for (Future<CompletableFuture<String>> chamada : chamadas) {
+				resultados.add(chamada.get());
+			}
+
+			assertThat(execucoes).hasValue(1);
+			assertThat(singleFlight.emCurso()).isEqualTo(1);
+			fonte.complete("resultado");
+			for (CompletableFuture<String> resultado : resultados) {
+				assertThat(resultado).succeedsWithin(ESPERA).isEqualTo("resultado");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(contagem("executada")).isEqualTo(1);
+		assertThat(contagem("coalescida")).isEqualTo(threads - 1);
+	}
+
+	@Test
+	void chavesDiferentesExecutamEmSeparado() {
+		singleFlight.executar("a", tarefa, ESPERA);
+		singleFlight.executar("b", tarefa, ESPERA);
+
+		assertThat(execucoes).hasValue(2);
+		assertThat(singleFlight.emCurso()).isEqualTo(2);
+		assertThat(contagem("coalescida")).isZero();
+	}
+
+	@Test
+	void sucessoLibertaAChave() {
+		CompletableFuture<String> resultado = singleFlight.executar("chave", tarefa, ESPERA);
+		fonte.complete("resultado");
+
+		assertThat(resultado).succeedsWithin(ESPERA).isEqualTo("resultado");
+		assertThat(singleFlight.emCurso()).isZero();
+		assertThat(emCursoNoGauge()).isZero();
+
+		// A chamada seguinte começa uma execução nova.
+		singleFlight.executar("chave", tarefa, ESPERA);
+		assertThat(execucoes).hasValue(2);
+	}
+
+	@Test
+	void falhaChegaATodosELibertaAChave() {
+		CompletableFuture<String> primeira = singleFlight.executar("chave", tarefa, ESPERA);
+		CompletableFuture<String> segunda = singleFlight.executar("chave", tarefa, ESPERA);
+		fonte.completeExceptionally(new IllegalStateException("API em baixo"));
+
+		for (CompletableFuture<String> resultado : List.of(primeira, segunda)) {
+			assertThat(resultado).failsWithin(ESPERA).withThrowableThat()
+					.withCauseInstanceOf(IllegalStateException.class);
+		}
+		assertThat(singleFlight.emCurso()).isZero();
+	}
+
+	@Test
+	void excecaoAoIniciarContaComoFalha() {
+		CompletableFuture<String> resultado = singleFlight.executar("chave", () -> {
+			throw new IllegalStateException("executor cheio");
+		}, ESPERA);
+
+		assertThat(resultado).failsWithin(ESPERA).withThrowableThat()
+				.withCauseInstanceOf(IllegalStateException.class);
+		assertThat(singleFlight.emCurso()).isZero();
+	}
+
+	@Test
+	void timeoutDaExecucaoLibertaAChave() {
+		CompletableFuture<String> resultado = singleFlight.executar("chave", tarefa, ESPERA);
+		// Por exemplo, o timeout do próprio pedido HTTP.
+		fonte.completeExceptionally(new TimeoutException("sem resposta"));
+
+		assertThat(resultado).failsWithin(ESPERA).withThrowableThat().withCauseInstanceOf(TimeoutException.class);
+		assertThat(singleFlight.emCurso()).isZero();
+	}
+
+	@Test
+	void timeoutDeUmaChamadaNaoCancelaAExecucaoParaOsOutros() {
+		CompletableFuture<String> impaciente = singleFlight.executar("chave", tarefa, Duration.ofMillis(50));
+		CompletableFuture<String> paciente = singleFlight.executar("chave", tarefa, ESPERA);
+
+		assertThat(impaciente).failsWithin(ESPERA).withThrowableThat().withCauseInstanceOf(TimeoutException.class);
+		assertThat(registry.get("singleflight.esperas.expiradas").counter().count()).isEqualTo(1);
+		assertThat(fonte).isNotDone();
+		assertThat(singleFlight.emCurso()).isEqualTo(1);
+
+		fonte.complete("resultado");
+		assertThat(paciente).succeedsWithin(ESPERA).isEqualTo("resultado");
+		assertThat(singleFlight.emCurso()).isZero();
+	}
+
+	@Test
+	void ultimaChamadaADesistirCancelaAExecucao() {
+		CompletableFuture<String> primeira = singleFlight.executar("chave", tarefa, ESPERA);
+		CompletableFuture<String> segunda = singleFlight.executar("chave", tarefa, ESPERA);
+
+		primeira.cancel(true);
+		assertThat(fonte).isNotDone();
+		assertThat(singleFlight.emCurso()).isEqualTo(1);
+
+		segunda.cancel(true);
+		assertThat(fonte).isCancelled();
+		assertThat(singleFlight.emCurso()).isZero();
+		assertThat(registry.get("singleflight.cancelamentos").counter().count()).isEqualTo(1);
+
+		// A chave está livre: a chamada seguinte começa uma execução nova.
+		singleFlight.executar("chave", tarefa, ESPERA);
+		assertThat(execucoes).hasValue(2);
+	}
+
+	@Test
+	void timeoutDaUnicaChamadaCancelaAExecucao() {
+		CompletableFuture<String> resultado = singleFlight.executar("chave", tarefa, Duration.ofMillis(50));
+
+		assertThat(resultado).failsWithin(ESPERA).withThrowableThat().withCauseInstanceOf(TimeoutException.class);
+		assertThat(fonte).isCancelled();
+		assertThat(singleFlight.emCurso()).isZero();
+	}
+
+	private double contagem(String resultado) {
+		return registry.get("singleflight.chamadas").tag("resultado", resultado).counter().count();
+	}
+
+	private double emCursoNoGauge() {
+		return registry.get("singleflight.em.curso").gauge().value();
+	}
+}